@@ -0,0 +1,82 @@
+#!/usr/bin/env bash
+#
+# Compares the startup of the JVM and native builds:
+#  - time to first request: from exec until 'serve' answers GET /metrics
+#  - time to exit: a cron-style invocation that does no work, 'github --version'
+#
+# Build both first, JVM then native, as -Pnative does not package the jar:
+#   ./mvnw package -DskipTests && ./mvnw package -Pnative -DskipTests
+#
+# Usage: scripts/startup-benchmark.sh [runs]
+
+set -euo pipefail
+
+RUNS="${1:-10}"
+PORT="${PORT:-18080}"
+
+cd "$(dirname "$0")/.."
+
+JVM=(java -jar target/quarkus-app/quarkus-run.jar)
+NATIVE=()
+for runner in target/github-stats-*-runner; do
+  [[ -x "${runner}" ]] && NATIVE=("${runner}")
+done
+
+first_request() {
+  local start end pid
+  start=$(date +%s%N)
+  "$@" serve --organization=startup-benchmark --port="${PORT}" --refresh-interval=PT24H > /dev/null 2>&1 &
+  pid=$!
+
+  until curl --silent --fail --output /dev/null "http://localhost:${PORT}/metrics"; do
+    if ! kill -0 "${pid}" 2> /dev/null; then
+      echo "serve exited before answering" >&2
+      return 1
+    fi
+
+    sleep 0.005
+  done
+
+  end=$(date +%s%N)
+  kill "${pid}"
+  wait "${pid}" 2> /dev/null || true
+  echo $(((end - start) / 1000000))
+}
+
+exit_time() {
+  local start end
+  start=$(date +%s%N)
+  "$@" --version > /dev/null 2>&1
+  end=$(date +%s%N)
+  echo $(((end - start) / 1000000))
+}
+
+# prints: min median max, in milliseconds
+summarise() {
+  sort -n | awk '{ v[NR] = $1 } END { printf "min %6d ms  median %6d ms  max %6d ms\n", v[1], v[int((NR + 1) / 2)], v[NR] }'
+}
+
+report() {
+  local name="$1"
+  shift
+
+  printf "%-7s first request  " "${name}"
+  for _ in $(seq "${RUNS}"); do first_request "$@"; done | summarise
+
+  printf "%-7s exit           " "${name}"
+  for _ in $(seq "${RUNS}"); do exit_time "$@"; done | summarise
+}
+
+if [[ ! -f target/quarkus-app/quarkus-run.jar ]]; then
+  echo "No JVM build in target/quarkus-app; run ./mvnw package -DskipTests" >&2
+  exit 1
+fi
+
+report "JVM" "${JVM[@]}"
+
+if [[ ${#NATIVE[@]} -eq 0 ]]; then
+  echo "No native build in target; run ./mvnw package -Pnative -DskipTests" >&2
+  exit 1
+fi
+
+report "native" "${NATIVE[@]}"
@@ -0,0 +1,40 @@
+package com.garethahealy.githubstats.benchmarks;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.garethahealy.githubstats.model.config.ConfigIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Indexing an org {@code config.yaml} from its bytes, as {@code GitHubConfigYamlService} does after a download.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConfigYamlBenchmark {
+
+    /**
+     * What {@code GitHubConfigYamlService} used to do: read the whole document into a tree, then walk it.
+     */
+    @Benchmark
+    public ConfigIndex tree(ConfigYamlFixture fixture) throws IOException {
+        return fixture.processor.index("sha", fixture.yamlMapper.readTree(fixture.yaml));
+    }
+
+    @Benchmark
+    public ConfigIndex streaming(ConfigYamlFixture fixture) throws IOException {
+        try (JsonParser parser = fixture.yamlMapper.createParser(fixture.yaml)) {
+            return fixture.processor.index("sha", parser);
+        }
+    }
+}
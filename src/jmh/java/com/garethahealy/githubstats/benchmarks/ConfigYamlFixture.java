@@ -0,0 +1,73 @@
+package com.garethahealy.githubstats.benchmarks;
+
+import com.fasterxml.jackson.dataformat.yaml.YAMLMapper;
+import com.garethahealy.githubstats.config.jackson.YAMLMapperConfig;
+import com.garethahealy.githubstats.processor.ConfigYamlProcessor;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A synthetic peribolos-style org {@code config.yaml}: org members, every repository with its settings, a team per ten
+ * repositories with its own members, and every tenth repository in the {@code aarchived} team.
+ */
+@State(Scope.Benchmark)
+public class ConfigYamlFixture {
+
+    @Param({"1000", "20000"})
+    int repositories;
+
+    byte[] yaml;
+    YAMLMapper yamlMapper;
+    ConfigYamlProcessor processor;
+
+    @Setup
+    public void setUp() {
+        yaml = configYaml(repositories).getBytes(StandardCharsets.UTF_8);
+        yamlMapper = new YAMLMapperConfig().mapper();
+        processor = new ConfigYamlProcessor();
+    }
+
+    static String configYaml(int repositories) {
+        StringBuilder answer = new StringBuilder("orgs:\n  redhat-cop:\n    name: Red Hat Communities of Practice\n    admins:\n    - admin-0\n    members:\n");
+        for (int i = 0; i < repositories * 2; i++) {
+            answer.append("    - user-").append(i).append('\n');
+        }
+
+        answer.append("    repos:\n");
+        for (int i = 0; i < repositories; i++) {
+            answer.append("      repo-").append(i).append(":\n")
+                .append("        description: Repository number ").append(i).append(" of the synthetic organization\n")
+                .append("        has_projects: false\n")
+                .append("        has_wiki: false\n")
+                .append("        default_branch: main\n");
+        }
+
+        answer.append("    teams:\n");
+        for (int team = 0; team < repositories / 10; team++) {
+            answer.append("      team-").append(team).append(":\n")
+                .append("        description: Maintainers of repositories ").append(team * 10).append(" to ").append(team * 10 + 9).append('\n')
+                .append("        privacy: closed\n")
+                .append("        maintainers:\n        - user-").append(team).append('\n')
+                .append("        members:\n");
+            for (int member = 0; member < 20; member++) {
+                answer.append("        - user-").append((team * 20 + member) % (repositories * 2)).append('\n');
+            }
+
+            answer.append("        repos:\n");
+            for (int i = team * 10; i < team * 10 + 10; i++) {
+                answer.append("          repo-").append(i).append(": write\n");
+            }
+        }
+
+        answer.append("      aarchived:\n        description: Archived repositories\n        privacy: closed\n        repos:\n");
+        for (int i = 9; i < repositories; i += 10) {
+            answer.append("          repo-").append(i).append(": read\n");
+        }
+
+        return answer.toString();
+    }
+}
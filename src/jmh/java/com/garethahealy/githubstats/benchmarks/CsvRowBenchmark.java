@@ -0,0 +1,47 @@
+package com.garethahealy.githubstats.benchmarks;
+
+import com.garethahealy.githubstats.clients.graphql.generated.Commit;
+import com.garethahealy.githubstats.mapping.fields.RepositoryGraphqlSupport;
+import com.garethahealy.githubstats.model.csv.Repository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-row cost of turning a bound GraphQL repository into a CSV record.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CsvRowBenchmark {
+
+    @Benchmark
+    public Repository toCsvRow(RepoStatsFixture fixture) {
+        return fixture.csvMapper.toCsvRow(fixture.repository.getName(), fixture.repository, 42, null, null, true, false, false);
+    }
+
+    @Benchmark
+    public List<String> toArray(RepoStatsFixture fixture) {
+        return fixture.row.toArray("redhat-cop", false);
+    }
+
+    @Benchmark
+    public List<String> topicNames(RepoStatsFixture fixture) {
+        return RepositoryGraphqlSupport.topicNames(fixture.repository);
+    }
+
+    @Benchmark
+    public Optional<Commit> latestCommit(RepoStatsFixture fixture) {
+        return RepositoryGraphqlSupport.latestCommit(fixture.repository);
+    }
+}
@@ -0,0 +1,47 @@
+package com.garethahealy.githubstats.benchmarks;
+
+import com.garethahealy.githubstats.clients.graphql.generated.Repository;
+import com.garethahealy.githubstats.config.jackson.JsonpBinding;
+import com.garethahealy.githubstats.model.graphql.GitHubRepoStatsGraphqlData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Binding a {@code RepoStats} response to the generated {@link Repository} through the {@code @GraphqlObjectMapper}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GraphqlParsingBenchmark {
+
+    /**
+     * What {@code GitHubRepositoryStatsService} used to do: serialise the client's {@code JsonObject} and re-parse it.
+     */
+    @Benchmark
+    public Repository jsonObjectToString(RepoStatsFixture fixture) throws IOException {
+        return fixture.graphqlObjectMapper.readValue(fixture.jsonObject.toString(), GitHubRepoStatsGraphqlData.class).repository();
+    }
+
+    /**
+     * Replays the {@code JsonObject} as Jackson tokens, skipping the String round trip.
+     */
+    @Benchmark
+    public Repository jsonpBinding(RepoStatsFixture fixture) throws IOException {
+        return JsonpBinding.readValue(fixture.graphqlObjectMapper, fixture.jsonObject, GitHubRepoStatsGraphqlData.class).repository();
+    }
+
+    @Benchmark
+    public Repository rawString(RepoStatsFixture fixture) throws IOException {
+        return fixture.graphqlObjectMapper.readValue(fixture.json, GitHubRepoStatsGraphqlData.class).repository();
+    }
+}
@@ -0,0 +1,71 @@
+package com.garethahealy.githubstats.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.garethahealy.githubstats.clients.graphql.generated.Repository;
+import com.garethahealy.githubstats.config.jackson.ObjectMapperConfig;
+import com.garethahealy.githubstats.mapping.GraphqlRepositoryToCsvMapper;
+import com.garethahealy.githubstats.model.graphql.GitHubRepoStatsGraphqlData;
+import jakarta.json.Json;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonReader;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+/**
+ * Recorded {@code RepoStats} responses (the GraphQL {@code data} object) for a small, typical and huge repository,
+ * plus the mappers wired the way CDI would wire them.
+ */
+@State(Scope.Benchmark)
+public class RepoStatsFixture {
+
+    @Param({"small", "typical", "huge"})
+    String size;
+
+    String json;
+    JsonObject jsonObject;
+    Repository repository;
+    com.garethahealy.githubstats.model.csv.Repository row;
+    ObjectMapper graphqlObjectMapper;
+    GraphqlRepositoryToCsvMapper csvMapper;
+
+    @Setup
+    public void setUp() throws IOException, ReflectiveOperationException {
+        try (InputStream in = Objects.requireNonNull(getClass().getResourceAsStream("/fixtures/repo-stats-" + size + ".json"), "Missing fixture: " + size)) {
+            json = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+
+        try (JsonReader reader = Json.createReader(new StringReader(json))) {
+            jsonObject = reader.readObject();
+        }
+
+        graphqlObjectMapper = new ObjectMapperConfig().mapper();
+        repository = graphqlObjectMapper.readValue(json, GitHubRepoStatsGraphqlData.class).repository();
+        csvMapper = csvMapper();
+        row = csvMapper.toCsvRow(repository.getName(), repository, 42, null, null, true, false, false);
+    }
+
+    /**
+     * The MapStruct implementation field-injects its {@code mapping.fields} helpers; outside CDI they are plain
+     * no-arg classes, so set them reflectively.
+     */
+    private static GraphqlRepositoryToCsvMapper csvMapper() throws ReflectiveOperationException {
+        Class<?> implementation = Class.forName(GraphqlRepositoryToCsvMapper.class.getName() + "Impl");
+        GraphqlRepositoryToCsvMapper answer = (GraphqlRepositoryToCsvMapper) implementation.getDeclaredConstructor().newInstance();
+
+        for (Field field : implementation.getDeclaredFields()) {
+            field.setAccessible(true);
+            field.set(answer, field.getType().getDeclaredConstructor().newInstance());
+        }
+
+        return answer;
+    }
+}
@@ -0,0 +1,150 @@
+package com.garethahealy.githubstats.clients;
+
+import org.kohsuke.github.connector.GitHubConnector;
+import org.kohsuke.github.connector.GitHubConnectorRequest;
+import org.kohsuke.github.connector.GitHubConnectorResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Serves REST GETs from the {@link GitHubResponseCache}: entries inside the TTL are returned without a request,
+ * older ones are revalidated with {@code If-None-Match} / {@code If-Modified-Since} and a 304 is answered from disk.
+ * GitHub does not count 304s against the REST rate limit. Entries are keyed by the token that fetched them, and are
+ * stored without the rate-limit headers, which only describe the budget at the time.
+ */
+public class CachingGitHubConnector implements GitHubConnector {
+
+    private static final Set<String> UNCACHED_HEADERS = Set.of("content-encoding", "content-length", "transfer-encoding", "retry-after");
+
+    private final GitHubConnector delegate;
+    private final GitHubResponseCache cache;
+
+    public CachingGitHubConnector(GitHubConnector delegate, GitHubResponseCache cache) {
+        this.delegate = delegate;
+        this.cache = cache;
+    }
+
+    @Override
+    public GitHubConnectorResponse send(GitHubConnectorRequest request) throws IOException {
+        if (!"GET".equals(request.method())) {
+            return delegate.send(request);
+        }
+
+        String key = GitHubResponseCache.key(request.method(), request.url().toString(), String.valueOf(request.header("Accept")), String.valueOf(request.header("Authorization")));
+
+        Optional<GitHubResponseCache.CachedResponse> cached = cache.get(key);
+        if (cached.isPresent() && cache.isFresh(cached.get())) {
+            return new CachedGitHubConnectorResponse(request, cached.get());
+        }
+
+        GitHubConnectorResponse response = delegate.send(cached.map(entry -> conditional(request, entry)).orElse(request));
+        if (response.statusCode() == 304 && cached.isPresent()) {
+            GitHubResponseCache.CachedResponse revalidated = cached.get().revalidated(cacheableHeaders(response.allHeaders()));
+            response.close();
+
+            cache.put(key, revalidated);
+            return new CachedGitHubConnectorResponse(request, revalidated);
+        }
+
+        boolean validatable = response.header("ETag") != null || response.header("Last-Modified") != null;
+        if (response.statusCode() != 200 || !(validatable || cache.hasTtl())) {
+            return response;
+        }
+
+        byte[] body;
+        try (response) {
+            body = response.bodyStream().readAllBytes();
+        }
+
+        GitHubResponseCache.CachedResponse fresh = new GitHubResponseCache.CachedResponse(response.statusCode(), cacheableHeaders(response.allHeaders()), Instant.now(), body);
+        cache.put(key, fresh);
+
+        return new CachedGitHubConnectorResponse(request, fresh);
+    }
+
+    private static Map<String, List<String>> cacheableHeaders(Map<String, List<String>> headers) {
+        Map<String, List<String>> answer = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        headers.forEach((name, values) -> {
+            if (name != null && !UNCACHED_HEADERS.contains(name.toLowerCase()) && !name.toLowerCase().startsWith("x-ratelimit-")) {
+                answer.put(name, values);
+            }
+        });
+
+        return answer;
+    }
+
+    private static GitHubConnectorRequest conditional(GitHubConnectorRequest request, GitHubResponseCache.CachedResponse cached) {
+        Map<String, List<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        headers.putAll(request.allHeaders());
+
+        String etag = cached.header("ETag");
+        if (etag != null) {
+            headers.put("If-None-Match", List.of(etag));
+        }
+
+        String lastModified = cached.header("Last-Modified");
+        if (lastModified != null) {
+            headers.put("If-Modified-Since", List.of(lastModified));
+        }
+
+        return new ConditionalRequest(request, headers);
+    }
+
+    private record ConditionalRequest(GitHubConnectorRequest request, Map<String, List<String>> allHeaders) implements GitHubConnectorRequest {
+
+        @Override
+        public String method() {
+            return request.method();
+        }
+
+        @Override
+        public String header(String name) {
+            List<String> values = allHeaders.get(name);
+            return values == null || values.isEmpty() ? null : String.join(",", values);
+        }
+
+        @Override
+        public String contentType() {
+            return request.contentType();
+        }
+
+        @Override
+        public InputStream body() {
+            return request.body();
+        }
+
+        @Override
+        public URL url() {
+            return request.url();
+        }
+
+        @Override
+        public boolean hasBody() {
+            return request.hasBody();
+        }
+    }
+
+    private static class CachedGitHubConnectorResponse extends GitHubConnectorResponse.ByteArrayResponse {
+
+        private final byte[] body;
+
+        CachedGitHubConnectorResponse(GitHubConnectorRequest request, GitHubResponseCache.CachedResponse cached) {
+            super(request, cached.statusCode(), cached.headers());
+            this.body = cached.body();
+        }
+
+        @Override
+        protected InputStream rawBodyStream() {
+            return new ByteArrayInputStream(body);
+        }
+    }
+}
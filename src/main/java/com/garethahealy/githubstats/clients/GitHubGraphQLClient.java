@@ -1,48 +1,288 @@
 package com.garethahealy.githubstats.clients;
 
+import com.garethahealy.githubstats.config.GitHubConfigProperties;
 import io.smallrye.graphql.client.GraphQLClient;
+import io.smallrye.graphql.client.GraphQLError;
+import io.smallrye.graphql.client.InvalidResponseException;
 import io.smallrye.graphql.client.Response;
 import io.smallrye.graphql.client.dynamic.api.DynamicGraphQLClient;
-import jakarta.annotation.PostConstruct;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.json.Json;
 import jakarta.json.JsonObject;
+import jakarta.json.JsonReader;
+import jakarta.json.JsonValue;
 
-import java.io.IOException;
-import java.io.InputStream;
+import java.io.ByteArrayInputStream;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Objects;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.concurrent.ExecutionException;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
 
 @ApplicationScoped
 public class GitHubGraphQLClient {
 
-    private static final String REPO_STATS_GRAPHQL = "/graphql/queries/GetRepoStats.graphql";
+    private static final Pattern BATCH_ALIAS = Pattern.compile("repo\\d+");
+    private static final String RATE_LIMIT_SELECTION = "  rateLimit {\n    cost\n    remaining\n    resetAt\n  }\n";
 
     private final DynamicGraphQLClient client;
-    private String repoStatsQuery;
+    private final GitHubRequestScheduler scheduler;
+    private final GitHubResponseCache cache;
+    private final GitHubConfigProperties github;
 
-    public GitHubGraphQLClient(@GraphQLClient("github-graphql") DynamicGraphQLClient client) {
+    public GitHubGraphQLClient(@GraphQLClient("github-graphql") DynamicGraphQLClient client, GitHubRequestScheduler scheduler, GitHubResponseCache cache, GitHubConfigProperties github) {
         this.client = client;
+        this.scheduler = scheduler;
+        this.cache = cache;
+        this.github = github;
     }
 
-    @PostConstruct
-    void loadGraphqlDocuments() throws IOException {
-        this.repoStatsQuery = readClasspath(REPO_STATS_GRAPHQL);
+    /**
+     * @param includes the {@code @include} variables of {@code RepoStatsFields}, see {@code RepositoryFields#graphqlIncludes()}
+     */
+    public JsonObject getRepoStats(String owner, String name, Map<String, Boolean> includes) throws ExecutionException, InterruptedException {
+        Map<String, Object> variables = new HashMap<>(includes);
+        variables.put("owner", owner);
+        variables.put("name", name);
+        return query(GraphqlDocuments.REPO_STATS, variables);
     }
 
-    private static String readClasspath(String path) throws IOException {
-        try (InputStream in = Objects.requireNonNull(GitHubGraphQLClient.class.getResourceAsStream(path), "Missing classpath resource: " + path)) {
-            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+    /**
+     * Fetches the {@code RepoStatsFields} of several repositories in one round trip, using one aliased
+     * {@code repository(owner:, name:)} block per name.
+     *
+     * A repository that cannot be resolved only fails its own alias, so the rest of the batch is kept.
+     *
+     * @return raw repository payloads keyed by repository name, in request order: {@link JsonValue#NULL} when not found,
+     * and left out when its alias failed for another reason, so it can be retried on its own
+     */
+    public Map<String, JsonValue> getRepoStats(String owner, List<String> names, Map<String, Boolean> includes) throws ExecutionException, InterruptedException {
+        Map<String, Object> variables = new HashMap<>(includes);
+        variables.put("owner", owner);
+
+        StringBuilder aliases = new StringBuilder();
+        StringBuilder parameters = new StringBuilder("$owner: String!");
+        for (String current : new TreeSet<>(includes.keySet())) {
+            parameters.append(", $").append(current).append(": Boolean!");
+        }
+
+        for (int i = 0; i < names.size(); i++) {
+            variables.put("name" + i, names.get(i));
+
+            parameters.append(", $name").append(i).append(": String!");
+            aliases.append("  repo").append(i).append(": repository(owner: $owner, name: $name").append(i).append(") {\n")
+                .append("    ...RepoStatsFields\n")
+                .append("  }\n");
+        }
+
+        String query = "query RepoStatsBatch(" + parameters + ") {\n" + aliases + RATE_LIMIT_SELECTION + "}\n" + GraphqlDocuments.REPO_STATS_FIELDS;
+
+        Answer batch = query(query, variables, error -> alias(error) != null);
+
+        Map<String, Boolean> failed = new HashMap<>();
+        for (GraphQLError error : batch.errors()) {
+            failed.merge(alias(error), !"NOT_FOUND".equals(type(error)), Boolean::logicalOr);
+        }
+
+        Map<String, JsonValue> answer = new LinkedHashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            if (!failed.getOrDefault("repo" + i, false)) {
+                answer.put(names.get(i), batch.data().getOrDefault("repo" + i, JsonValue.NULL));
+            }
+        }
+
+        return answer;
+    }
+
+    /**
+     * A page of the active repositories of an organization, with their {@code RepoStatsFields}.
+     */
+    public JsonObject getOrgRepoStats(String login, int first, String after, Map<String, Boolean> includes) throws ExecutionException, InterruptedException {
+        Map<String, Object> variables = pageVariables(login, first, after);
+        variables.putAll(includes);
+        return query(GraphqlDocuments.ORG_REPO_STATS, variables);
+    }
+
+    /**
+     * A page of the archived repositories of an organization, with only their name and timestamps.
+     */
+    public JsonObject getOrgArchivedRepos(String login, int first, String after) throws ExecutionException, InterruptedException {
+        return query(GraphqlDocuments.ORG_ARCHIVED_REPOS, pageVariables(login, first, after));
+    }
+
+    private static Map<String, Object> pageVariables(String login, int first, String after) {
+        Map<String, Object> answer = new HashMap<>();
+        answer.put("login", login);
+        answer.put("first", first);
+        answer.put("after", after);
+        return answer;
+    }
+
+    /**
+     * @return the {@code repoN} alias an error is about, or {@code null} when it is about the query as a whole
+     */
+    private static String alias(GraphQLError error) {
+        Object[] path = error.getPath();
+        if (path == null || path.length == 0 || !(path[0] instanceof String first)) {
+            return null;
+        }
+
+        return BATCH_ALIAS.matcher(first).matches() ? first : null;
+    }
+
+    /**
+     * @return GitHub's error {@code type}, i.e.: {@code NOT_FOUND}, a field outside the GraphQL spec
+     */
+    private static String type(GraphQLError error) {
+        Map<String, Object> otherFields = error.getOtherFields();
+        return otherFields == null ? null : String.valueOf(otherFields.get("type"));
+    }
+
+    private JsonObject query(String query, Map<String, Object> variables) throws ExecutionException, InterruptedException {
+        return query(query, variables, error -> false).data();
+    }
+
+    /**
+     * Executes a query, reusing a {@link GitHubResponseCache} entry while it is inside the TTL. GitHub GraphQL has no
+     * conditional requests, so expired entries are simply fetched again. Only answers without errors are cached, keyed by
+     * the token that fetched them.
+     *
+     * @param tolerated errors returned alongside the data rather than failing the query
+     */
+    private Answer query(String query, Map<String, Object> variables, Predicate<GraphQLError> tolerated) throws ExecutionException, InterruptedException {
+        String key = GitHubResponseCache.key("POST", query, new TreeMap<>(variables).toString(), "Bearer " + github.oauth());
+
+        Optional<GitHubResponseCache.CachedResponse> cached = cache.hasTtl() ? cache.get(key) : Optional.empty();
+        if (cached.isPresent() && cache.isFresh(cached.get())) {
+            try (JsonReader reader = Json.createReader(new ByteArrayInputStream(cached.get().body()))) {
+                return new Answer(reader.readObject(), List.of());
+            }
+        }
+
+        Response response = execute(query, variables);
+        List<GraphQLError> errors = response.hasError() ? response.getErrors() : List.of();
+        if (!errors.stream().allMatch(tolerated) || response.getData() == null) {
+            throw new IllegalStateException("GraphQL errors: " + errors);
+        }
+
+        JsonObject data = response.getData();
+        if (cache.hasTtl() && errors.isEmpty()) {
+            cache.put(key, new GitHubResponseCache.CachedResponse(200, Map.of(), Instant.now(), data.toString().getBytes(StandardCharsets.UTF_8)));
         }
+
+        return new Answer(data, errors);
     }
 
-    public JsonObject getRepoStats(String owner, String name) throws ExecutionException, InterruptedException {
-        Response response = client.executeSync(repoStatsQuery, Map.of("owner", owner, "name", name));
-        if (response.hasError()) {
-            throw new IllegalStateException("GraphQL errors: " + response.getErrors());
+    /**
+     * Retries a response that GitHub rate limited, either as a 403/429 or a {@code RATE_LIMITED} error, reading the
+     * status and the {@code Retry-After} and {@code X-RateLimit-*} headers from the transport as
+     * {@link ScheduledGitHubConnector} does for REST. A secondary limit may come with neither header, so it is also
+     * told by its message, whether in an error or in a body the client could not read as a response. Anything else the
+     * client could not read is thrown.
+     */
+    private Response execute(String query, Map<String, Object> variables) throws ExecutionException, InterruptedException {
+        int attempt = 0;
+        while (true) {
+            Response response;
+
+            scheduler.acquire(GitHubRequestScheduler.GRAPHQL);
+            try {
+                response = client.executeSync(query, variables);
+            } catch (InvalidResponseException e) {
+                // a 403 whose body is GitHub's {"message": ...} rather than a GraphQL response
+                if (!GitHubRequestScheduler.isSecondaryRateLimit(e.getMessage()) || attempt >= scheduler.maxRetries()) {
+                    throw e;
+                }
+
+                scheduler.pause(GitHubRequestScheduler.GRAPHQL, scheduler.backoff(attempt, secondaryWait()));
+                attempt++;
+                continue;
+            } finally {
+                scheduler.release();
+            }
+
+            recordRateLimit(response);
+            if (!isRateLimited(response) || attempt >= scheduler.maxRetries()) {
+                return response;
+            }
+
+            scheduler.pause(GitHubRequestScheduler.GRAPHQL, scheduler.backoff(attempt, retryAfter(response)));
+            attempt++;
+        }
+    }
+
+    private static boolean isRateLimited(Response response) {
+        Integer status = response.getStatusCode();
+        if (status != null && status == 429) {
+            return true;
         }
 
-        return response.getData();
+        if (status != null && status == 403 && (header(response, "Retry-After") != null || "0".equals(header(response, "X-RateLimit-Remaining")))) {
+            return true;
+        }
+
+        return isSecondaryRateLimit(response)
+            || response.hasError() && response.getErrors().stream().anyMatch(error -> "RATE_LIMITED".equals(type(error)));
+    }
+
+    private static boolean isSecondaryRateLimit(Response response) {
+        return response.hasError() && response.getErrors().stream().anyMatch(error -> GitHubRequestScheduler.isSecondaryRateLimit(error.getMessage()));
+    }
+
+    private Duration retryAfter(Response response) {
+        String retryAfter = header(response, "Retry-After");
+        if (retryAfter != null) {
+            return Duration.ofSeconds(Long.parseLong(retryAfter.trim()));
+        }
+
+        return isSecondaryRateLimit(response) ? secondaryWait() : scheduler.untilReset(GitHubRequestScheduler.GRAPHQL);
+    }
+
+    private Duration secondaryWait() {
+        Duration untilReset = scheduler.untilReset(GitHubRequestScheduler.GRAPHQL);
+        return untilReset == null ? GitHubRequestScheduler.SECONDARY_RATE_LIMIT_WAIT : untilReset;
+    }
+
+    private static String header(Response response, String name) {
+        Map<String, List<String>> headers = response.getTransportMeta();
+        if (headers == null) {
+            return null;
+        }
+
+        for (Map.Entry<String, List<String>> current : headers.entrySet()) {
+            if (name.equalsIgnoreCase(current.getKey()) && current.getValue() != null && !current.getValue().isEmpty()) {
+                return current.getValue().getFirst();
+            }
+        }
+
+        return null;
+    }
+
+    private record Answer(JsonObject data, List<GraphQLError> errors) {
+    }
+
+    private void recordRateLimit(Response response) {
+        String remaining = header(response, "X-RateLimit-Remaining");
+        String reset = header(response, "X-RateLimit-Reset");
+        if (remaining != null && reset != null) {
+            scheduler.update(GitHubRequestScheduler.GRAPHQL, Integer.parseInt(remaining.trim()), Instant.ofEpochSecond(Long.parseLong(reset.trim())));
+        }
+
+        JsonObject data = response.getData();
+        if (data == null || !(data.get("rateLimit") instanceof JsonObject rateLimit)) {
+            return;
+        }
+
+        if (rateLimit.containsKey("remaining") && rateLimit.containsKey("resetAt")) {
+            scheduler.update(GitHubRequestScheduler.GRAPHQL, rateLimit.getInt("remaining"), Instant.parse(rateLimit.getString("resetAt")));
+        }
     }
 }
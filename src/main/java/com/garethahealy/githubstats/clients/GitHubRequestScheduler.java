@@ -0,0 +1,165 @@
+package com.garethahealy.githubstats.clients;
+
+import com.garethahealy.githubstats.config.GitHubConfigProperties;
+import com.garethahealy.githubstats.metrics.RunMetrics;
+import jakarta.inject.Singleton;
+import org.jboss.logging.Logger;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Governs every REST and GraphQL call made during a run: caps calls in flight, tracks the rate-limit budget
+ * reported by GitHub per resource, paces calls as the budget runs low and pauses everyone after a 403/429.
+ */
+@Singleton
+public class GitHubRequestScheduler {
+
+    public static final String REST = "core";
+    public static final String GRAPHQL = "graphql";
+
+    /**
+     * How long to back off from a secondary rate limit that came without {@code Retry-After}, as GitHub advises.
+     */
+    public static final Duration SECONDARY_RATE_LIMIT_WAIT = Duration.ofMinutes(1);
+
+    private final Logger logger;
+    private final GitHubConfigProperties.Requests config;
+    private final RunMetrics metrics;
+    private final Semaphore permits;
+    private final Map<String, RateLimit> rateLimits = new ConcurrentHashMap<>();
+    private volatile Instant pausedUntil = Instant.EPOCH;
+
+    public GitHubRequestScheduler(Logger logger, GitHubConfigProperties github, RunMetrics metrics) {
+        this.logger = logger;
+        this.config = github.requests();
+        this.metrics = metrics;
+        this.permits = new Semaphore(Math.max(1, config.maxConcurrency()), true);
+    }
+
+    /**
+     * Waits for the budget of {@code resource} before taking a permit, so a paced or paused caller does not hold one
+     * while others could run. The budget is checked again once the permit is held, in case a pause began meanwhile.
+     */
+    public void acquire(String resource) throws InterruptedException {
+        while (true) {
+            awaitBudget(resource);
+            permits.acquire();
+
+            if (blockedFor(resource, Instant.now()) == null) {
+                rateLimits.computeIfPresent(resource, (key, current) -> current.consume());
+                return;
+            }
+
+            permits.release();
+        }
+    }
+
+    public void release() {
+        permits.release();
+    }
+
+    private void awaitBudget(String resource) throws InterruptedException {
+        Instant now = Instant.now();
+        Duration blocked = blockedFor(resource, now);
+        while (blocked != null) {
+            Thread.sleep(blocked);
+
+            now = Instant.now();
+            blocked = blockedFor(resource, now);
+        }
+
+        RateLimit rateLimit = rateLimits.get(resource);
+        if (rateLimit != null && rateLimit.remaining() < config.paceBelowRemaining() && now.isBefore(rateLimit.reset())) {
+            Thread.sleep(Duration.between(now, rateLimit.reset()).dividedBy(Math.max(1, rateLimit.remaining())));
+        }
+    }
+
+    /**
+     * @return how long to wait while everyone is paused or the budget of {@code resource} is spent, else {@code null}
+     */
+    private Duration blockedFor(String resource, Instant now) {
+        if (now.isBefore(pausedUntil)) {
+            return Duration.between(now, pausedUntil);
+        }
+
+        RateLimit rateLimit = rateLimits.get(resource);
+        if (rateLimit != null && rateLimit.remaining() <= 0 && now.isBefore(rateLimit.reset())) {
+            logger.warnf("RateLimit: %s exhausted, waiting until %s", resource, rateLimit.reset());
+            return Duration.between(now, rateLimit.reset()).plusSeconds(1);
+        }
+
+        return null;
+    }
+
+    public void update(String resource, int remaining, Instant reset) {
+        rateLimits.merge(resource, new RateLimit(remaining, reset), RateLimit::latest);
+        metrics.gauge("rate_limit_remaining", remaining, "resource", resource);
+    }
+
+    public Duration untilReset(String resource) {
+        RateLimit rateLimit = rateLimits.get(resource);
+        if (rateLimit == null || rateLimit.remaining() > 0 || !Instant.now().isBefore(rateLimit.reset())) {
+            return null;
+        }
+
+        return Duration.between(Instant.now(), rateLimit.reset());
+    }
+
+    public Duration backoff(int attempt, Duration retryAfter) {
+        Duration base = retryAfter;
+        if (base == null) {
+            base = config.initialBackoff().multipliedBy(1L << Math.min(attempt, 16));
+            if (base.compareTo(config.maxBackoff()) > 0) {
+                base = config.maxBackoff();
+            }
+        }
+
+        return base.plusMillis(ThreadLocalRandom.current().nextLong(base.toMillis() / 2 + 1));
+    }
+
+    /**
+     * GitHub does not always send {@code Retry-After} or {@code X-RateLimit-Remaining: 0} with a secondary rate limit,
+     * so its message is the only way to tell it from a 403 for missing permissions.
+     */
+    public static boolean isSecondaryRateLimit(String message) {
+        return message != null && message.toLowerCase(Locale.ROOT).contains("secondary rate limit");
+    }
+
+    public void pause(String resource, Duration wait) {
+        Instant until = Instant.now().plus(wait);
+
+        synchronized (this) {
+            if (until.isAfter(pausedUntil)) {
+                pausedUntil = until;
+            }
+        }
+
+        metrics.increment("retries_total", "resource", resource);
+        logger.warnf("RateLimit: %s limited, pausing all requests for %sms", resource, wait.toMillis());
+    }
+
+    public int maxRetries() {
+        return config.maxRetries();
+    }
+
+    private record RateLimit(int remaining, Instant reset) {
+
+        RateLimit consume() {
+            return new RateLimit(remaining - 1, reset);
+        }
+
+        RateLimit latest(RateLimit other) {
+            if (reset.equals(other.reset)) {
+                return remaining <= other.remaining ? this : other;
+            }
+
+            return reset.isAfter(other.reset) ? this : other;
+        }
+    }
+}
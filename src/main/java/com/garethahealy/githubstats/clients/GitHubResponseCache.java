@@ -0,0 +1,250 @@
+package com.garethahealy.githubstats.clients;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.garethahealy.githubstats.config.GitHubConfigProperties;
+import io.quarkus.runtime.annotations.RegisterForReflection;
+import jakarta.annotation.PostConstruct;
+import jakarta.inject.Singleton;
+import org.jboss.logging.Logger;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Disk-backed store for GitHub responses shared by REST ({@link CachingGitHubConnector}) and GraphQL
+ * ({@link GitHubGraphQLClient}). Entries are evicted least-recently-used once {@code github.cache.max-size-mb} is exceeded.
+ */
+@Singleton
+public class GitHubResponseCache {
+
+    private static final String BODY = ".body";
+    private static final String META = ".json";
+
+    private final Logger logger;
+    private final ObjectMapper objectMapper;
+    private final GitHubConfigProperties.Cache config;
+    private final Path directory;
+    private final LinkedHashMap<String, Long> index = new LinkedHashMap<>(16, 0.75f, true);
+    private final Lock[] locks = new Lock[64];
+    private long size;
+
+    public GitHubResponseCache(Logger logger, ObjectMapper objectMapper, GitHubConfigProperties github) {
+        this.logger = logger;
+        this.objectMapper = objectMapper;
+        this.config = github.cache();
+        this.directory = Path.of(config.directory());
+
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    @PostConstruct
+    void loadIndex() throws IOException {
+        if (!config.enabled()) {
+            return;
+        }
+
+        Files.createDirectories(directory);
+
+        List<Path> bodies;
+        try (Stream<Path> files = Files.list(directory)) {
+            bodies = new ArrayList<>(files.filter(path -> path.getFileName().toString().endsWith(BODY)).toList());
+        }
+
+        bodies.sort((left, right) -> lastModified(left).compareTo(lastModified(right)));
+        for (Path body : bodies) {
+            String fileName = body.getFileName().toString();
+            long bodySize = body.toFile().length();
+
+            index.put(fileName.substring(0, fileName.length() - BODY.length()), bodySize);
+            size += bodySize;
+        }
+
+        logger.infof("Response cache: %s entries (%s bytes) in %s", index.size(), size, directory);
+    }
+
+    public boolean enabled() {
+        return config.enabled();
+    }
+
+    public boolean isFresh(CachedResponse response) {
+        return !config.ttl().isZero() && response.storedAt().plus(config.ttl()).isAfter(Instant.now());
+    }
+
+    public boolean hasTtl() {
+        return !config.ttl().isZero();
+    }
+
+    public Optional<CachedResponse> get(String key) {
+        if (!config.enabled()) {
+            return Optional.empty();
+        }
+
+        synchronized (index) {
+            if (index.get(key) == null) {
+                return Optional.empty();
+            }
+        }
+
+        Lock lock = lock(key);
+        lock.lock();
+        try {
+            Path body = directory.resolve(key + BODY);
+            CachedResponse metadata = objectMapper.readValue(directory.resolve(key + META).toFile(), CachedResponse.class);
+            Files.setLastModifiedTime(body, FileTime.from(Instant.now()));
+
+            return Optional.of(metadata.withBody(Files.readAllBytes(body)));
+        } catch (IOException e) {
+            logger.warnf("Response cache: dropping unreadable entry %s because: %s", key, e.getMessage());
+            unindex(key);
+            delete(key);
+            return Optional.empty();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Entries are written and read under a lock per key, so unrelated keys do not wait on each other's disk I/O; only
+     * the LRU index is shared.
+     */
+    public void put(String key, CachedResponse response) {
+        if (!config.enabled()) {
+            return;
+        }
+
+        List<String> evicted;
+
+        Lock lock = lock(key);
+        lock.lock();
+        try {
+            write(directory.resolve(key + BODY), response.body());
+            write(directory.resolve(key + META), objectMapper.writeValueAsBytes(response));
+
+            synchronized (index) {
+                Long previous = index.put(key, (long) response.body().length);
+                size += response.body().length - (previous == null ? 0 : previous);
+
+                evicted = overflow();
+            }
+        } catch (IOException e) {
+            logger.warnf("Response cache: failed to store %s because: %s", key, e.getMessage());
+            return;
+        } finally {
+            lock.unlock();
+        }
+
+        for (String current : evicted) {
+            Lock evicting = lock(current);
+            evicting.lock();
+            try {
+                delete(current);
+            } finally {
+                evicting.unlock();
+            }
+        }
+    }
+
+    private Lock lock(String key) {
+        return locks[Math.floorMod(key.hashCode(), locks.length)];
+    }
+
+    private void write(Path target, byte[] content) throws IOException {
+        Path temp = Files.createTempFile(directory, "entry", ".tmp");
+        Files.write(temp, content);
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @return the least-recently-used keys taken out of the index to bring it under {@code github.cache.max-size-mb}
+     */
+    private List<String> overflow() {
+        List<String> answer = new ArrayList<>();
+        long maxSize = config.maxSizeMb() * 1024L * 1024L;
+        while (size > maxSize && !index.isEmpty()) {
+            String eldest = index.keySet().iterator().next();
+            size -= index.remove(eldest);
+            answer.add(eldest);
+        }
+
+        return answer;
+    }
+
+    private void unindex(String key) {
+        synchronized (index) {
+            Long removed = index.remove(key);
+            if (removed != null) {
+                size -= removed;
+            }
+        }
+    }
+
+    private void delete(String key) {
+        try {
+            Files.deleteIfExists(directory.resolve(key + BODY));
+            Files.deleteIfExists(directory.resolve(key + META));
+        } catch (IOException e) {
+            logger.warnf("Response cache: failed to evict %s because: %s", key, e.getMessage());
+        }
+    }
+
+    private static FileTime lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path);
+        } catch (IOException e) {
+            return FileTime.from(Instant.EPOCH);
+        }
+    }
+
+    public static String key(String... parts) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(String.join("\n", parts).getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @RegisterForReflection
+    public record CachedResponse(int statusCode, Map<String, List<String>> headers, Instant storedAt, @JsonIgnore byte[] body) {
+
+        public CachedResponse withBody(byte[] content) {
+            return new CachedResponse(statusCode, headers, storedAt, content);
+        }
+
+        public CachedResponse revalidated(Map<String, List<String>> latestHeaders) {
+            Map<String, List<String>> merged = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            merged.putAll(headers);
+            merged.putAll(latestHeaders);
+
+            return new CachedResponse(statusCode, merged, Instant.now(), body);
+        }
+
+        public String header(String name) {
+            return headers.entrySet().stream()
+                .filter(entry -> entry.getKey() != null && entry.getKey().equalsIgnoreCase(name))
+                .flatMap(entry -> entry.getValue().stream())
+                .findFirst()
+                .orElse(null);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.garethahealy.githubstats.clients;
+
+import com.garethahealy.githubstats.config.GitHubConfigProperties;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.json.Json;
+import jakarta.json.JsonReader;
+import org.kohsuke.github.GitHub;
+import org.kohsuke.github.HttpException;
+import org.kohsuke.github.connector.GitHubConnector;
+import org.kohsuke.github.connector.GitHubConnectorRequest;
+import org.kohsuke.github.connector.GitHubConnectorResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URL;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Raw REST calls kohsuke has no API for, sent through the same {@link GitHubConnector} chain (scheduler, cache) as the
+ * {@link GitHub} client. Authentication is added here because kohsuke only adds it to its own requests.
+ */
+@ApplicationScoped
+public class GitHubRestClient {
+
+    private static final Pattern LAST_PAGE = Pattern.compile("<([^>]*)>\\s*;\\s*rel=\"last\"");
+    private static final Pattern PAGE_PARAMETER = Pattern.compile("[?&]page=(\\d+)");
+
+    private final GitHub client;
+    private final GitHubConnector connector;
+    private final GitHubConfigProperties github;
+
+    public GitHubRestClient(GitHub client, GitHubConnector connector, GitHubConfigProperties github) {
+        this.client = client;
+        this.connector = connector;
+        this.github = github;
+    }
+
+    /**
+     * Counts the items of a paged list endpoint with a single {@code per_page=1} request: the page number of the
+     * {@code Link: rel="last"} URL is the total. Without a last link the list fits in the one page returned.
+     */
+    public int count(String path) throws IOException {
+        try (GitHubConnectorResponse response = send(path + (path.contains("?") ? "&" : "?") + "per_page=1")) {
+            if (response.statusCode() == 204) {
+                return 0;
+            }
+
+            if (response.statusCode() != 200) {
+                throw new HttpException(response);
+            }
+
+            Integer lastPage = lastPage(response.header("Link"));
+            if (lastPage != null) {
+                return lastPage;
+            }
+
+            try (InputStream body = response.bodyStream(); JsonReader reader = Json.createReader(body)) {
+                return reader.readArray().size();
+            }
+        }
+    }
+
+    /**
+     * Reads a single object, such as {@link org.kohsuke.github.GHRepositoryCloneTraffic}, with kohsuke's own mapping.
+     * For endpoints addressed by owner/name, so no {@link org.kohsuke.github.GHRepository} has to be fetched first.
+     */
+    public <T> T get(String path, Class<T> type) throws IOException {
+        try (GitHubConnectorResponse response = send(path)) {
+            if (response.statusCode() != 200) {
+                throw new HttpException(response);
+            }
+
+            try (InputStream body = response.bodyStream()) {
+                return GitHub.getMappingObjectReader().forType(type).readValue(body);
+            }
+        }
+    }
+
+    private GitHubConnectorResponse send(String pathAndQuery) throws IOException {
+        Map<String, List<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        headers.put("Accept", List.of("application/vnd.github+json"));
+        headers.put("Authorization", List.of("token " + github.oauth()));
+
+        URL url = URI.create(client.getApiUrl() + pathAndQuery).toURL();
+        return connector.send(new GetRequest(url, headers));
+    }
+
+    static Integer lastPage(String link) {
+        if (link == null) {
+            return null;
+        }
+
+        Matcher last = LAST_PAGE.matcher(link);
+        if (!last.find()) {
+            return null;
+        }
+
+        Matcher page = PAGE_PARAMETER.matcher(last.group(1));
+        return page.find() ? Integer.valueOf(page.group(1)) : null;
+    }
+
+    private record GetRequest(URL url, Map<String, List<String>> allHeaders) implements GitHubConnectorRequest {
+
+        @Override
+        public String method() {
+            return "GET";
+        }
+
+        @Override
+        public String header(String name) {
+            List<String> values = allHeaders.get(name);
+            return values == null || values.isEmpty() ? null : String.join(",", values);
+        }
+
+        @Override
+        public String contentType() {
+            return null;
+        }
+
+        @Override
+        public InputStream body() {
+            return null;
+        }
+
+        @Override
+        public boolean hasBody() {
+            return false;
+        }
+    }
+}
@@ -1,13 +1,17 @@
 package com.garethahealy.githubstats.clients;
 
 import com.garethahealy.githubstats.config.GitHubConfigProperties;
+import com.garethahealy.githubstats.metrics.RunMetrics;
 import io.quarkus.runtime.Startup;
 import jakarta.enterprise.inject.Produces;
 import jakarta.inject.Singleton;
 import org.jboss.logging.Logger;
 import org.kohsuke.github.GHRateLimit;
 import org.kohsuke.github.GitHub;
+import org.kohsuke.github.GitHubAbuseLimitHandler;
 import org.kohsuke.github.GitHubBuilder;
+import org.kohsuke.github.GitHubRateLimitHandler;
+import org.kohsuke.github.connector.GitHubConnector;
 
 import java.io.IOException;
 
@@ -17,16 +21,38 @@ public class GitHubRestClientConfig {
 
     private final Logger logger;
     private final GitHubConfigProperties github;
+    private final GitHubRequestScheduler scheduler;
+    private final GitHubResponseCache cache;
+    private final RunMetrics metrics;
 
-    public GitHubRestClientConfig(Logger logger, GitHubConfigProperties github) {
+    public GitHubRestClientConfig(Logger logger, GitHubConfigProperties github, GitHubRequestScheduler scheduler, GitHubResponseCache cache, RunMetrics metrics) {
         this.logger = logger;
         this.github = github;
+        this.scheduler = scheduler;
+        this.cache = cache;
+        this.metrics = metrics;
     }
 
     @Singleton
     @Produces
-    public GitHub getClient() throws IOException {
-        return getClientVia(new GitHubBuilder().withOAuthToken(github.oauth(), github.login()));
+    public GitHubConnector getConnector() {
+        GitHubConnector connector = new ScheduledGitHubConnector(GitHubConnector.DEFAULT, scheduler, metrics);
+        if (cache.enabled()) {
+            connector = new CachingGitHubConnector(connector, cache);
+        }
+
+        return connector;
+    }
+
+    @Singleton
+    @Produces
+    public GitHub getClient(GitHubConnector connector) throws IOException {
+        return getClientVia(new GitHubBuilder()
+            .withEndpoint(github.apiUrl())
+            .withOAuthToken(github.oauth(), github.login())
+            .withConnector(connector)
+            .withRateLimitHandler(GitHubRateLimitHandler.FAIL)
+            .withAbuseLimitHandler(GitHubAbuseLimitHandler.FAIL));
     }
 
     private GitHub getClientVia(GitHubBuilder builder) throws IOException {
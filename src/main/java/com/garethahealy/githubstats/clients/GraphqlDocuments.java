@@ -0,0 +1,30 @@
+package com.garethahealy.githubstats.clients;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+/**
+ * The GraphQL query documents, read once when the class initialises. The native image initialises it at build time
+ * (see {@code quarkus.native.additional-build-args}), so the documents are part of the image and never read at runtime.
+ */
+final class GraphqlDocuments {
+
+    static final String REPO_STATS_FIELDS = read("/graphql/queries/RepoStatsFields.graphql");
+    static final String REPO_STATS = read("/graphql/queries/GetRepoStats.graphql") + REPO_STATS_FIELDS;
+    static final String ORG_REPO_STATS = read("/graphql/queries/GetOrgRepoStats.graphql") + REPO_STATS_FIELDS;
+    static final String ORG_ARCHIVED_REPOS = read("/graphql/queries/GetOrgArchivedRepos.graphql");
+
+    private GraphqlDocuments() {
+    }
+
+    private static String read(String path) {
+        try (InputStream in = Objects.requireNonNull(GraphqlDocuments.class.getResourceAsStream(path), "Missing classpath resource: " + path)) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
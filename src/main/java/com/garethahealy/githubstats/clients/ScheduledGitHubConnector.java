@@ -0,0 +1,198 @@
+package com.garethahealy.githubstats.clients;
+
+import com.garethahealy.githubstats.metrics.RunMetrics;
+import org.kohsuke.github.connector.GitHubConnector;
+import org.kohsuke.github.connector.GitHubConnectorRequest;
+import org.kohsuke.github.connector.GitHubConnectorResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Routes kohsuke REST calls through the {@link GitHubRequestScheduler}, feeding it the {@code X-RateLimit-*} headers
+ * and retrying 429s and rate-limit 403s. A 403 without rate-limit headers is a secondary limit when its message says so,
+ * and is retried after {@link GitHubRequestScheduler#SECONDARY_RATE_LIMIT_WAIT}; other 403s (e.g. traffic without push
+ * access) are returned with their body.
+ */
+public class ScheduledGitHubConnector implements GitHubConnector {
+
+    private final GitHubConnector delegate;
+    private final GitHubRequestScheduler scheduler;
+    private final RunMetrics metrics;
+
+    public ScheduledGitHubConnector(GitHubConnector delegate, GitHubRequestScheduler scheduler, RunMetrics metrics) {
+        this.delegate = delegate;
+        this.scheduler = scheduler;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public GitHubConnectorResponse send(GitHubConnectorRequest request) throws IOException {
+        int attempt = 0;
+        while (true) {
+            GitHubConnectorResponse response;
+
+            acquire();
+            try {
+                response = delegate.send(request);
+            } finally {
+                scheduler.release();
+            }
+
+            String resource = headerOrDefault(response, "X-RateLimit-Resource", GitHubRequestScheduler.REST);
+            recordResponse(resource, response);
+            String remaining = response.header("X-RateLimit-Remaining");
+            String reset = response.header("X-RateLimit-Reset");
+            if (remaining != null && reset != null) {
+                scheduler.update(resource, Integer.parseInt(remaining), Instant.ofEpochSecond(Long.parseLong(reset)));
+            }
+
+            boolean rateLimited = isRateLimited(response, remaining);
+            boolean secondary = false;
+            if (!rateLimited && response.statusCode() == 403) {
+                BufferedResponse buffered = new BufferedResponse(response);
+                secondary = GitHubRequestScheduler.isSecondaryRateLimit(buffered.text());
+                response = buffered;
+            }
+
+            if (!(rateLimited || secondary) || attempt >= scheduler.maxRetries()) {
+                return new CountingResponse(response, resource);
+            }
+
+            response.close();
+            scheduler.pause(resource, scheduler.backoff(attempt, retryAfter(response, resource, secondary)));
+            attempt++;
+        }
+    }
+
+    private void acquire() throws InterruptedIOException {
+        try {
+            scheduler.acquire(GitHubRequestScheduler.REST);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a GitHub request slot");
+        }
+    }
+
+    private void recordResponse(String resource, GitHubConnectorResponse response) {
+        metrics.increment("http_responses_total", "resource", resource, "status", String.valueOf(response.statusCode()));
+    }
+
+    private boolean isRateLimited(GitHubConnectorResponse response, String remaining) {
+        if (response.statusCode() == 429) {
+            return true;
+        }
+
+        return response.statusCode() == 403 && (response.header("Retry-After") != null || "0".equals(remaining));
+    }
+
+    private Duration retryAfter(GitHubConnectorResponse response, String resource, boolean secondary) {
+        String retryAfter = response.header("Retry-After");
+        if (retryAfter != null) {
+            return Duration.ofSeconds(Long.parseLong(retryAfter.trim()));
+        }
+
+        Duration untilReset = scheduler.untilReset(resource);
+        if (untilReset == null && secondary) {
+            return GitHubRequestScheduler.SECONDARY_RATE_LIMIT_WAIT;
+        }
+
+        return untilReset;
+    }
+
+    private String headerOrDefault(GitHubConnectorResponse response, String name, String defaultValue) {
+        String value = response.header(name);
+        return value == null ? defaultValue : value;
+    }
+
+    /**
+     * Holds the body of a 403 that carried no rate-limit headers, so its message can be read for a secondary limit and
+     * still be handed to kohsuke when it turns out to be about permissions.
+     */
+    private static final class BufferedResponse extends GitHubConnectorResponse {
+
+        private final byte[] body;
+
+        private BufferedResponse(GitHubConnectorResponse response) throws IOException {
+            super(response.request(), response.statusCode(), response.allHeaders());
+            try (response; InputStream in = response.bodyStream()) {
+                this.body = in == null ? new byte[0] : in.readAllBytes();
+            }
+        }
+
+        private String text() {
+            return new String(body, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public InputStream bodyStream() {
+            return new ByteArrayInputStream(body);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * Counts the body bytes kohsuke actually reads, as chunked and gzip responses carry no usable {@code Content-Length}.
+     */
+    private final class CountingResponse extends GitHubConnectorResponse {
+
+        private final GitHubConnectorResponse response;
+        private final String resource;
+        private final AtomicLong read = new AtomicLong();
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private CountingResponse(GitHubConnectorResponse response, String resource) {
+            super(response.request(), response.statusCode(), response.allHeaders());
+            this.response = response;
+            this.resource = resource;
+        }
+
+        @Override
+        public InputStream bodyStream() throws IOException {
+            return new FilterInputStream(response.bodyStream()) {
+
+                @Override
+                public int read() throws IOException {
+                    int answer = super.read();
+                    if (answer >= 0) {
+                        read.incrementAndGet();
+                    }
+
+                    return answer;
+                }
+
+                @Override
+                public int read(byte[] buffer, int offset, int length) throws IOException {
+                    int answer = super.read(buffer, offset, length);
+                    if (answer > 0) {
+                        read.addAndGet(answer);
+                    }
+
+                    return answer;
+                }
+            };
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                response.close();
+            } finally {
+                if (closed.compareAndSet(false, true)) {
+                    metrics.add("response_bytes_total", read.get(), "resource", resource);
+                }
+            }
+        }
+    }
+}
@@ -1,30 +1,38 @@
 package com.garethahealy.githubstats.commands;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.garethahealy.githubstats.mapping.GraphqlRepositoryToCsvMapper;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.garethahealy.githubstats.mapping.RepositoryFields;
+import com.garethahealy.githubstats.metrics.RunMetrics;
 import com.garethahealy.githubstats.model.csv.Repository;
-import com.garethahealy.githubstats.processor.ConfigYamlProcessor;
-import com.garethahealy.githubstats.services.*;
+import com.garethahealy.githubstats.model.history.TrafficDay;
+import com.garethahealy.githubstats.model.state.CheckpointEntry;
+import com.garethahealy.githubstats.model.state.CollectionState;
+import com.garethahealy.githubstats.output.CheckpointJournal;
+import com.garethahealy.githubstats.output.OutputFormat;
+import com.garethahealy.githubstats.output.RowWriter;
+import com.garethahealy.githubstats.output.SnapshotStore;
+import com.garethahealy.githubstats.output.StreamingOutputWriter;
+import com.garethahealy.githubstats.services.CollectStatsService;
+import com.garethahealy.githubstats.services.CollectionStateService;
+import com.garethahealy.githubstats.services.GitHubOrganizationLookupService;
 import jakarta.inject.Inject;
-import org.apache.commons.csv.CSVFormat;
-import org.apache.commons.csv.CSVPrinter;
 import org.jboss.logging.Logger;
 import org.kohsuke.github.GHOrganization;
-import org.kohsuke.github.GHRepository;
-import org.kohsuke.github.GHRepositoryCloneTraffic;
-import org.kohsuke.github.GHRepositoryViewTraffic;
 import picocli.CommandLine;
 
-import java.io.File;
 import java.io.IOException;
-import java.io.Writer;
-import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -33,115 +41,334 @@ import java.util.concurrent.Future;
 @CommandLine.Command(name = "collect-stats", mixinStandardHelpOptions = true, description = "Collect the stats in CSV format")
 public class CollectStatsCommand implements Runnable {
 
-    @CommandLine.Option(names = {"-org", "--organization"}, description = "GitHub organization", required = true)
-    String organization;
+    public enum OutputLayout {
+        PER_ORG,
+        COMBINED
+    }
+
+    @CommandLine.Option(names = {"-org", "--organization"}, split = ",", description = "GitHub organization; repeat or comma-separate to collect several in one run")
+    List<String> organizations;
+
+    @CommandLine.Option(names = {"--organization-file"}, description = "File listing GitHub organizations, one per line; blank lines and lines starting with # are ignored")
+    String organizationFile;
 
-    @CommandLine.Option(names = {"-l", "--repository-limit"}, description = "Max repositories to list and process; 0 means no limit (all org repos)", defaultValue = "0")
+    @CommandLine.Option(names = {"-l", "--repository-limit"}, description = "Max repositories to list and process per organization, taken in listing order: as GitHub lists them for PER_REPO, active ones before archived ones for ORG_SWEEP; 0 means no limit (all org repos)", defaultValue = "0")
     int repoLimit;
 
     @CommandLine.Option(names = {"-o", "--csv-output"}, description = "Output location for CSV", defaultValue = "github-output.csv")
     String output;
 
-    @Inject
-    Logger logger;
+    @CommandLine.Option(names = {"--output-format"}, split = ",", description = "Output formats, any of: ${COMPLETION-CANDIDATES}. ARROW writes typed columns to an Arrow IPC file at --arrow-output, and is JVM only", defaultValue = "CSV")
+    List<OutputFormat> outputFormats;
 
-    @Inject
-    GitHubOrganizationLookupService gitHubOrganizationLookupService;
+    @CommandLine.Option(names = {"--arrow-output"}, description = "Output location for the ARROW format; defaults to the CSV output with a .arrow extension")
+    String arrowOutput;
+
+    @CommandLine.Option(names = {"--output-layout"}, description = "With several organizations, one of: ${COMPLETION-CANDIDATES}. PER_ORG writes a file per organization, named after the output with the organization appended; COMBINED writes them all to the output", defaultValue = "PER_ORG")
+    OutputLayout outputLayout;
+
+    @CommandLine.Option(names = {"--fields"}, split = ",", description = "Columns to output, any of: ${COMPLETION-CANDIDATES}. Only what the chosen columns need is fetched; RepoName is always output. Defaults to every column")
+    List<Repository.Headers> fields;
+
+    @CommandLine.Option(names = {"--graphql-batch-size"}, description = "Repositories fetched per GraphQL request; 1 sends one request per repository", defaultValue = "25")
+    int graphqlBatchSize;
+
+    @CommandLine.Option(names = {"--engine"}, description = "Collection engine, one of: ${COMPLETION-CANDIDATES}. ORG_SWEEP lists repositories and their stats together via paged GraphQL, active repositories in name order and then archived ones", defaultValue = "PER_REPO")
+    CollectStatsService.Engine engine;
+
+    @CommandLine.Option(names = {"--output-order"}, description = "Row order in the CSV, one of: ${COMPLETION-CANDIDATES}. COMPLETION writes rows as repositories finish; ORG keeps the listing order, holding at most 256 finished rows behind a slow repository", defaultValue = "ORG")
+    StreamingOutputWriter.Order outputOrder;
+
+    @CommandLine.Option(names = {"--incremental"}, description = "Only re-collect repositories pushed or updated since the previous run; other rows are carried forward from --state-file", defaultValue = "false")
+    boolean incremental;
+
+    @CommandLine.Option(names = {"--state-file"}, description = "State kept between --incremental runs; defaults to the CSV output with a .state.json suffix")
+    String stateFile;
+
+    @CommandLine.Option(names = {"--refresh-traffic"}, negatable = true, description = "Re-fetch clone/view traffic for rows carried forward by --incremental", defaultValue = "true")
+    boolean refreshTraffic;
+
+    @CommandLine.Option(names = {"--resume"}, description = "Continue a run that died part way: repositories already in --journal-file are not collected again", defaultValue = "false")
+    boolean resume;
+
+    @CommandLine.Option(names = {"--journal-file"}, description = "Checkpoint journal of completed rows, removed once the run succeeds; defaults to the CSV output with a .journal.jsonl suffix")
+    String journalFile;
+
+    @CommandLine.Option(names = {"--history-dir"}, description = "Also append this run to the snapshot history in this directory, for the history command")
+    String historyDir;
+
+    @CommandLine.Option(names = {"--metrics-output"}, description = "Also write the run metrics (call latencies, retries, rate limits) to this file")
+    String metricsOutput;
+
+    @CommandLine.Option(names = {"--metrics-format"}, description = "Format of --metrics-output, one of: ${COMPLETION-CANDIDATES}", defaultValue = "PROMETHEUS")
+    RunMetrics.Format metricsFormat;
 
     @Inject
-    GitHubTrafficLookupService gitHubTrafficLookupService;
+    Logger logger;
 
     @Inject
-    GitHubContributorsLookupService gitHubContributorsLookupService;
+    GitHubOrganizationLookupService gitHubOrganizationLookupService;
 
     @Inject
-    ConfigYamlProcessor configYamlProcessor;
+    CollectStatsService collectStatsService;
 
     @Inject
-    GitHubRepositoryStatsService gitHubRepositoryStatsService;
+    CollectionStateService collectionStateService;
 
     @Inject
-    GitHubConfigYamlService gitHubConfigYamlService;
+    RunMetrics metrics;
 
     @Inject
-    GraphqlRepositoryToCsvMapper graphqlRepositoryToCsvMapper;
+    ObjectMapper objectMapper;
 
     @Override
     public void run() {
+        if (graphqlBatchSize < 1) {
+            throw new IllegalArgumentException("--graphql-batch-size must be at least 1");
+        }
+
+        if (fields != null && historyDir != null) {
+            throw new IllegalArgumentException("--fields cannot be used with --history-dir, which records every column");
+        }
+
         try {
-            Path outputPath = Path.of(output);
-            if (!Files.exists(outputPath)) {
-                Files.createFile(outputPath);
+            RepositoryFields selected = fields == null ? RepositoryFields.all() : RepositoryFields.of(fields);
+            List<String> orgs = organizations();
+            boolean several = orgs.size() > 1;
+            boolean combined = several && outputLayout == OutputLayout.COMBINED;
+            Map<OutputFormat, Path> outputs = outputs();
+
+            Map<String, Future<Map<OutputFormat, Path>>> runs = new LinkedHashMap<>();
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (String current : orgs) {
+                    Map<OutputFormat, Path> files = new EnumMap<>(OutputFormat.class);
+                    outputs.forEach((format, path) -> {
+                        Path orgPath = several ? perOrganization(path, current) : path;
+                        files.put(format, combined ? Path.of(orgPath + ".part") : orgPath);
+                    });
+
+                    Path orgOutput = several ? perOrganization(Path.of(output), current) : Path.of(output);
+                    Path statePath = stateFile == null ? Path.of(orgOutput + ".state.json") : perOrganization(Path.of(stateFile), several ? current : null);
+                    Path journalPath = journalFile == null ? Path.of(orgOutput + ".journal.jsonl") : perOrganization(Path.of(journalFile), several ? current : null);
+
+                    runs.put(current, executor.submit(() -> collect(current, files, statePath, journalPath, combined, selected)));
+                }
             }
 
+            Map<OutputFormat, List<Path>> parts = new EnumMap<>(OutputFormat.class);
+            List<Throwable> failures = new ArrayList<>();
+            for (Map.Entry<String, Future<Map<OutputFormat, Path>>> current : runs.entrySet()) {
+                try {
+                    current.getValue().get().forEach((format, path) -> parts.computeIfAbsent(format, key -> new ArrayList<>()).add(path));
+                } catch (ExecutionException e) {
+                    logger.errorf("Failed to collect %s because: %s", current.getKey(), e.getCause().getMessage());
+                    failures.add(e.getCause());
+                }
+            }
+
+            if (!failures.isEmpty()) {
+                if (!several) {
+                    throw new RuntimeException(failures.getFirst());
+                }
+
+                RuntimeException answer = new RuntimeException("Failed to collect " + failures.size() + " of " + orgs.size() + " organizations", failures.getFirst());
+                failures.stream().skip(1).forEach(answer::addSuppressed);
+                throw answer;
+            }
+
+            if (combined) {
+                for (Map.Entry<OutputFormat, Path> current : outputs.entrySet()) {
+                    current.getKey().combine(parts.get(current.getKey()), current.getValue(), selected);
+                    for (Path part : parts.get(current.getKey())) {
+                        Files.deleteIfExists(part);
+                    }
+
+                    logger.infof("Output written to %s", current.getValue());
+                }
+            }
+        } catch (IOException | InterruptedException | IllegalStateException e) {
+            throw new RuntimeException(e);
+        } finally {
+            reportMetrics();
+        }
+    }
+
+    /**
+     * @return the files written for {@code organization}
+     */
+    private Map<OutputFormat, Path> collect(String organization, Map<OutputFormat, Path> files, Path statePath, Path journalPath, boolean combined, RepositoryFields fields) throws IOException, ExecutionException, InterruptedException {
+        try {
             GHOrganization org = gitHubOrganizationLookupService.getOrganization(organization);
-            List<GHRepository> repos = gitHubOrganizationLookupService.getRepositories(org, repoLimit);
 
-            logger.infof("Found %s repos in %s", repos.size(), org.getName());
+            CollectionState previousState = incremental ? collectionStateService.load(statePath, org.getLogin(), fields) : null;
+
+            Map<String, CheckpointEntry> journaled = Map.of();
+            if (resume) {
+                journaled = CheckpointJournal.read(journalPath, org.getLogin(), objectMapper);
+                logger.infof("Resuming: %s repos already completed in %s", journaled.size(), journalPath);
+            }
 
-            List<Repository> repositories = collect(org, repos);
-            write(repositories, outputPath.toFile());
+            SnapshotStore history = historyDir == null ? null : new SnapshotStore(Path.of(historyDir), objectMapper);
+            Map<String, CollectionState.RepositoryState> collectedState = new ConcurrentHashMap<>();
+            try (CheckpointJournal journal = new CheckpointJournal(journalPath, org.getLogin(), objectMapper, resume);
+                 StreamingOutputWriter writer = new StreamingOutputWriter(open(files, org.getLogin(), combined, fields, history), outputOrder, StreamingOutputWriter.DEFAULT_CAPACITY)) {
+                CollectStatsService.Request request = new CollectStatsService.Request(org, repoLimit, graphqlBatchSize, engine, fields, refreshTraffic, previousState, journaled, Duration.ZERO);
+                collectStatsService.collect(request, new CollectStatsService.Sink() {
+                    @Override
+                    public void completed(int sequence, CheckpointEntry entry) throws IOException, InterruptedException {
+                        writer.write(sequence, entry.row());
+                        journal.append(entry);
+                        recordState(collectedState, entry);
+                    }
+
+                    // already in the journal, which --resume appends to, so only the output and state need the row
+                    @Override
+                    public void restored(int sequence, CheckpointEntry entry) throws IOException, InterruptedException {
+                        logger.infof("Restoring from journal: %s", entry.name());
+                        writer.write(sequence, entry.row());
+                        recordState(collectedState, entry);
+                    }
+
+                    @Override
+                    public void failed(int sequence) throws InterruptedException {
+                        writer.skip(sequence);
+                    }
+
+                    @Override
+                    public void traffic(String name, List<TrafficDay> days) throws IOException {
+                        if (history != null) {
+                            history.mergeTraffic(org.getLogin(), name, days);
+                        }
+                    }
+                });
+            }
 
-            logger.infof("Output written to %s", output);
+            if (incremental) {
+                collectionStateService.save(statePath, new CollectionState(org.getLogin(), Instant.now(), fields.isAll() ? null : fields.headers(), collectedState));
+                logger.infof("State written to %s", statePath);
+            }
+
+            Files.deleteIfExists(journalPath);
+            if (!combined) {
+                files.values().forEach(file -> logger.infof("Output written to %s", file));
+            }
+
+            if (historyDir != null) {
+                logger.infof("History appended to %s", historyDir);
+            }
+
+            return files;
         } catch (IOException | InterruptedException | ExecutionException | IllegalStateException e) {
-            throw new RuntimeException(e);
+            if (Files.exists(journalPath)) {
+                logger.errorf("Run failed; completed repos are kept in %s, rerun with --resume to continue", journalPath);
+            }
+
+            throw e;
         }
     }
 
-    private List<Repository> collect(GHOrganization org, List<GHRepository> repos) throws IOException, ExecutionException, InterruptedException {
-        List<Repository> answer = new ArrayList<>();
+    private Map<OutputFormat, Path> outputs() {
+        Map<OutputFormat, Path> answer = new EnumMap<>(OutputFormat.class);
+        for (OutputFormat format : outputFormats) {
+            answer.put(format, switch (format) {
+                case CSV -> Path.of(output);
+                case ARROW -> arrowOutput == null ? withExtension(Path.of(output), format.extension()) : Path.of(arrowOutput);
+            });
+        }
 
-        JsonNode configMap = gitHubConfigYamlService.fetchOrgConfigYaml(org.getRepository("org"));
-        Set<String> configRepos = configYamlProcessor.getReposFromYaml(configMap);
-        Set<String> configArchivedRepos = configYamlProcessor.getArchivedReposFromYaml(configMap);
+        return answer;
+    }
 
-        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
-            List<Future<Repository>> futures = new ArrayList<>();
-            for (GHRepository current : repos) {
-                futures.add(executor.submit(() -> runnable(current, configRepos, configArchivedRepos)));
+    /**
+     * Closes the writers already opened if a later one fails to open.
+     */
+    private static List<RowWriter> open(Map<OutputFormat, Path> files, String organization, boolean combined, RepositoryFields fields, SnapshotStore history) throws IOException {
+        List<RowWriter> answer = new ArrayList<>();
+        try {
+            for (Map.Entry<OutputFormat, Path> current : files.entrySet()) {
+                answer.add(current.getKey().open(current.getValue(), organization, combined, fields));
             }
 
-            for (Future<Repository> future : futures) {
-                answer.add(future.get());
+            if (history != null) {
+                answer.add(history.writer(organization, Instant.now()));
+            }
+        } catch (IOException e) {
+            for (RowWriter current : answer) {
+                try {
+                    current.close();
+                } catch (IOException suppressed) {
+                    e.addSuppressed(suppressed);
+                }
             }
+
+            throw e;
         }
 
         return answer;
     }
 
-    private Repository runnable(GHRepository repo, Set<String> configRepos, Set<String> configArchivedRepos) throws IOException {
-        logger.infof("Working on: %s/%s", repo.getOwnerName(), repo.getName());
+    private List<String> organizations() throws IOException {
+        Set<String> answer = new LinkedHashSet<>();
+        if (organizations != null) {
+            for (String current : organizations) {
+                if (!current.isBlank()) {
+                    answer.add(current.trim());
+                }
+            }
+        }
 
-        boolean inConfig = configRepos.contains(repo.getName());
-        boolean inArchivedTeam = repo.isArchived() && configArchivedRepos.contains(repo.getName());
+        if (organizationFile != null) {
+            for (String line : Files.readAllLines(Path.of(organizationFile))) {
+                String current = line.trim();
+                if (!current.isEmpty() && !current.startsWith("#")) {
+                    answer.add(current);
+                }
+            }
+        }
 
-        com.garethahealy.githubstats.clients.graphql.generated.Repository graphqlRepository = null;
-        List<GHRepository.Contributor> contributors = null;
-        GHRepositoryCloneTraffic cloneTraffic = null;
-        GHRepositoryViewTraffic viewTraffic = null;
+        if (answer.isEmpty()) {
+            throw new IllegalArgumentException("--organization or --organization-file is required");
+        }
 
-        if (!repo.isArchived()) {
-            graphqlRepository = gitHubRepositoryStatsService.fetchRepositoryStats(repo.getOwnerName(), repo.getName());
+        return List.copyOf(answer);
+    }
 
-            contributors = gitHubContributorsLookupService.getContributors(repo);
-            cloneTraffic = gitHubTrafficLookupService.getCloneTraffic(repo);
-            viewTraffic = gitHubTrafficLookupService.getViewTraffic(repo);
+    /**
+     * Inserts the organization before the extension, i.e.: {@code github-output.csv} becomes {@code github-output-redhat-cop.csv}.
+     */
+    static Path perOrganization(Path path, String organization) {
+        if (organization == null) {
+            return path;
         }
 
-        return graphqlRepositoryToCsvMapper.toCsvRow(repo.getName(), graphqlRepository, contributors, cloneTraffic, viewTraffic, inConfig, repo.isArchived(), inArchivedTeam);
+        String name = path.getFileName().toString();
+        int extension = name.lastIndexOf('.');
+        String answer = extension > 0 ? name.substring(0, extension) + "-" + organization + name.substring(extension) : name + "-" + organization;
+        return path.resolveSibling(answer);
     }
 
-    private void write(List<Repository> repositories, File output) throws IOException {
-        CSVFormat csvFormat = CSVFormat.Builder.create(CSVFormat.DEFAULT)
-            .setHeader((Repository.Headers.class))
-            .get();
+    private static Path withExtension(Path path, String extension) {
+        String name = path.getFileName().toString();
+        int current = name.lastIndexOf('.');
+        return path.resolveSibling((current > 0 ? name.substring(0, current) : name) + extension);
+    }
 
-        try (Writer writer = Files.newBufferedWriter(output.toPath(), StandardCharsets.UTF_8, StandardOpenOption.TRUNCATE_EXISTING)) {
-            try (CSVPrinter csvPrinter = new CSVPrinter(writer, csvFormat)) {
-                for (Repository current : repositories) {
-                    csvPrinter.printRecord(current.toArray());
-                }
+    private void reportMetrics() {
+        logger.infof("Metrics:%n%s", metrics.summary());
+
+        if (metricsOutput != null) {
+            try {
+                metrics.export(Path.of(metricsOutput), metricsFormat);
+                logger.infof("Metrics written to %s", metricsOutput);
+            } catch (IOException e) {
+                logger.warnf("Failed to write metrics to %s because: %s", metricsOutput, e.getMessage());
             }
         }
     }
+
+    private void recordState(Map<String, CollectionState.RepositoryState> collectedState, CheckpointEntry entry) {
+        if (incremental) {
+            collectedState.put(entry.name(), new CollectionState.RepositoryState(entry.pushedAt(), entry.updatedAt(), entry.row()));
+        }
+    }
 }
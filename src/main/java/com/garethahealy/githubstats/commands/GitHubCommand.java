@@ -9,6 +9,6 @@ import picocli.CommandLine;
     name = "github",
     description = "GitHub helper utility",
     mixinStandardHelpOptions = true,
-    subcommands = {CollectStatsCommand.class, CommandLine.HelpCommand.class, AutoComplete.GenerateCompletion.class})
+    subcommands = {CollectStatsCommand.class, HistoryCommand.class, ServeCommand.class, CommandLine.HelpCommand.class, AutoComplete.GenerateCompletion.class})
 public class GitHubCommand {
 }
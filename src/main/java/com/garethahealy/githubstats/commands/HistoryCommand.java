@@ -0,0 +1,167 @@
+package com.garethahealy.githubstats.commands;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.garethahealy.githubstats.model.history.OrganizationPoint;
+import com.garethahealy.githubstats.model.history.RepositoryPoint;
+import com.garethahealy.githubstats.model.history.TrafficDay;
+import com.garethahealy.githubstats.output.SnapshotStore;
+import jakarta.inject.Inject;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+import org.jboss.logging.Logger;
+import picocli.CommandLine;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.NavigableMap;
+
+@CommandLine.Command(name = "history", mixinStandardHelpOptions = true, description = "Trends from the snapshots appended by collect-stats --history-dir, in CSV format")
+public class HistoryCommand implements Runnable {
+
+    @CommandLine.Option(names = {"-org", "--organization"}, description = "GitHub organization", required = true)
+    String organization;
+
+    @CommandLine.Option(names = {"-r", "--repository"}, description = "Repository to show; without it, the organization totals are shown")
+    String repository;
+
+    @CommandLine.Option(names = {"--traffic"}, description = "Show the daily traffic of --repository rather than its snapshots", defaultValue = "false")
+    boolean traffic;
+
+    @CommandLine.Option(names = {"--history-dir"}, description = "Snapshot history written by collect-stats --history-dir", defaultValue = "github-history")
+    String historyDir;
+
+    @CommandLine.Option(names = {"--since"}, description = "First day to include, i.e.: 2026-01-31")
+    LocalDate since;
+
+    @CommandLine.Option(names = {"--until"}, description = "Last day to include, i.e.: 2026-12-31")
+    LocalDate until;
+
+    @CommandLine.Option(names = {"-o", "--csv-output"}, description = "Output location for CSV; defaults to standard output")
+    String output;
+
+    @CommandLine.Spec
+    CommandLine.Model.CommandSpec spec;
+
+    @Inject
+    Logger logger;
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    @Override
+    public void run() {
+        if (traffic && repository == null) {
+            throw new IllegalArgumentException("--traffic requires --repository");
+        }
+
+        SnapshotStore store = new SnapshotStore(Path.of(historyDir), objectMapper);
+
+        try {
+            if (output == null) {
+                print(store, spec.commandLine().getOut());
+            } else {
+                try (Writer writer = Files.newBufferedWriter(Path.of(output), StandardCharsets.UTF_8)) {
+                    print(store, writer);
+                }
+
+                logger.infof("Output written to %s", output);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void print(SnapshotStore store, Writer writer) throws IOException {
+        int days;
+        if (repository == null) {
+            days = printOrganization(store, writer);
+        } else {
+            days = traffic ? printTraffic(store, writer) : printRepository(store, writer);
+        }
+
+        if (days == 0) {
+            logger.warnf("No history for %s in %s", repository == null ? organization : organization + "/" + repository, historyDir);
+        }
+    }
+
+    private int printRepository(SnapshotStore store, Writer writer) throws IOException {
+        NavigableMap<LocalDate, RepositoryPoint> points = store.repository(organization, repository, since, until);
+
+        CSVPrinter csvPrinter = new CSVPrinter(writer, format("Day", "ContributorCount", "CommitCount", "CommitsSincePrevious", "OpenIssueCount",
+            "OpenPullRequestCount", "ClonesInPast14Days", "ViewsInPast14Days", "IsArchived"));
+
+        RepositoryPoint previous = null;
+        for (RepositoryPoint current : points.values()) {
+            csvPrinter.printRecord(current.day(), current.contributorCount(), current.commitCount(),
+                previous == null ? "" : current.commitCount() - previous.commitCount(), current.openIssueCount(),
+                current.openPullRequestCount(), current.clonesInPast14Days(), current.viewsInPast14Days(), current.isArchived());
+            previous = current;
+        }
+
+        csvPrinter.flush();
+
+        if (points.size() > 1) {
+            RepositoryPoint first = points.firstEntry().getValue();
+            RepositoryPoint last = points.lastEntry().getValue();
+            logger.infof("%s/%s from %s to %s: commits %+d, open issues %+d, open pull requests %+d", organization, repository, first.day(), last.day(),
+                last.commitCount() - first.commitCount(), last.openIssueCount() - first.openIssueCount(), last.openPullRequestCount() - first.openPullRequestCount());
+        }
+
+        return points.size();
+    }
+
+    private int printTraffic(SnapshotStore store, Writer writer) throws IOException {
+        NavigableMap<LocalDate, TrafficDay> days = store.traffic(organization, repository, since, until);
+
+        CSVPrinter csvPrinter = new CSVPrinter(writer, format("Day", "Views", "UniqueViews", "Clones", "UniqueClones"));
+        for (TrafficDay current : days.values()) {
+            csvPrinter.printRecord(current.day(), current.views(), current.uniqueViews(), current.clones(), current.uniqueClones());
+        }
+
+        csvPrinter.flush();
+
+        if (!days.isEmpty()) {
+            LocalDate last = days.lastKey();
+            for (int window : new int[]{30, 90, 365}) {
+                NavigableMap<LocalDate, TrafficDay> current = days.tailMap(last.minusDays(window - 1L), true);
+                logger.infof("%s/%s in the %s days to %s: %s views, %s clones over %s days with traffic", organization, repository, window, last,
+                    current.values().stream().mapToLong(TrafficDay::views).sum(), current.values().stream().mapToLong(TrafficDay::clones).sum(), current.size());
+            }
+        }
+
+        return days.size();
+    }
+
+    private int printOrganization(SnapshotStore store, Writer writer) throws IOException {
+        NavigableMap<LocalDate, OrganizationPoint> points = store.organization(organization, since, until);
+
+        CSVPrinter csvPrinter = new CSVPrinter(writer, format("Day", "Repositories", "Archived", "CommitCount", "OpenIssueCount",
+            "OpenPullRequestCount", "ClonesInPast14Days", "ViewsInPast14Days"));
+
+        for (OrganizationPoint current : points.values()) {
+            csvPrinter.printRecord(current.day(), current.repositories(), current.archived(), current.commitCount(), current.openIssueCount(),
+                current.openPullRequestCount(), current.clonesInPast14Days(), current.viewsInPast14Days());
+        }
+
+        csvPrinter.flush();
+
+        if (points.size() > 1) {
+            OrganizationPoint first = points.firstEntry().getValue();
+            OrganizationPoint last = points.lastEntry().getValue();
+            logger.infof("%s from %s to %s: repositories %+d, commits %+d, open issues %+d", organization, first.day(), last.day(),
+                last.repositories() - first.repositories(), last.commitCount() - first.commitCount(), last.openIssueCount() - first.openIssueCount());
+        }
+
+        return points.size();
+    }
+
+    private static CSVFormat format(String... headers) {
+        return CSVFormat.Builder.create(CSVFormat.DEFAULT)
+            .setHeader(headers)
+            .get();
+    }
+}
@@ -0,0 +1,211 @@
+package com.garethahealy.githubstats.commands;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.garethahealy.githubstats.mapping.RepositoryFields;
+import com.garethahealy.githubstats.metrics.RunMetrics;
+import com.garethahealy.githubstats.model.csv.Repository;
+import com.garethahealy.githubstats.model.history.TrafficDay;
+import com.garethahealy.githubstats.model.state.CheckpointEntry;
+import com.garethahealy.githubstats.model.state.CollectionState;
+import com.garethahealy.githubstats.output.RowWriter;
+import com.garethahealy.githubstats.output.SnapshotStore;
+import com.garethahealy.githubstats.server.RepositoryCache;
+import com.garethahealy.githubstats.server.RepositoryRefresher;
+import com.garethahealy.githubstats.server.StatsHttpServer;
+import com.garethahealy.githubstats.server.WebhookHandler;
+import com.garethahealy.githubstats.services.CollectStatsService;
+import com.garethahealy.githubstats.services.GitHubOrganizationLookupService;
+import io.quarkus.runtime.Quarkus;
+import jakarta.inject.Inject;
+import org.jboss.logging.Logger;
+import org.kohsuke.github.GHOrganization;
+import picocli.CommandLine;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+@CommandLine.Command(name = "serve", mixinStandardHelpOptions = true, description = "Keep the stats of organizations in memory, refreshed on a schedule, and serve them over HTTP as JSON or CSV")
+public class ServeCommand implements Runnable {
+
+    @CommandLine.Option(names = {"-org", "--organization"}, split = ",", required = true, description = "GitHub organization; repeat or comma-separate to serve several")
+    List<String> organizations;
+
+    @CommandLine.Option(names = {"--host"}, description = "Address to listen on", defaultValue = "localhost")
+    String host;
+
+    @CommandLine.Option(names = {"--port"}, description = "Port to listen on; 0 picks a free port", defaultValue = "8080")
+    int port;
+
+    @CommandLine.Option(names = {"--refresh-interval"}, description = "Time between the refreshes of an organization, i.e.: PT1H", defaultValue = "PT6H")
+    Duration refreshInterval;
+
+    @CommandLine.Option(names = {"--refresh-spread"}, description = "Share of --refresh-interval that a refresh spreads its repositories over, to smooth API load; 0 refreshes them all at once. The first refresh is never spread", defaultValue = "0.5")
+    double refreshSpread;
+
+    @CommandLine.Option(names = {"-l", "--repository-limit"}, description = "Max repositories to list and process per organization, taken in listing order: as GitHub lists them for PER_REPO, active ones before archived ones for ORG_SWEEP; 0 means no limit (all org repos)", defaultValue = "0")
+    int repoLimit;
+
+    @CommandLine.Option(names = {"--graphql-batch-size"}, description = "Repositories fetched per GraphQL request; 1 sends one request per repository", defaultValue = "25")
+    int graphqlBatchSize;
+
+    @CommandLine.Option(names = {"--engine"}, description = "Collection engine, one of: ${COMPLETION-CANDIDATES}. ORG_SWEEP lists repositories and their stats together via paged GraphQL, active repositories in name order and then archived ones", defaultValue = "PER_REPO")
+    CollectStatsService.Engine engine;
+
+    @CommandLine.Option(names = {"--refresh-traffic"}, negatable = true, description = "Re-fetch clone/view traffic for repositories not pushed or updated since the previous refresh", defaultValue = "true")
+    boolean refreshTraffic;
+
+    @CommandLine.Option(names = {"--webhook-secret"}, description = "Secret the organization webhooks are signed with, for POST /webhooks; defaults to $GITHUB_WEBHOOK_SECRET. Without one, deliveries are not verified", defaultValue = "${env:GITHUB_WEBHOOK_SECRET}")
+    String webhookSecret;
+
+    @CommandLine.Option(names = {"--history-dir"}, description = "Also append every refresh to the snapshot history in this directory, for the history command")
+    String historyDir;
+
+    @Inject
+    Logger logger;
+
+    @Inject
+    GitHubOrganizationLookupService gitHubOrganizationLookupService;
+
+    @Inject
+    CollectStatsService collectStatsService;
+
+    @Inject
+    RepositoryCache cache;
+
+    @Inject
+    RunMetrics metrics;
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    @Override
+    public void run() {
+        if (refreshInterval.isNegative() || refreshInterval.isZero()) {
+            throw new IllegalArgumentException("--refresh-interval must be positive");
+        }
+
+        if (refreshSpread < 0 || refreshSpread > 1) {
+            throw new IllegalArgumentException("--refresh-spread must be between 0 and 1");
+        }
+
+        List<String> orgs = organizations.stream()
+            .map(String::trim)
+            .filter(current -> !current.isEmpty())
+            .distinct()
+            .toList();
+
+        orgs.forEach(cache::register);
+
+        SnapshotStore history = historyDir == null ? null : new SnapshotStore(Path.of(historyDir), objectMapper);
+        RepositoryRefresher refresher = new RepositoryRefresher(logger, gitHubOrganizationLookupService, collectStatsService, cache,
+            org -> sink(org, history, ConcurrentHashMap.newKeySet()));
+        ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(orgs.size(), Thread.ofVirtual().name("refresh-", 0).factory());
+        try (StatsHttpServer server = new StatsHttpServer(new InetSocketAddress(host, port), logger, cache, objectMapper, metrics);
+             WebhookHandler webhooks = new WebhookHandler(logger, cache, objectMapper, refresher, webhookSecret)) {
+            if (webhookSecret == null) {
+                logger.warnf("No --webhook-secret, so webhook deliveries are not verified");
+            }
+
+            server.route("/webhooks", webhooks);
+            server.start();
+            logger.infof("Serving %s on http://%s:%s", String.join(", ", orgs), server.address().getHostString(), server.address().getPort());
+
+            // every organization is refreshed straight away, so the server is soon ready; after that their refreshes are
+            // offset evenly over the interval, so they do not all hit the API together
+            for (int i = 0; i < orgs.size(); i++) {
+                long offset = refreshInterval.toMillis() * i / orgs.size();
+                schedule(scheduler, orgs.get(i), history, 0, offset);
+            }
+
+            Quarkus.waitForExit();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Schedules the next refresh of {@code organization} once the previous one has ended, so two refreshes of one
+     * organization never run at once, however long one takes.
+     *
+     * @param offset added to the delay after this refresh only, to spread the organizations apart
+     */
+    private void schedule(ScheduledExecutorService scheduler, String organization, SnapshotStore history, long delay, long offset) {
+        scheduler.schedule(() -> {
+            refresh(organization, history);
+            if (!scheduler.isShutdown()) {
+                schedule(scheduler, organization, history, offset + refreshInterval.toMillis(), 0);
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Re-collects {@code organization} into the cache. Only repositories pushed or updated since the previous refresh are
+     * collected again, and their starts are spread over {@code --refresh-spread} of the interval. A failed refresh keeps
+     * the rows already cached.
+     */
+    private void refresh(String organization, SnapshotStore history) {
+        try {
+            GHOrganization org = gitHubOrganizationLookupService.getOrganization(organization);
+
+            CollectionState previous = cache.state(organization);
+            Duration pace = previous == null || previous.repositories().isEmpty() ? Duration.ZERO
+                : Duration.ofNanos((long) (refreshInterval.toNanos() * refreshSpread / previous.repositories().size()));
+
+            Instant started = Instant.now();
+            Set<String> before = cache.names(organization);
+            Set<String> listed = ConcurrentHashMap.newKeySet();
+            collectStatsService.collect(new CollectStatsService.Request(org, repoLimit, graphqlBatchSize, engine, RepositoryFields.all(), refreshTraffic, previous, Map.of(), pace), sink(org, history, listed));
+
+            cache.refreshed(organization, Instant.now(), before, listed);
+            logger.infof("Refreshed %s repos in %s in %s", listed.size(), organization, Duration.between(started, Instant.now()));
+
+            if (history != null) {
+                try (RowWriter writer = history.writer(org.getLogin(), started)) {
+                    for (Repository current : cache.rows(organization).orElseThrow()) {
+                        writer.write(current);
+                    }
+                }
+            }
+        } catch (Exception e) {
+            // the schedule stops for good if a refresh throws, so every failure is caught and the next refresh retries
+            logger.errorf("Failed to refresh %s because: %s", organization, e.getMessage());
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private CollectStatsService.Sink sink(GHOrganization org, SnapshotStore history, Set<String> listed) {
+        return new CollectStatsService.Sink() {
+            @Override
+            public void completed(int sequence, CheckpointEntry entry) {
+                cache.put(org.getLogin(), entry);
+                listed.add(entry.name());
+            }
+
+            @Override
+            public void restored(int sequence, CheckpointEntry entry) {
+                completed(sequence, entry);
+            }
+
+            @Override
+            public void traffic(String name, List<TrafficDay> days) throws IOException {
+                if (history != null) {
+                    history.mergeTraffic(org.getLogin(), name, days);
+                }
+            }
+        };
+    }
+}
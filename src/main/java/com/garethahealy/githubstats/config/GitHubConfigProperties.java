@@ -1,6 +1,9 @@
 package com.garethahealy.githubstats.config;
 
 import io.smallrye.config.ConfigMapping;
+import io.smallrye.config.WithDefault;
+
+import java.time.Duration;
 
 @ConfigMapping(prefix = "github")
 public interface GitHubConfigProperties {
@@ -8,4 +11,44 @@ public interface GitHubConfigProperties {
     String login();
 
     String oauth();
+
+    @WithDefault("https://api.github.com")
+    String apiUrl();
+
+    Requests requests();
+
+    Cache cache();
+
+    interface Requests {
+
+        @WithDefault("10")
+        int maxConcurrency();
+
+        @WithDefault("5")
+        int maxRetries();
+
+        @WithDefault("1s")
+        Duration initialBackoff();
+
+        @WithDefault("60s")
+        Duration maxBackoff();
+
+        @WithDefault("100")
+        int paceBelowRemaining();
+    }
+
+    interface Cache {
+
+        @WithDefault("false")
+        boolean enabled();
+
+        @WithDefault("${user.home}/.cache/github-stats")
+        String directory();
+
+        @WithDefault("512")
+        int maxSizeMb();
+
+        @WithDefault("0s")
+        Duration ttl();
+    }
 }
@@ -0,0 +1,80 @@
+package com.garethahealy.githubstats.config.jackson;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import jakarta.json.JsonNumber;
+import jakarta.json.JsonString;
+import jakarta.json.JsonValue;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Binds a {@code jakarta.json} tree, as returned by the SmallRye GraphQL client, by replaying it as Jackson tokens
+ * instead of serialising it to a String and parsing it a second time.
+ */
+public final class JsonpBinding {
+
+    private JsonpBinding() {
+    }
+
+    public static <T> T readValue(ObjectMapper mapper, JsonValue value, Class<T> type) throws IOException {
+        try (TokenBuffer tokens = new TokenBuffer(mapper, false)) {
+            write(value, tokens);
+
+            try (JsonParser parser = tokens.asParser()) {
+                return mapper.readValue(parser, type);
+            }
+        }
+    }
+
+    public static void write(JsonValue value, JsonGenerator generator) throws IOException {
+        if (value == null) {
+            generator.writeNull();
+            return;
+        }
+
+        switch (value.getValueType()) {
+            case OBJECT -> {
+                generator.writeStartObject();
+                for (Map.Entry<String, JsonValue> current : value.asJsonObject().entrySet()) {
+                    generator.writeFieldName(current.getKey());
+                    write(current.getValue(), generator);
+                }
+                generator.writeEndObject();
+            }
+            case ARRAY -> {
+                generator.writeStartArray();
+                for (JsonValue current : value.asJsonArray()) {
+                    write(current, generator);
+                }
+                generator.writeEndArray();
+            }
+            case STRING -> generator.writeString(((JsonString) value).getString());
+            case NUMBER -> writeNumber((JsonNumber) value, generator);
+            case TRUE -> generator.writeBoolean(true);
+            case FALSE -> generator.writeBoolean(false);
+            case NULL -> generator.writeNull();
+        }
+    }
+
+    private static void writeNumber(JsonNumber number, JsonGenerator generator) throws IOException {
+        if (!number.isIntegral()) {
+            generator.writeNumber(number.bigDecimalValue());
+            return;
+        }
+
+        try {
+            long value = number.longValueExact();
+            if (value == (int) value) {
+                generator.writeNumber((int) value);
+            } else {
+                generator.writeNumber(value);
+            }
+        } catch (ArithmeticException e) {
+            generator.writeNumber(number.bigIntegerValue());
+        }
+    }
+}
@@ -1,17 +1,27 @@
 package com.garethahealy.githubstats.config.jackson;
 
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
 import com.fasterxml.jackson.dataformat.yaml.YAMLMapper;
 import jakarta.enterprise.inject.Produces;
 import jakarta.inject.Named;
 import jakarta.inject.Singleton;
+import org.yaml.snakeyaml.LoaderOptions;
 
 @Singleton
 public class YAMLMapperConfig {
 
+    /**
+     * SnakeYAML refuses documents over 3 MB by default, which large org {@code config.yaml} files exceed.
+     */
+    private static final int CODE_POINT_LIMIT = 64 * 1024 * 1024;
+
     @Produces
     @Singleton
     @Named("yaml")
     public YAMLMapper mapper() {
-        return new YAMLMapper();
+        LoaderOptions loaderOptions = new LoaderOptions();
+        loaderOptions.setCodePointLimit(CODE_POINT_LIMIT);
+
+        return new YAMLMapper(YAMLFactory.builder().loaderOptions(loaderOptions).build());
     }
 }
@@ -2,15 +2,12 @@ package com.garethahealy.githubstats.mapping;
 
 import com.garethahealy.githubstats.mapping.fields.*;
 import com.garethahealy.githubstats.model.csv.Repository;
-import org.kohsuke.github.GHRepository;
 import org.kohsuke.github.GHRepositoryCloneTraffic;
 import org.kohsuke.github.GHRepositoryViewTraffic;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 import org.mapstruct.MappingConstants;
 
-import java.util.List;
-
 @Mapper(componentModel = MappingConstants.ComponentModel.JAKARTA, uses = {
     CloneTrafficUniquesMapping.class,
     CommitCountMapping.class,
@@ -33,7 +30,7 @@ public interface GraphqlRepositoryToCsvMapper {
     @Mapping(target = "lastCommitAuthor", source = "graphql", qualifiedByName = "lastCommitAuthor")
     @Mapping(target = "lastCommitDate", source = "graphql", qualifiedByName = "lastCommitDate")
     @Mapping(target = "cop", source = "graphql", qualifiedByName = "copLabel")
-    @Mapping(target = "contributorCount", source = "contributors", qualifiedByName = "contributorCount")
+    @Mapping(target = "contributorCount", source = "contributorCount", qualifiedByName = "contributorCount")
     @Mapping(target = "commitCount", source = "graphql", qualifiedByName = "commitCount")
     @Mapping(target = "openIssueCount", source = "graphql", qualifiedByName = "openIssueCount")
     @Mapping(target = "openPullRequestCount", source = "graphql", qualifiedByName = "openPullRequestCount")
@@ -48,7 +45,7 @@ public interface GraphqlRepositoryToCsvMapper {
     Repository toCsvRow(
         String repoName,
         com.garethahealy.githubstats.clients.graphql.generated.Repository graphql,
-        List<GHRepository.Contributor> contributors,
+        Integer contributorCount,
         GHRepositoryCloneTraffic cloneTraffic,
         GHRepositoryViewTraffic viewTraffic,
         boolean inConfig,
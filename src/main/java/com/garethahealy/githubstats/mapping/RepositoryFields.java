@@ -0,0 +1,88 @@
+package com.garethahealy.githubstats.mapping;
+
+import com.garethahealy.githubstats.model.csv.Repository;
+import io.quarkus.runtime.annotations.RegisterForReflection;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * The {@link Repository.Headers} a run outputs, and so what it has to fetch: each column maps from a top-level
+ * {@code RepoStatsFields} selection, a REST call or the org {@code config.yaml}, and a source no selected column maps
+ * from is not fetched. Each selection but {@code name} carries an {@code @include(if: $withX)} directive, whose variable
+ * is set from the columns.
+ */
+@RegisterForReflection
+public record RepositoryFields(Set<Repository.Headers> headers) {
+
+    private static final Map<Repository.Headers, String> GRAPHQL_INCLUDES = new EnumMap<>(Map.ofEntries(
+        Map.entry(Repository.Headers.CoP, "withTopics"),
+        Map.entry(Repository.Headers.LastCommitDate, "withDefaultBranch"),
+        Map.entry(Repository.Headers.LastCommitAuthor, "withDefaultBranch"),
+        Map.entry(Repository.Headers.CommitCount, "withDefaultBranch"),
+        Map.entry(Repository.Headers.OpenIssueCount, "withIssues"),
+        Map.entry(Repository.Headers.OpenPullRequestCount, "withPullRequests"),
+        Map.entry(Repository.Headers.Topics, "withTopics"),
+        Map.entry(Repository.Headers.HasOwners, "withOwners"),
+        Map.entry(Repository.Headers.HasCodeOwners, "withCodeOwners"),
+        Map.entry(Repository.Headers.HasWorkflows, "withWorkflows"),
+        Map.entry(Repository.Headers.HasTravis, "withTravis"),
+        Map.entry(Repository.Headers.HasRenovate, "withRenovate")));
+
+    public RepositoryFields {
+        headers = Collections.unmodifiableSet(EnumSet.copyOf(headers));
+    }
+
+    public static RepositoryFields all() {
+        return new RepositoryFields(EnumSet.allOf(Repository.Headers.class));
+    }
+
+    /**
+     * {@link Repository.Headers#RepoName} is always included, as rows are keyed by it.
+     */
+    public static RepositoryFields of(Collection<Repository.Headers> headers) {
+        Set<Repository.Headers> answer = EnumSet.of(Repository.Headers.RepoName);
+        answer.addAll(headers);
+        return new RepositoryFields(answer);
+    }
+
+    public boolean contains(Repository.Headers header) {
+        return headers.contains(header);
+    }
+
+    public boolean isAll() {
+        return headers.size() == Repository.Headers.values().length;
+    }
+
+    /**
+     * @return every {@code @include} variable of {@code RepoStatsFields}, {@code true} for the selections the columns map from
+     */
+    public Map<String, Boolean> graphqlIncludes() {
+        Map<String, Boolean> answer = new TreeMap<>();
+        for (Map.Entry<Repository.Headers, String> current : GRAPHQL_INCLUDES.entrySet()) {
+            answer.merge(current.getValue(), contains(current.getKey()), Boolean::logicalOr);
+        }
+
+        return Collections.unmodifiableMap(answer);
+    }
+
+    /**
+     * @return {@code false} when only the repository name would be asked for, which the listing already has
+     */
+    public boolean needsGraphql() {
+        return graphqlIncludes().containsValue(true);
+    }
+
+    public boolean needsTraffic() {
+        return contains(Repository.Headers.ClonesInPast14Days) || contains(Repository.Headers.ViewsInPast14Days);
+    }
+
+    public boolean needsConfig() {
+        return contains(Repository.Headers.InConfig) || contains(Repository.Headers.InArchivedTeam);
+    }
+}
@@ -0,0 +1,50 @@
+package com.garethahealy.githubstats.mapping.fields;
+
+import com.garethahealy.githubstats.model.history.TrafficDay;
+import io.quarkus.runtime.annotations.RegisterForReflection;
+import jakarta.enterprise.context.ApplicationScoped;
+import org.kohsuke.github.GHRepositoryCloneTraffic;
+import org.kohsuke.github.GHRepositoryTraffic;
+import org.kohsuke.github.GHRepositoryViewTraffic;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+@ApplicationScoped
+@RegisterForReflection
+public class DailyTrafficMapping {
+
+    /**
+     * @return the per-day breakdown of both responses, joined by day and sorted
+     */
+    public List<TrafficDay> dailyTraffic(GHRepositoryCloneTraffic cloneTraffic, GHRepositoryViewTraffic viewTraffic) {
+        Map<LocalDate, int[]> days = new TreeMap<>();
+        if (viewTraffic != null) {
+            for (GHRepositoryTraffic.DailyInfo current : viewTraffic.getDailyInfo()) {
+                int[] counts = days.computeIfAbsent(day(current), key -> new int[4]);
+                counts[0] = current.getCount();
+                counts[1] = current.getUniques();
+            }
+        }
+
+        if (cloneTraffic != null) {
+            for (GHRepositoryTraffic.DailyInfo current : cloneTraffic.getDailyInfo()) {
+                int[] counts = days.computeIfAbsent(day(current), key -> new int[4]);
+                counts[2] = current.getCount();
+                counts[3] = current.getUniques();
+            }
+        }
+
+        List<TrafficDay> answer = new ArrayList<>(days.size());
+        days.forEach((day, counts) -> answer.add(new TrafficDay(day, counts[0], counts[1], counts[2], counts[3])));
+        return answer;
+    }
+
+    private static LocalDate day(GHRepositoryTraffic.DailyInfo info) {
+        return LocalDate.ofInstant(info.getTimestamp().toInstant(), ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,295 @@
+package com.garethahealy.githubstats.metrics;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.quarkus.runtime.annotations.RegisterForReflection;
+import jakarta.inject.Singleton;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Timers, counters and gauges for a single CLI run. Timers keep a fixed-bucket latency histogram, so percentiles are
+ * reported as the upper bound of the bucket they fall in. Exported as Prometheus text or JSON once the run ends.
+ */
+@Singleton
+public class RunMetrics {
+
+    public enum Format {
+        PROMETHEUS,
+        JSON
+    }
+
+    @FunctionalInterface
+    public interface Call<T, E extends Exception> {
+        T call() throws E;
+    }
+
+    static final double[] BUCKETS_SECONDS = {0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30, 60};
+
+    private static final String PREFIX = "github_stats_";
+
+    private final ObjectMapper objectMapper;
+    private final Instant started = Instant.now();
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private final Map<Meter, LongAdder> counters = new ConcurrentHashMap<>();
+    private final Map<Meter, AtomicLong> gauges = new ConcurrentHashMap<>();
+
+    public RunMetrics(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    public <T, E extends Exception> T time(String call, Call<T, E> body) throws E {
+        Sample sample = start(call);
+        try {
+            T answer = body.call();
+            sample.stop();
+            return answer;
+        } catch (Exception e) {
+            sample.stop(e);
+            throw e;
+        }
+    }
+
+    /**
+     * For calls throwing several checked exceptions, where {@link #time(String, Call)} cannot infer a single type.
+     */
+    public Sample start(String call) {
+        return new Sample(call, System.nanoTime());
+    }
+
+    public void record(String call, long nanos, Throwable error) {
+        timers.computeIfAbsent(call, key -> new Timer()).record(nanos, error);
+    }
+
+    public void increment(String name, String... labels) {
+        add(name, 1, labels);
+    }
+
+    public void add(String name, long amount, String... labels) {
+        counters.computeIfAbsent(new Meter(name, List.of(labels)), key -> new LongAdder()).add(amount);
+    }
+
+    public void gauge(String name, long value, String... labels) {
+        gauges.computeIfAbsent(new Meter(name, List.of(labels)), key -> new AtomicLong()).set(value);
+    }
+
+    public Snapshot snapshot() {
+        List<CallSnapshot> calls = new ArrayList<>();
+        new TreeMap<>(timers).forEach((call, timer) -> calls.add(timer.snapshot(call)));
+
+        return new Snapshot(started, Duration.between(started, Instant.now()), calls, values(counters), values(gauges));
+    }
+
+    /**
+     * One line per timed call, slowest total first.
+     */
+    public String summary() {
+        Snapshot snapshot = snapshot();
+        List<CallSnapshot> calls = new ArrayList<>(snapshot.calls());
+        calls.sort((left, right) -> Double.compare(right.totalSeconds(), left.totalSeconds()));
+
+        StringBuilder answer = new StringBuilder();
+        answer.append(String.format(Locale.ROOT, "Run took %.1fs%n", snapshot.elapsed().toMillis() / 1000.0));
+        answer.append(String.format(Locale.ROOT, "%-28s %8s %7s %9s %9s %9s %9s %9s %10s%n", "call", "count", "errors", "mean", "p50", "p95", "p99", "max", "total"));
+        for (CallSnapshot call : calls) {
+            answer.append(String.format(Locale.ROOT, "%-28s %8d %7d %9s %9s %9s %9s %9s %10s%n", call.call(), call.count(), call.errorCount(),
+                seconds(call.meanSeconds()), seconds(call.p50Seconds()), seconds(call.p95Seconds()), seconds(call.p99Seconds()),
+                seconds(call.maxSeconds()), seconds(call.totalSeconds())));
+        }
+
+        for (Value counter : snapshot.counters()) {
+            answer.append(String.format(Locale.ROOT, "%s%s = %d%n", counter.name(), counter.labels(), counter.value()));
+        }
+
+        for (Value gauge : snapshot.gauges()) {
+            answer.append(String.format(Locale.ROOT, "%s%s = %d%n", gauge.name(), gauge.labels(), gauge.value()));
+        }
+
+        return answer.toString();
+    }
+
+    public String prometheus() {
+        Snapshot snapshot = snapshot();
+        StringBuilder answer = new StringBuilder();
+
+        answer.append("# TYPE ").append(PREFIX).append("call_seconds histogram\n");
+        for (CallSnapshot call : snapshot.calls()) {
+            String label = "call=\"" + call.call() + "\"";
+            long cumulative = 0;
+            for (int i = 0; i < BUCKETS_SECONDS.length; i++) {
+                cumulative += call.buckets().get(i);
+                answer.append(PREFIX).append("call_seconds_bucket{").append(label).append(",le=\"").append(BUCKETS_SECONDS[i]).append("\"} ").append(cumulative).append('\n');
+            }
+
+            answer.append(PREFIX).append("call_seconds_bucket{").append(label).append(",le=\"+Inf\"} ").append(call.count()).append('\n');
+            answer.append(PREFIX).append("call_seconds_sum{").append(label).append("} ").append(call.totalSeconds()).append('\n');
+            answer.append(PREFIX).append("call_seconds_count{").append(label).append("} ").append(call.count()).append('\n');
+        }
+
+        answer.append("# TYPE ").append(PREFIX).append("call_errors_total counter\n");
+        for (CallSnapshot call : snapshot.calls()) {
+            call.errors().forEach((type, count) -> answer.append(PREFIX).append("call_errors_total{call=\"").append(call.call()).append("\",type=\"").append(type).append("\"} ").append(count).append('\n'));
+        }
+
+        appendValues(answer, snapshot.counters(), "counter");
+        appendValues(answer, snapshot.gauges(), "gauge");
+        return answer.toString();
+    }
+
+    public void export(Path target, Format format) throws IOException {
+        Path parent = target.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+
+        switch (format) {
+            case PROMETHEUS -> Files.writeString(target, prometheus());
+            case JSON -> objectMapper.writerWithDefaultPrettyPrinter().writeValue(target.toFile(), snapshot());
+        }
+    }
+
+    private static void appendValues(StringBuilder answer, List<Value> values, String type) {
+        String previous = null;
+        for (Value value : values) {
+            if (!value.name().equals(previous)) {
+                answer.append("# TYPE ").append(PREFIX).append(value.name()).append(' ').append(type).append('\n');
+                previous = value.name();
+            }
+
+            StringBuilder labels = new StringBuilder();
+            value.labels().forEach((key, labelValue) -> labels.append(labels.isEmpty() ? "" : ",").append(key).append("=\"").append(labelValue).append('"'));
+
+            answer.append(PREFIX).append(value.name());
+            if (!labels.isEmpty()) {
+                answer.append('{').append(labels).append('}');
+            }
+
+            answer.append(' ').append(value.value()).append('\n');
+        }
+    }
+
+    private static <N extends Number> List<Value> values(Map<Meter, N> meters) {
+        return meters.entrySet().stream()
+            .map(entry -> new Value(entry.getKey().name(), entry.getKey().labelMap(), entry.getValue().longValue()))
+            .sorted((left, right) -> (left.name() + left.labels()).compareTo(right.name() + right.labels()))
+            .toList();
+    }
+
+    private static String seconds(double value) {
+        return value < 1 ? String.format(Locale.ROOT, "%.0fms", value * 1000) : String.format(Locale.ROOT, "%.2fs", value);
+    }
+
+    public final class Sample {
+
+        private final String call;
+        private final long startNanos;
+
+        private Sample(String call, long startNanos) {
+            this.call = call;
+            this.startNanos = startNanos;
+        }
+
+        public void stop() {
+            stop(null);
+        }
+
+        public void stop(Throwable error) {
+            record(call, System.nanoTime() - startNanos, error);
+        }
+    }
+
+    /**
+     * @param labels alternating label names and values
+     */
+    private record Meter(String name, List<String> labels) {
+
+        Map<String, String> labelMap() {
+            Map<String, String> answer = new TreeMap<>();
+            for (int i = 0; i + 1 < labels.size(); i += 2) {
+                answer.put(labels.get(i), labels.get(i + 1));
+            }
+
+            return answer;
+        }
+    }
+
+    private static final class Timer {
+
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS_SECONDS.length + 1);
+        private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+
+        void record(long nanos, Throwable error) {
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+            buckets.incrementAndGet(bucket(nanos / 1_000_000_000.0));
+
+            if (error != null) {
+                errors.computeIfAbsent(error.getClass().getSimpleName(), key -> new LongAdder()).increment();
+            }
+        }
+
+        private static int bucket(double seconds) {
+            int index = Arrays.binarySearch(BUCKETS_SECONDS, seconds);
+            return index >= 0 ? index : -index - 1;
+        }
+
+        CallSnapshot snapshot(String call) {
+            long[] counts = new long[buckets.length()];
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = buckets.get(i);
+            }
+
+            long total = count.sum();
+            double max = maxNanos.get() / 1_000_000_000.0;
+            double sum = totalNanos.sum() / 1_000_000_000.0;
+
+            Map<String, Long> errorCounts = new TreeMap<>();
+            errors.forEach((type, adder) -> errorCounts.put(type, adder.sum()));
+
+            return new CallSnapshot(call, total, errorCounts.values().stream().mapToLong(Long::longValue).sum(), errorCounts,
+                total == 0 ? 0 : sum / total, percentile(counts, total, 0.5, max), percentile(counts, total, 0.95, max),
+                percentile(counts, total, 0.99, max), max, sum, Arrays.stream(counts).boxed().toList());
+        }
+
+        private static double percentile(long[] counts, long total, double quantile, double max) {
+            long rank = (long) Math.ceil(total * quantile);
+            long cumulative = 0;
+            for (int i = 0; i < counts.length; i++) {
+                cumulative += counts[i];
+                if (cumulative >= rank && cumulative > 0) {
+                    return i < BUCKETS_SECONDS.length ? Math.min(BUCKETS_SECONDS[i], max) : max;
+                }
+            }
+
+            return 0;
+        }
+    }
+
+    @RegisterForReflection
+    public record Snapshot(Instant started, Duration elapsed, List<CallSnapshot> calls, List<Value> counters, List<Value> gauges) {
+    }
+
+    @RegisterForReflection
+    public record CallSnapshot(String call, long count, long errorCount, Map<String, Long> errors, double meanSeconds, double p50Seconds,
+                               double p95Seconds, double p99Seconds, double maxSeconds, double totalSeconds, List<Long> buckets) {
+    }
+
+    @RegisterForReflection
+    public record Value(String name, Map<String, String> labels, long value) {
+    }
+}
@@ -0,0 +1,37 @@
+package com.garethahealy.githubstats.model.config;
+
+import io.quarkus.runtime.annotations.RegisterForReflection;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Every repository listed in an org {@code config.yaml}, mapped to the paths that list it: {@code <org>} for the
+ * organization's own {@code repos}, {@code <org>/teams/<team>} for a team's, and so on for nested teams. Persisted with
+ * the blob {@code sha} it was built from, so it is only rebuilt when the file changes.
+ */
+@RegisterForReflection
+public record ConfigIndex(String sha, Map<String, Set<String>> repositories) {
+
+    public static final String ARCHIVED_TEAM = "aarchived";
+
+    public static ConfigIndex empty() {
+        return new ConfigIndex(null, Map.of());
+    }
+
+    public static String teamPath(String organization, String team) {
+        return organization + "/teams/" + team;
+    }
+
+    public boolean contains(String repo) {
+        return repositories.containsKey(repo);
+    }
+
+    public boolean contains(String path, String repo) {
+        return repositories.getOrDefault(repo, Set.of()).contains(path);
+    }
+
+    public boolean isArchived(String organization, String repo) {
+        return contains(teamPath(organization, ARCHIVED_TEAM), repo);
+    }
+}
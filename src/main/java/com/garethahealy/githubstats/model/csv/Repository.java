@@ -34,8 +34,31 @@ public record Repository(String repoName, String lastCommitAuthor, String lastCo
         InArchivedTeam
     }
 
-    public List<String> toArray() {
-        String repoLink = "=HYPERLINK(\"https://www.github.com/redhat-cop/" + repoName + "\",\"" + repoName + "\")";
+    /**
+     * The row of an archived repository, which gets no stats.
+     */
+    public static Repository archived(String repoName, boolean inConfig, boolean inArchivedTeam) {
+        return new Repository(repoName, null, null, null, 0, 0, 0, 0, List.of(), 0, 0, false, false, false, false, false, inConfig, true, inArchivedTeam);
+    }
+
+    public Repository withTraffic(long clonesInPast14Days, long viewsInPast14Days) {
+        return new Repository(repoName, lastCommitAuthor, lastCommitDate, cop, contributorCount, commitCount, openIssueCount,
+            openPullRequestCount, topics, clonesInPast14Days, viewsInPast14Days, hasOwners, hasCodeOwners, hasWorkflows,
+            hasTravis, hasRenovate, inConfig, isArchived, inArchivedTeam);
+    }
+
+    public Repository withConfig(boolean inConfig, boolean inArchivedTeam) {
+        return new Repository(repoName, lastCommitAuthor, lastCommitDate, cop, contributorCount, commitCount, openIssueCount,
+            openPullRequestCount, topics, clonesInPast14Days, viewsInPast14Days, hasOwners, hasCodeOwners, hasWorkflows,
+            hasTravis, hasRenovate, inConfig, isArchived, inArchivedTeam);
+    }
+
+    /**
+     * @param qualifyName show the repository as {@code organization/repoName}, for output spanning several organizations
+     */
+    public List<String> toArray(String organization, boolean qualifyName) {
+        String displayName = qualifyName ? organization + "/" + repoName : repoName;
+        String repoLink = "=HYPERLINK(\"https://www.github.com/" + organization + "/" + repoName + "\",\"" + displayName + "\")";
         boolean archived = isArchived;
         return Arrays.asList(repoLink, cop, lastCommitDate, lastCommitAuthor,
             intCsv(contributorCount, archived), intCsv(commitCount, archived), intCsv(openIssueCount, archived),
@@ -0,0 +1,27 @@
+package com.garethahealy.githubstats.model.graphql;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.garethahealy.githubstats.clients.graphql.generated.Repository;
+import io.quarkus.runtime.annotations.RegisterForReflection;
+
+import java.util.List;
+
+@JsonIgnoreProperties(ignoreUnknown = true)
+@RegisterForReflection
+public record GitHubOrgRepoStatsGraphqlData(Organization organization) {
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    @RegisterForReflection
+    public record Organization(RepositoryConnection repositories) {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    @RegisterForReflection
+    public record RepositoryConnection(PageInfo pageInfo, List<Repository> nodes) {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    @RegisterForReflection
+    public record PageInfo(boolean hasNextPage, String endCursor) {
+    }
+}
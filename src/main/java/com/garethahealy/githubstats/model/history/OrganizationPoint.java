@@ -0,0 +1,15 @@
+package com.garethahealy.githubstats.model.history;
+
+import io.quarkus.runtime.annotations.RegisterForReflection;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * Totals over every repository of an organization in one snapshot; archived repositories only count towards
+ * {@code repositories} and {@code archived}.
+ */
+@RegisterForReflection
+public record OrganizationPoint(LocalDate day, Instant collectedAt, int repositories, int archived, long commitCount,
+                                long openIssueCount, long openPullRequestCount, long clonesInPast14Days, long viewsInPast14Days) {
+}
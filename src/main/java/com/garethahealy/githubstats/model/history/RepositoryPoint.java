@@ -0,0 +1,20 @@
+package com.garethahealy.githubstats.model.history;
+
+import com.garethahealy.githubstats.model.csv.Repository;
+import io.quarkus.runtime.annotations.RegisterForReflection;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * One repository in one snapshot, as kept in its per-repository series.
+ */
+@RegisterForReflection
+public record RepositoryPoint(LocalDate day, Instant collectedAt, int contributorCount, int commitCount, int openIssueCount,
+                              int openPullRequestCount, long clonesInPast14Days, long viewsInPast14Days, boolean isArchived) {
+
+    public static RepositoryPoint of(LocalDate day, Instant collectedAt, Repository row) {
+        return new RepositoryPoint(day, collectedAt, row.contributorCount(), row.commitCount(), row.openIssueCount(),
+            row.openPullRequestCount(), row.clonesInPast14Days(), row.viewsInPast14Days(), row.isArchived());
+    }
+}
@@ -0,0 +1,13 @@
+package com.garethahealy.githubstats.model.history;
+
+import com.garethahealy.githubstats.model.csv.Repository;
+import io.quarkus.runtime.annotations.RegisterForReflection;
+
+import java.time.Instant;
+
+/**
+ * One line of a daily snapshot file.
+ */
+@RegisterForReflection
+public record SnapshotRow(Instant collectedAt, Repository row) {
+}
@@ -0,0 +1,13 @@
+package com.garethahealy.githubstats.model.history;
+
+import io.quarkus.runtime.annotations.RegisterForReflection;
+
+import java.time.LocalDate;
+
+/**
+ * One day of a repository's traffic, as kept in its per-repository traffic series. Uniques are per day, so they
+ * cannot be summed into exact uniques for a longer window.
+ */
+@RegisterForReflection
+public record TrafficDay(LocalDate day, int views, int uniqueViews, int clones, int uniqueClones) {
+}
@@ -0,0 +1,11 @@
+package com.garethahealy.githubstats.model.state;
+
+import com.garethahealy.githubstats.model.csv.Repository;
+import io.quarkus.runtime.annotations.RegisterForReflection;
+
+/**
+ * One completed repository in the checkpoint journal of a {@code collect-stats} run.
+ */
+@RegisterForReflection
+public record CheckpointEntry(String name, String pushedAt, String updatedAt, Repository row) {
+}
@@ -0,0 +1,10 @@
+package com.garethahealy.githubstats.model.state;
+
+import io.quarkus.runtime.annotations.RegisterForReflection;
+
+/**
+ * First line of the checkpoint journal of a {@code collect-stats} run, naming the organization its entries belong to.
+ */
+@RegisterForReflection
+public record CheckpointHeader(String organization) {
+}
@@ -0,0 +1,47 @@
+package com.garethahealy.githubstats.model.state;
+
+import com.garethahealy.githubstats.model.csv.Repository;
+import io.quarkus.runtime.annotations.RegisterForReflection;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Sidecar written next to the CSV by {@code collect-stats --incremental}: the row produced for each repository together
+ * with the {@code pushedAt}/{@code updatedAt} it was collected at, and the columns those rows hold; {@code null}
+ * columns means every column, as written before {@code --fields}.
+ */
+@RegisterForReflection
+public record CollectionState(String organization, Instant collectedAt, Set<Repository.Headers> fields, Map<String, RepositoryState> repositories) {
+
+    public static CollectionState empty(String organization) {
+        return new CollectionState(organization, null, null, Map.of());
+    }
+
+    /**
+     * @return whether the rows hold every column in {@code wanted}, so they can be carried forward
+     */
+    public boolean covers(Set<Repository.Headers> wanted) {
+        return fields == null || fields.containsAll(wanted);
+    }
+
+    public Optional<RepositoryState> unchanged(String name, String pushedAt, String updatedAt) {
+        RepositoryState previous = repositories == null ? null : repositories.get(name);
+        if (previous == null || previous.row() == null || !previous.isVersion(pushedAt, updatedAt)) {
+            return Optional.empty();
+        }
+
+        return Optional.of(previous);
+    }
+
+    @RegisterForReflection
+    public record RepositoryState(String pushedAt, String updatedAt, Repository row) {
+
+        public boolean isVersion(String pushedAt, String updatedAt) {
+            return pushedAt != null && Objects.equals(this.pushedAt, pushedAt) && Objects.equals(this.updatedAt, updatedAt);
+        }
+    }
+}
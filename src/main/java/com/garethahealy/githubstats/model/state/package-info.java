@@ -0,0 +1 @@
+package com.garethahealy.githubstats.model.state;
@@ -0,0 +1,143 @@
+package com.garethahealy.githubstats.output;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.garethahealy.githubstats.model.state.CheckpointEntry;
+import com.garethahealy.githubstats.model.state.CheckpointHeader;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Append-only JSON lines journal of the rows completed so far, flushed per row so a run that dies can be resumed.
+ * The first line names the organization. Only a last line cut short by the crash is skipped on read, and it is cut off
+ * when the journal is resumed; any other unreadable line fails the read.
+ */
+public class CheckpointJournal implements AutoCloseable {
+
+    private final ObjectMapper objectMapper;
+    private final BufferedWriter writer;
+
+    public CheckpointJournal(Path path, String organization, ObjectMapper objectMapper, boolean resume) throws IOException {
+        this.objectMapper = objectMapper;
+
+        Path parent = path.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+
+        if (resume && Files.exists(path)) {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                channel.truncate(lastLineEnd(path));
+            }
+        }
+
+        boolean empty = !Files.exists(path) || Files.size(path) == 0;
+        this.writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            resume ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING);
+
+        if (!resume || empty) {
+            writer.write(objectMapper.writeValueAsString(new CheckpointHeader(organization)));
+            writer.newLine();
+            writer.flush();
+        }
+    }
+
+    /**
+     * @return completed rows keyed by repository name, later entries winning
+     * @throws IllegalStateException if the journal belongs to another organization, or a line other than a partial last
+     *                               one cannot be read
+     */
+    public static Map<String, CheckpointEntry> read(Path path, String organization, ObjectMapper objectMapper) throws IOException {
+        Map<String, CheckpointEntry> answer = new LinkedHashMap<>();
+        if (!Files.exists(path)) {
+            return answer;
+        }
+
+        boolean partialLastLine = lastLineEnd(path) < Files.size(path);
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            int number = 0;
+            String unreadable = null;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                number++;
+                if (line.isBlank()) {
+                    continue;
+                }
+
+                if (unreadable != null) {
+                    throw new IllegalStateException(unreadable);
+                }
+
+                try {
+                    if (number == 1) {
+                        checkHeader(path, organization, objectMapper.readValue(line, CheckpointHeader.class));
+                        continue;
+                    }
+
+                    CheckpointEntry entry = objectMapper.readValue(line, CheckpointEntry.class);
+                    if (entry.name() == null || entry.row() == null) {
+                        throw new IllegalStateException("Checkpoint journal " + path + " has an entry without a name or row on line " + number);
+                    }
+
+                    answer.put(entry.name(), entry);
+                } catch (JsonProcessingException e) {
+                    unreadable = "Checkpoint journal " + path + " cannot be read on line " + number + " because: " + e.getOriginalMessage();
+                }
+            }
+
+            if (unreadable != null && !partialLastLine) {
+                throw new IllegalStateException(unreadable);
+            }
+        }
+
+        return answer;
+    }
+
+    private static void checkHeader(Path path, String organization, CheckpointHeader header) {
+        if (header.organization() == null) {
+            throw new IllegalStateException("Checkpoint journal " + path + " does not name its organization, so cannot be resumed");
+        }
+
+        if (!header.organization().equalsIgnoreCase(organization)) {
+            throw new IllegalStateException("Checkpoint journal " + path + " belongs to " + header.organization() + ", not " + organization);
+        }
+    }
+
+    public synchronized void append(CheckpointEntry entry) throws IOException {
+        writer.write(objectMapper.writeValueAsString(entry));
+        writer.newLine();
+        writer.flush();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        writer.close();
+    }
+
+    /**
+     * @return the offset just past the last line break, which is the file size unless the last line was cut short
+     */
+    private static long lastLineEnd(Path path) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "r")) {
+            long answer = file.length();
+            while (answer > 0) {
+                file.seek(answer - 1);
+                if (file.read() == '\n') {
+                    return answer;
+                }
+
+                answer--;
+            }
+
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.garethahealy.githubstats.output;
+
+import com.garethahealy.githubstats.mapping.RepositoryFields;
+import com.garethahealy.githubstats.model.csv.Repository;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVPrinter;
+import org.apache.commons.csv.CSVRecord;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+public class CsvRowWriter implements RowWriter {
+
+    private final String organization;
+    private final boolean qualifyNames;
+    private final RepositoryFields fields;
+    private final CSVPrinter csvPrinter;
+
+    /**
+     * @param qualifyNames see {@link Repository#toArray(String, boolean)}
+     */
+    public CsvRowWriter(Path output, String organization, boolean qualifyNames) throws IOException {
+        this(output, organization, qualifyNames, RepositoryFields.all());
+    }
+
+    /**
+     * @param fields the columns written, in {@link Repository.Headers} order
+     */
+    public CsvRowWriter(Path output, String organization, boolean qualifyNames, RepositoryFields fields) throws IOException {
+        this(Files.newBufferedWriter(output, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING), organization, qualifyNames, fields);
+    }
+
+    public CsvRowWriter(Writer output, String organization, boolean qualifyNames) throws IOException {
+        this(output, organization, qualifyNames, RepositoryFields.all());
+    }
+
+    public CsvRowWriter(Writer output, String organization, boolean qualifyNames, RepositoryFields fields) throws IOException {
+        this.organization = organization;
+        this.qualifyNames = qualifyNames;
+        this.fields = fields;
+        this.csvPrinter = new CSVPrinter(output, writeFormat(fields));
+    }
+
+    @Override
+    public void write(Repository row) throws IOException {
+        List<String> values = row.toArray(organization, qualifyNames);
+        if (fields.isAll()) {
+            csvPrinter.printRecord(values);
+        } else {
+            csvPrinter.printRecord(fields.headers().stream().map(header -> values.get(header.ordinal())).toList());
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        csvPrinter.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        csvPrinter.close();
+    }
+
+    /**
+     * Joins the per-organization CSVs of a multi-organization run into one file, in the given order, under a single header.
+     */
+    public static void combine(List<Path> parts, Path output, RepositoryFields fields) throws IOException {
+        CSVFormat readFormat = CSVFormat.Builder.create(writeFormat(fields))
+            .setSkipHeaderRecord(true)
+            .get();
+
+        try (CSVPrinter csvPrinter = new CSVPrinter(Files.newBufferedWriter(output, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING), writeFormat(fields))) {
+            for (Path part : parts) {
+                try (Reader reader = Files.newBufferedReader(part, StandardCharsets.UTF_8); CSVParser parser = readFormat.parse(reader)) {
+                    for (CSVRecord record : parser) {
+                        csvPrinter.printRecord(record.values());
+                    }
+                }
+            }
+        }
+    }
+
+    private static CSVFormat writeFormat(RepositoryFields fields) {
+        return CSVFormat.Builder.create(CSVFormat.DEFAULT)
+            .setHeader(fields.headers().stream().map(Repository.Headers::name).toArray(String[]::new))
+            .get();
+    }
+}
@@ -0,0 +1,40 @@
+package com.garethahealy.githubstats.output;
+
+import com.garethahealy.githubstats.mapping.RepositoryFields;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+public enum OutputFormat {
+    CSV(".csv"),
+    ARROW(".arrow");
+
+    private final String extension;
+
+    OutputFormat(String extension) {
+        this.extension = extension;
+    }
+
+    public String extension() {
+        return extension;
+    }
+
+    /**
+     * @param qualifyNames see {@link CsvRowWriter#CsvRowWriter(Path, String, boolean)}; Arrow always has an organization column
+     * @param fields       the columns written
+     */
+    public RowWriter open(Path output, String organization, boolean qualifyNames, RepositoryFields fields) throws IOException {
+        return switch (this) {
+            case CSV -> new CsvRowWriter(output, organization, qualifyNames, fields);
+            case ARROW -> new ArrowRowWriter(output, organization, fields);
+        };
+    }
+
+    public void combine(List<Path> parts, Path output, RepositoryFields fields) throws IOException {
+        switch (this) {
+            case CSV -> CsvRowWriter.combine(parts, output, fields);
+            case ARROW -> ArrowRowWriter.combine(parts, output, fields);
+        }
+    }
+}
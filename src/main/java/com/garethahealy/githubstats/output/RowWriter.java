@@ -0,0 +1,19 @@
+package com.garethahealy.githubstats.output;
+
+import com.garethahealy.githubstats.model.csv.Repository;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Writes rows in one {@link OutputFormat}. Only called from the writer thread of {@link StreamingOutputWriter}.
+ */
+public interface RowWriter extends Closeable {
+
+    void write(Repository row) throws IOException;
+
+    /**
+     * Called whenever the writer thread has caught up; formats that write in batches may ignore it.
+     */
+    void flush() throws IOException;
+}
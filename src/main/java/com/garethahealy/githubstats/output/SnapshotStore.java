@@ -0,0 +1,320 @@
+package com.garethahealy.githubstats.output;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.garethahealy.githubstats.model.csv.Repository;
+import com.garethahealy.githubstats.model.history.OrganizationPoint;
+import com.garethahealy.githubstats.model.history.RepositoryPoint;
+import com.garethahealy.githubstats.model.history.SnapshotRow;
+import com.garethahealy.githubstats.model.history.TrafficDay;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Append-only history of every run, kept per organization as:
+ * <ul>
+ *     <li>{@code snapshots/<day>.jsonl}: the full rows of each run that day</li>
+ *     <li>{@code repos/<repository>.jsonl}: the series of one repository, so trends never read the snapshots</li>
+ *     <li>{@code organization.jsonl}: the totals of each run</li>
+ *     <li>{@code traffic/<repository>.jsonl}: the daily traffic of one repository, one line per day</li>
+ * </ul>
+ * Days are UTC. When a day holds several runs, e.g.: after a {@code --resume}, the last one wins.
+ */
+public class SnapshotStore {
+
+    private final Path directory;
+    private final ObjectMapper objectMapper;
+    private final Lock[] trafficLocks = new Lock[64];
+
+    public SnapshotStore(Path directory, ObjectMapper objectMapper) {
+        this.directory = directory;
+        this.objectMapper = objectMapper;
+
+        for (int i = 0; i < trafficLocks.length; i++) {
+            trafficLocks[i] = new ReentrantLock();
+        }
+    }
+
+    public RowWriter writer(String organization, Instant collectedAt) throws IOException {
+        return new SnapshotWriter(organization, collectedAt);
+    }
+
+    public NavigableMap<LocalDate, RepositoryPoint> repository(String organization, String repository, LocalDate since, LocalDate until) throws IOException {
+        return series(organization(organization).resolve("repos").resolve(repository + ".jsonl"), RepositoryPoint.class, RepositoryPoint::day, since, until);
+    }
+
+    public NavigableMap<LocalDate, OrganizationPoint> organization(String organization, LocalDate since, LocalDate until) throws IOException {
+        return series(organization(organization).resolve("organization.jsonl"), OrganizationPoint.class, OrganizationPoint::day, since, until);
+    }
+
+    public NavigableMap<LocalDate, TrafficDay> traffic(String organization, String repository, LocalDate since, LocalDate until) throws IOException {
+        return series(traffic(organization, repository), TrafficDay.class, TrafficDay::day, since, until);
+    }
+
+    /**
+     * Merges the days GitHub reported into the traffic series of {@code repository}. Runs overlap, as GitHub reports the
+     * past 14 days every time, so only the days after the last one kept are appended. The last day kept is rewritten if
+     * it changed, as GitHub reports the current day while it is still counting. Only the tail of the file is read, so a
+     * merge costs the days it adds rather than the length of the series.
+     * <p>
+     * Merges of one file are serialised, as {@code serve} merges a repository from a webhook while its scheduled refresh
+     * may be merging it too: within this store by a lock striped on the file, and across processes by a file lock.
+     *
+     * @return the number of days appended or rewritten
+     */
+    public int mergeTraffic(String organization, String repository, List<TrafficDay> days) throws IOException {
+        Path file = traffic(organization, repository);
+        Files.createDirectories(file.getParent());
+
+        List<TrafficDay> sorted = days.stream()
+            .sorted(Comparator.comparing(TrafficDay::day))
+            .toList();
+
+        Lock lock = trafficLocks[Math.floorMod(file.hashCode(), trafficLocks.length)];
+        lock.lock();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+             FileLock ignored = channel.lock()) {
+            long position = lastLineEnd(channel);
+            long lastStart = position;
+            TrafficDay last = null;
+            if (position > 0) {
+                lastStart = lastLineStart(channel, position);
+                try {
+                    last = objectMapper.readValue(read(channel, lastStart, position), TrafficDay.class);
+                } catch (JsonProcessingException e) {
+                    throw new IllegalStateException("Traffic series " + file + " cannot be read on its last line because: " + e.getOriginalMessage());
+                }
+            }
+
+            StringBuilder lines = new StringBuilder();
+            int answer = 0;
+            for (TrafficDay current : sorted) {
+                boolean rewrite = last != null && current.day().equals(last.day()) && !current.equals(last);
+                if (rewrite) {
+                    position = lastStart;
+                }
+
+                if (last == null || current.day().isAfter(last.day()) || rewrite) {
+                    lines.append(objectMapper.writeValueAsString(current)).append('\n');
+                    answer++;
+                }
+            }
+
+            channel.truncate(position);
+            channel.position(position);
+            ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+
+            return answer;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Path organization(String organization) {
+        return directory.resolve(organization.toLowerCase());
+    }
+
+    private Path traffic(String organization, String repository) {
+        return organization(organization).resolve("traffic").resolve(repository + ".jsonl");
+    }
+
+    /**
+     * @return the offset just past the last line break, which is the size of the file unless a crash cut its last line short
+     */
+    private static long lastLineEnd(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size == 0) {
+            return 0;
+        }
+
+        ByteBuffer last = ByteBuffer.allocate(1);
+        channel.read(last, size - 1);
+        return last.get(0) == '\n' ? size : lastLineStart(channel, size + 1);
+    }
+
+    /**
+     * @return where the line ending at {@code end} starts, ignoring its trailing newline
+     */
+    private static long lastLineStart(FileChannel channel, long end) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(512);
+        long position = end - 1;
+        while (position > 0) {
+            long from = Math.max(0, position - buffer.capacity());
+            buffer.clear().limit((int) (position - from));
+            channel.read(buffer, from);
+            for (int i = buffer.position() - 1; i >= 0; i--) {
+                if (buffer.get(i) == '\n') {
+                    return from + i + 1;
+                }
+            }
+
+            position = from;
+        }
+
+        return 0;
+    }
+
+    private static String read(FileChannel channel, long start, long end) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) (end - start));
+        while (buffer.hasRemaining() && channel.read(buffer, start + buffer.position()) >= 0) {
+            // read until full
+        }
+
+        return new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8);
+    }
+
+    private <T> NavigableMap<LocalDate, T> series(Path file, Class<T> type, Function<T, LocalDate> day, LocalDate since, LocalDate until) throws IOException {
+        NavigableMap<LocalDate, T> answer = new TreeMap<>();
+        for (T current : read(file, type)) {
+            LocalDate key = day.apply(current);
+            if ((since == null || !key.isBefore(since)) && (until == null || !key.isAfter(until))) {
+                answer.put(key, current);
+            }
+        }
+
+        return answer;
+    }
+
+    /**
+     * Lines in file order; only a last line cut short by a crash is skipped, as the next append cuts it off.
+     *
+     * @throws IllegalStateException if any other line cannot be read
+     */
+    private <T> List<T> read(Path file, Class<T> type) throws IOException {
+        List<T> answer = new ArrayList<>();
+        if (!Files.exists(file)) {
+            return answer;
+        }
+
+        boolean partialLastLine;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            partialLastLine = lastLineEnd(channel) < channel.size();
+        }
+
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            int number = 0;
+            String unreadable = null;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                number++;
+                if (line.isBlank()) {
+                    continue;
+                }
+
+                if (unreadable != null) {
+                    throw new IllegalStateException(unreadable);
+                }
+
+                try {
+                    answer.add(objectMapper.readValue(line, type));
+                } catch (JsonProcessingException e) {
+                    unreadable = "History file " + file + " cannot be read on line " + number + " because: " + e.getOriginalMessage();
+                }
+            }
+
+            if (unreadable != null && !partialLastLine) {
+                throw new IllegalStateException(unreadable);
+            }
+        }
+
+        return answer;
+    }
+
+    private void append(Path file, Object value) throws IOException {
+        try (BufferedWriter writer = appender(file)) {
+            writer.write(objectMapper.writeValueAsString(value));
+            writer.newLine();
+        }
+    }
+
+    /**
+     * Opens {@code file} for appending, first cutting off a last line left partial by a crash.
+     */
+    private static BufferedWriter appender(Path file) throws IOException {
+        Files.createDirectories(file.getParent());
+        if (Files.exists(file)) {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.READ)) {
+                channel.truncate(lastLineEnd(channel));
+            }
+        }
+
+        return Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private final class SnapshotWriter implements RowWriter {
+
+        private final Path root;
+        private final Instant collectedAt;
+        private final LocalDate day;
+        private final BufferedWriter snapshot;
+        private int repositories;
+        private int archived;
+        private long commitCount;
+        private long openIssueCount;
+        private long openPullRequestCount;
+        private long clonesInPast14Days;
+        private long viewsInPast14Days;
+
+        private SnapshotWriter(String organization, Instant collectedAt) throws IOException {
+            this.root = organization(organization);
+            this.collectedAt = collectedAt;
+            this.day = LocalDate.ofInstant(collectedAt, ZoneOffset.UTC);
+            this.snapshot = appender(root.resolve("snapshots").resolve(day + ".jsonl"));
+        }
+
+        @Override
+        public void write(Repository row) throws IOException {
+            snapshot.write(objectMapper.writeValueAsString(new SnapshotRow(collectedAt, row)));
+            snapshot.newLine();
+
+            append(root.resolve("repos").resolve(row.repoName() + ".jsonl"), RepositoryPoint.of(day, collectedAt, row));
+
+            repositories++;
+            if (row.isArchived()) {
+                archived++;
+            } else {
+                commitCount += row.commitCount();
+                openIssueCount += row.openIssueCount();
+                openPullRequestCount += row.openPullRequestCount();
+                clonesInPast14Days += row.clonesInPast14Days();
+                viewsInPast14Days += row.viewsInPast14Days();
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            snapshot.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try (snapshot) {
+                append(root.resolve("organization.jsonl"), new OrganizationPoint(day, collectedAt, repositories, archived, commitCount,
+                    openIssueCount, openPullRequestCount, clonesInPast14Days, viewsInPast14Days));
+            }
+        }
+    }
+}
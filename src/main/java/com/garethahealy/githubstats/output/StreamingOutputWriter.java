@@ -0,0 +1,216 @@
+package com.garethahealy.githubstats.output;
+
+import com.garethahealy.githubstats.model.csv.Repository;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Hands completed rows to a single writer thread through a bounded queue and flushes whenever the queue drains,
+ * so the output can be tailed while a run is in progress. {@link Order#ORG} holds early finishers in a reorder
+ * buffer until every row before them has been written; a row more than {@code capacity} ahead of the next one due waits
+ * in {@link #write(int, Repository)}, so memory stays bounded behind a slow repository, and a repository that fails is
+ * passed to {@link #skip(int)} so later rows do not wait for it. Each row goes to every {@link RowWriter}, one per output format.
+ * Once a writer fails the queue is still drained, so producers are never left blocked, and the failure is raised from
+ * {@link #write(int, Repository)} and {@link #close()}.
+ */
+public class StreamingOutputWriter implements AutoCloseable {
+
+    public static final int DEFAULT_CAPACITY = 256;
+
+    public enum Order {
+        COMPLETION,
+        ORG
+    }
+
+    private static final Row END = new Row(-1, null);
+
+    private final List<RowWriter> writers;
+    private final Order order;
+    private final int capacity;
+    private final BlockingQueue<Row> queue;
+    private final Map<Integer, Row> pending = new TreeMap<>();
+    private final ReentrantLock window = new ReentrantLock();
+    private final Condition advanced = window.newCondition();
+    private final Thread thread;
+    private volatile int nextSequence;
+    private volatile Exception failure;
+
+    /**
+     * @param writers closed together with this writer
+     */
+    public StreamingOutputWriter(List<RowWriter> writers, Order order, int capacity) {
+        this.writers = List.copyOf(writers);
+        this.order = order;
+        this.capacity = capacity;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.thread = Thread.ofPlatform().name("output-writer").start(this::drain);
+    }
+
+    /**
+     * Blocks while the queue is full and, in {@link Order#ORG}, while {@code sequence} is {@code capacity} or more
+     * rows ahead of the next one due.
+     *
+     * @param sequence position of the repository in the organization listing, starting at 0
+     * @throws IOException once a {@link RowWriter} has failed
+     */
+    public void write(int sequence, Repository repository) throws IOException, InterruptedException {
+        if (order == Order.ORG) {
+            awaitWindow(sequence);
+        }
+
+        checkFailure();
+        queue.put(new Row(sequence, repository));
+    }
+
+    /**
+     * Gives up on the row at {@code sequence}, i.e.: as its repository failed, so {@link Order#ORG} moves past it.
+     * Ignored once the row has been written.
+     */
+    public void skip(int sequence) throws InterruptedException {
+        if (order == Order.ORG) {
+            queue.put(new Row(sequence, null));
+        }
+    }
+
+    private void awaitWindow(int sequence) throws InterruptedException {
+        window.lock();
+        try {
+            while (failure == null && sequence - nextSequence >= capacity) {
+                advanced.await();
+            }
+        } finally {
+            window.unlock();
+        }
+    }
+
+    private void checkFailure() throws IOException {
+        Exception current = failure;
+        if (current != null) {
+            throw new IOException("Failed to write output", current);
+        }
+    }
+
+    private void drain() {
+        try {
+            Row current = queue.take();
+            while (current != END) {
+                accept(current);
+                current = queue.take();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void accept(Row row) {
+        if (failure != null) {
+            return;
+        }
+
+        try {
+            if (order == Order.COMPLETION) {
+                print(row.repository());
+            } else if (row.sequence() >= nextSequence) {
+                if (row.repository() == null) {
+                    pending.putIfAbsent(row.sequence(), row);
+                } else {
+                    pending.put(row.sequence(), row);
+                }
+
+                advance();
+            }
+
+            if (queue.isEmpty()) {
+                for (RowWriter writer : writers) {
+                    writer.flush();
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            fail(e);
+        }
+    }
+
+    private void advance() throws IOException {
+        int start = nextSequence;
+
+        Row next;
+        while ((next = pending.remove(nextSequence)) != null) {
+            if (next.repository() != null) {
+                print(next.repository());
+            }
+
+            nextSequence++;
+        }
+
+        if (nextSequence != start) {
+            signal();
+        }
+    }
+
+    private void fail(Exception e) {
+        failure = e;
+        signal();
+    }
+
+    private void signal() {
+        window.lock();
+        try {
+            advanced.signalAll();
+        } finally {
+            window.unlock();
+        }
+    }
+
+    private void print(Repository repository) throws IOException {
+        for (RowWriter writer : writers) {
+            writer.write(repository);
+        }
+    }
+
+    @Override
+    public void close() throws IOException, InterruptedException {
+        queue.put(END);
+        thread.join();
+
+        Exception answer = failure;
+        if (answer == null) {
+            try {
+                for (Row current : pending.values()) {
+                    if (current.repository() != null) {
+                        print(current.repository());
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                answer = e;
+            }
+        }
+
+        for (RowWriter writer : writers) {
+            try {
+                writer.close();
+            } catch (IOException | RuntimeException e) {
+                if (answer == null) {
+                    answer = e;
+                } else {
+                    answer.addSuppressed(e);
+                }
+            }
+        }
+
+        if (answer instanceof IOException e) {
+            throw e;
+        } else if (answer instanceof RuntimeException e) {
+            throw e;
+        }
+    }
+
+    private record Row(int sequence, Repository repository) {
+    }
+}
@@ -0,0 +1 @@
+package com.garethahealy.githubstats.output;
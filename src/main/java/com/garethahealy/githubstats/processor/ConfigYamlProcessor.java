@@ -1,60 +1,118 @@
 package com.garethahealy.githubstats.processor;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.garethahealy.githubstats.model.config.ConfigIndex;
 import jakarta.enterprise.context.ApplicationScoped;
-import org.apache.commons.collections4.IteratorUtils;
 
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
-import java.util.TreeSet;
 
 @ApplicationScoped
 public class ConfigYamlProcessor {
 
-    public Set<String> getReposFromYaml(JsonNode configMap) {
-        Set<String> answer = new TreeSet<>();
-        if (configMap == null || configMap.isNull() || configMap.isMissingNode()) {
-            return answer;
+    /**
+     * Same index as {@link #index(String, JsonNode)}, built from the parser's token stream in a single pass without
+     * materialising the tree, so memory is bounded by nesting depth plus the index itself. Everything outside
+     * {@code orgs} is skipped unread.
+     */
+    public ConfigIndex index(String sha, JsonParser parser) throws IOException {
+        Map<String, Set<String>> answer = new HashMap<>();
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            return new ConfigIndex(sha, answer);
         }
 
-        JsonNode orgs = configMap.get("orgs");
-        if (orgs == null || orgs.isMissingNode() || orgs.isNull()) {
-            return answer;
-        }
+        Deque<Frame> frames = new ArrayDeque<>();
+        frames.push(new Frame(null, false, null));
 
-        recursiveGetRepos(answer, orgs);
+        JsonToken token;
+        while (!frames.isEmpty() && (token = parser.nextToken()) != null) {
+            Frame parent = frames.peek();
+            if (token == JsonToken.FIELD_NAME) {
+                if (parent.reposOf != null) {
+                    answer.computeIfAbsent(parser.currentName(), key -> new HashSet<>()).add(parent.reposOf);
+                }
+            } else if (token.isStructEnd()) {
+                frames.pop();
+            } else if (parent.path == null && !parent.array) {
+                if (token.isStructStart() && "orgs".equals(parser.currentName())) {
+                    frames.push(new Frame("", token == JsonToken.START_ARRAY, null));
+                } else {
+                    parser.skipChildren();
+                }
+            } else {
+                String name = parent.array ? String.valueOf(parent.elements++) : parser.currentName();
+                if (token.isStructStart()) {
+                    String path = parent.path.isEmpty() ? name : parent.path + "/" + name;
+                    boolean isRepos = token == JsonToken.START_OBJECT && !parent.array && !parent.path.isEmpty() && "repos".equals(name);
+                    frames.push(new Frame(path, token == JsonToken.START_ARRAY, isRepos ? parent.path : null));
+                }
+            }
+        }
 
-        return answer;
+        return new ConfigIndex(sha, answer);
     }
 
-    private void recursiveGetRepos(Set<String> allRepos, JsonNode parent) {
-        if (parent == null || parent.isMissingNode() || parent.isNull() || !parent.isContainerNode()) {
-            return;
-        }
+    /**
+     * An open object or array: its path from {@code orgs} (empty for {@code orgs} itself, {@code null} for the document),
+     * and, for a {@code repos} block, the path its keys are recorded against.
+     */
+    private static final class Frame {
 
-        for (JsonNode child : parent) {
-            JsonNode repos = child.get("repos");
+        private final String path;
+        private final boolean array;
+        private final String reposOf;
+        private int elements;
 
-            if (repos != null && repos.isObject()) {
-                allRepos.addAll(IteratorUtils.toList(repos.fieldNames()));
-            }
-
-            recursiveGetRepos(allRepos, child);
+        private Frame(String path, boolean array, String reposOf) {
+            this.path = path;
+            this.array = array;
+            this.reposOf = reposOf;
         }
     }
 
-    public Set<String> getArchivedReposFromYaml(JsonNode configMap) {
-        Set<String> answer = new TreeSet<>();
+    /**
+     * Walks the config once, recording every {@code repos} block under {@code orgs} against the path of keys leading to
+     * it, i.e.: {@code redhat-cop/teams/aarchived}.
+     */
+    public ConfigIndex index(String sha, JsonNode configMap) {
+        Map<String, Set<String>> answer = new HashMap<>();
         if (configMap == null || configMap.isNull() || configMap.isMissingNode()) {
-            return answer;
+            return new ConfigIndex(sha, answer);
         }
 
-        JsonNode archived = configMap.path("orgs").path("redhat-cop").path("teams").path("aarchived").path("repos");
-        if (!archived.isObject()) {
-            return answer;
+        JsonNode orgs = configMap.get("orgs");
+        if (orgs == null || orgs.isMissingNode() || orgs.isNull()) {
+            return new ConfigIndex(sha, answer);
         }
 
-        answer.addAll(IteratorUtils.toList(archived.fieldNames()));
+        recursiveIndexChildren(answer, "", orgs);
+
+        return new ConfigIndex(sha, answer);
+    }
+
+    private void recursiveIndex(Map<String, Set<String>> index, String path, JsonNode parent) {
+        JsonNode repos = parent.get("repos");
+        if (repos != null && repos.isObject()) {
+            repos.fieldNames().forEachRemaining(repo -> index.computeIfAbsent(repo, key -> new HashSet<>()).add(path));
+        }
 
-        return answer;
+        recursiveIndexChildren(index, path + "/", parent);
+    }
+
+    private void recursiveIndexChildren(Map<String, Set<String>> index, String prefix, JsonNode parent) {
+        if (parent.isObject()) {
+            parent.fields().forEachRemaining(child -> recursiveIndex(index, prefix + child.getKey(), child.getValue()));
+        } else if (parent.isArray()) {
+            for (int i = 0; i < parent.size(); i++) {
+                recursiveIndex(index, prefix + i, parent.get(i));
+            }
+        }
     }
 }
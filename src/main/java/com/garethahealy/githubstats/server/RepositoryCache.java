@@ -0,0 +1,130 @@
+package com.garethahealy.githubstats.server;
+
+import com.garethahealy.githubstats.model.csv.Repository;
+import com.garethahealy.githubstats.model.state.CheckpointEntry;
+import com.garethahealy.githubstats.model.state.CollectionState;
+import io.quarkus.runtime.annotations.RegisterForReflection;
+import jakarta.enterprise.context.ApplicationScoped;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * The latest row of every repository in the organizations being served. Rows are replaced one at a time as a refresh
+ * completes them, so readers never wait for a refresh and always see the newest row of each repository.
+ */
+@ApplicationScoped
+public class RepositoryCache {
+
+    /**
+     * @param refreshedAt when the last refresh completed, or {@code null} while the first is running
+     */
+    @RegisterForReflection
+    public record Summary(String organization, int repositories, Instant refreshedAt) {
+    }
+
+    private static final class Entries {
+
+        private final String organization;
+        private final Map<String, CheckpointEntry> rows = new ConcurrentSkipListMap<>(String.CASE_INSENSITIVE_ORDER);
+        private volatile Instant refreshedAt;
+
+        private Entries(String organization) {
+            this.organization = organization;
+        }
+    }
+
+    private final Map<String, Entries> organizations = new ConcurrentHashMap<>();
+
+    public void register(String organization) {
+        organizations.computeIfAbsent(key(organization), key -> new Entries(organization));
+    }
+
+    public boolean isServed(String organization) {
+        return organizations.containsKey(key(organization));
+    }
+
+    public void put(String organization, CheckpointEntry entry) {
+        entries(organization).rows.put(entry.name(), entry);
+    }
+
+    public void remove(String organization, String repository) {
+        entries(organization).rows.remove(repository);
+    }
+
+    /**
+     * @return the repositories cached for {@code organization} now, i.e.: before a refresh starts
+     */
+    public Set<String> names(String organization) {
+        return Set.copyOf(entries(organization).rows.keySet());
+    }
+
+    /**
+     * Marks a refresh as complete, dropping the repositories it no longer listed. Only those cached before it started, see
+     * {@link #names(String)}, are dropped, so a repository a webhook added while it ran is kept.
+     */
+    public void refreshed(String organization, Instant refreshedAt, Set<String> before, Set<String> listed) {
+        Entries entries = entries(organization);
+        entries.rows.keySet().removeIf(name -> before.contains(name) && !listed.contains(name));
+        entries.refreshedAt = refreshedAt;
+    }
+
+    /**
+     * @return every organization has completed a refresh
+     */
+    public boolean isReady() {
+        return organizations.values().stream().allMatch(entries -> entries.refreshedAt != null);
+    }
+
+    public List<Summary> summaries() {
+        return organizations.values().stream()
+            .map(entries -> new Summary(entries.organization, entries.rows.size(), entries.refreshedAt))
+            .toList();
+    }
+
+    /**
+     * @return the rows of {@code organization} by repository name, or empty if it is not served
+     */
+    public Optional<List<Repository>> rows(String organization) {
+        return Optional.ofNullable(organizations.get(key(organization)))
+            .map(entries -> entries.rows.values().stream().map(CheckpointEntry::row).toList());
+    }
+
+    public Optional<Repository> row(String organization, String repository) {
+        return Optional.ofNullable(organizations.get(key(organization)))
+            .map(entries -> entries.rows.get(repository))
+            .map(CheckpointEntry::row);
+    }
+
+    /**
+     * @return the cached rows as the previous state of an incremental refresh, or {@code null} before the first refresh
+     */
+    public CollectionState state(String organization) {
+        Entries entries = entries(organization);
+        if (entries.refreshedAt == null) {
+            return null;
+        }
+
+        Map<String, CollectionState.RepositoryState> answer = new ConcurrentHashMap<>();
+        entries.rows.forEach((name, entry) -> answer.put(name, new CollectionState.RepositoryState(entry.pushedAt(), entry.updatedAt(), entry.row())));
+        return new CollectionState(entries.organization, entries.refreshedAt, null, answer);
+    }
+
+    private Entries entries(String organization) {
+        Entries answer = organizations.get(key(organization));
+        if (answer == null) {
+            throw new IllegalArgumentException(organization + " is not served");
+        }
+
+        return answer;
+    }
+
+    private static String key(String organization) {
+        return organization.toLowerCase();
+    }
+}
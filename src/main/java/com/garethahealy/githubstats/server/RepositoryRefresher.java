@@ -0,0 +1,44 @@
+package com.garethahealy.githubstats.server;
+
+import com.garethahealy.githubstats.services.CollectStatsService;
+import com.garethahealy.githubstats.services.GitHubOrganizationLookupService;
+import org.jboss.logging.Logger;
+import org.kohsuke.github.GHOrganization;
+
+import java.util.function.Function;
+
+/**
+ * Re-collects one repository after a webhook, through the same path as a full refresh, and removes it from the
+ * {@link RepositoryCache} once GitHub no longer finds it.
+ */
+public class RepositoryRefresher implements WebhookHandler.Refresher {
+
+    private final Logger logger;
+    private final GitHubOrganizationLookupService gitHubOrganizationLookupService;
+    private final CollectStatsService collectStatsService;
+    private final RepositoryCache cache;
+    private final Function<GHOrganization, CollectStatsService.Sink> sinks;
+
+    /**
+     * @param sinks the sink each collected row is handed to, which puts it in {@code cache}
+     */
+    public RepositoryRefresher(Logger logger, GitHubOrganizationLookupService gitHubOrganizationLookupService, CollectStatsService collectStatsService,
+                               RepositoryCache cache, Function<GHOrganization, CollectStatsService.Sink> sinks) {
+        this.logger = logger;
+        this.gitHubOrganizationLookupService = gitHubOrganizationLookupService;
+        this.collectStatsService = collectStatsService;
+        this.cache = cache;
+        this.sinks = sinks;
+    }
+
+    @Override
+    public void refresh(String organization, String repository) throws Exception {
+        GHOrganization org = gitHubOrganizationLookupService.getOrganization(organization);
+        boolean found = collectStatsService.collectRepository(org, repository, sinks.apply(org));
+        if (!found) {
+            cache.remove(organization, repository);
+        }
+
+        logger.infof("Refreshed %s/%s from webhook", organization, repository);
+    }
+}
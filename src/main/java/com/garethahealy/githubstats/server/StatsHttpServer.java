@@ -0,0 +1,187 @@
+package com.garethahealy.githubstats.server;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.garethahealy.githubstats.metrics.RunMetrics;
+import com.garethahealy.githubstats.model.csv.Repository;
+import com.garethahealy.githubstats.output.CsvRowWriter;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.jboss.logging.Logger;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Serves the {@link RepositoryCache} over HTTP, on the JDK server so commands that do not serve never open a port:
+ * <ul>
+ *     <li>{@code GET /organizations}: a summary of each organization</li>
+ *     <li>{@code GET /organizations/<organization>/repositories}: its rows, as JSON or, with {@code ?format=csv} or
+ *     {@code Accept: text/csv}, as CSV</li>
+ *     <li>{@code GET /organizations/<organization>/repositories/<repository>}: one row, as JSON</li>
+ *     <li>{@code GET /health}: 200 once every organization has been refreshed, 503 until then</li>
+ *     <li>{@code GET /metrics}: the run metrics in Prometheus format</li>
+ * </ul>
+ * Other endpoints, i.e.: webhooks, are added with {@link #route(String, Handler)}.
+ */
+public class StatsHttpServer implements AutoCloseable {
+
+    static final String JSON = "application/json";
+    private static final String CSV = "text/csv";
+
+    private final Logger logger;
+    private final RepositoryCache cache;
+    private final ObjectMapper objectMapper;
+    private final RunMetrics metrics;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final HttpServer server;
+
+    public StatsHttpServer(InetSocketAddress address, Logger logger, RepositoryCache cache, ObjectMapper objectMapper, RunMetrics metrics) throws IOException {
+        this.logger = logger;
+        this.cache = cache;
+        this.objectMapper = objectMapper;
+        this.metrics = metrics;
+        this.server = HttpServer.create(address, 0);
+        this.server.setExecutor(executor);
+        this.server.createContext("/", this::handle);
+    }
+
+    /**
+     * Serves {@code path} with {@code handler} rather than the read API, for any method.
+     */
+    public void route(String path, Handler handler) {
+        server.createContext(path, exchange -> {
+            try (exchange) {
+                try {
+                    handler.handle(exchange);
+                } catch (RuntimeException e) {
+                    fail(exchange, e);
+                }
+            }
+        });
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public InetSocketAddress address() {
+        return server.getAddress();
+    }
+
+    @Override
+    public void close() {
+        server.stop(1);
+        executor.close();
+    }
+
+    @FunctionalInterface
+    public interface Handler {
+
+        void handle(HttpExchange exchange) throws IOException;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            try {
+                serve(exchange);
+            } catch (RuntimeException e) {
+                fail(exchange, e);
+            }
+        }
+    }
+
+    /**
+     * Answers 500 for a handler that threw before responding, while the exchange is still open.
+     */
+    private void fail(HttpExchange exchange, RuntimeException e) throws IOException {
+        logger.errorf("Failed to handle %s %s because: %s", exchange.getRequestMethod(), exchange.getRequestURI(), e.getMessage());
+        if (exchange.getResponseCode() == -1) {
+            sendError(exchange, 500, "Internal error");
+        }
+    }
+
+    private void serve(HttpExchange exchange) throws IOException {
+        if (!"GET".equals(exchange.getRequestMethod())) {
+            exchange.getResponseHeaders().set("Allow", "GET");
+            sendError(exchange, 405, "Only GET is supported");
+            return;
+        }
+
+        String[] path = exchange.getRequestURI().getPath().replaceAll("^/+|/+$", "").split("/+");
+        if (path.length == 1 && path[0].equals("health")) {
+            boolean ready = cache.isReady();
+            send(exchange, ready ? 200 : 503, JSON, objectMapper.writeValueAsBytes(Map.of("status", ready ? "UP" : "DOWN")));
+        } else if (path.length == 1 && path[0].equals("metrics")) {
+            send(exchange, 200, "text/plain; version=0.0.4", metrics.prometheus().getBytes(StandardCharsets.UTF_8));
+        } else if (path.length == 1 && path[0].equals("organizations")) {
+            send(exchange, 200, JSON, objectMapper.writeValueAsBytes(cache.summaries()));
+        } else if (path.length == 3 && path[0].equals("organizations") && path[2].equals("repositories")) {
+            sendRows(exchange, path[1]);
+        } else if (path.length == 4 && path[0].equals("organizations") && path[2].equals("repositories")) {
+            Optional<Repository> row = cache.row(path[1], path[3]);
+            if (row.isPresent()) {
+                send(exchange, 200, JSON, objectMapper.writeValueAsBytes(row.get()));
+            } else {
+                sendError(exchange, 404, path[1] + "/" + path[3] + " is not served");
+            }
+        } else {
+            sendError(exchange, 404, "No such resource");
+        }
+    }
+
+    private void sendRows(HttpExchange exchange, String organization) throws IOException {
+        Optional<List<Repository>> rows = cache.rows(organization);
+        if (rows.isEmpty()) {
+            sendError(exchange, 404, organization + " is not served");
+            return;
+        }
+
+        if (!wantsCsv(exchange)) {
+            send(exchange, 200, JSON, objectMapper.writeValueAsBytes(rows.get()));
+            return;
+        }
+
+        exchange.getResponseHeaders().set("Content-Type", CSV + "; charset=utf-8");
+        exchange.sendResponseHeaders(200, 0);
+        try (Writer writer = new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8);
+             CsvRowWriter csv = new CsvRowWriter(writer, organization, false)) {
+            for (Repository current : rows.get()) {
+                csv.write(current);
+            }
+        }
+    }
+
+    private static boolean wantsCsv(HttpExchange exchange) {
+        URI uri = exchange.getRequestURI();
+        if (uri.getQuery() != null && List.of(uri.getQuery().split("&")).contains("format=csv")) {
+            return true;
+        }
+
+        String accept = exchange.getRequestHeaders().getFirst("Accept");
+        return accept != null && accept.contains(CSV);
+    }
+
+    private void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        send(exchange, status, JSON, objectMapper.writeValueAsBytes(Map.of("error", message)));
+    }
+
+    static void send(HttpExchange exchange, int status, String contentType, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+        if (body.length > 0) {
+            try (OutputStream output = exchange.getResponseBody()) {
+                output.write(body);
+            }
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.garethahealy.githubstats.server;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import org.jboss.logging.Logger;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Accepts GitHub {@code push}, {@code issues}, {@code pull_request} and {@code repository} webhooks and re-collects only
+ * the repository they name, so the {@link RepositoryCache} stays current without polling the organization.
+ * <p>
+ * Deliveries are answered before the repository is collected, as GitHub gives up on a delivery after 10 seconds. A
+ * burst of deliveries for one repository is coalesced: at most one collection runs per repository, and deliveries that
+ * arrive during it cause one more.
+ */
+public class WebhookHandler implements StatsHttpServer.Handler, AutoCloseable {
+
+    static final Set<String> EVENTS = Set.of("push", "issues", "pull_request", "repository");
+
+    @FunctionalInterface
+    public interface Refresher {
+
+        /**
+         * Re-collects {@code repository} into the cache, removing it if it no longer exists.
+         */
+        void refresh(String organization, String repository) throws Exception;
+    }
+
+    private final Logger logger;
+    private final RepositoryCache cache;
+    private final ObjectMapper objectMapper;
+    private final Refresher refresher;
+    private final SecretKeySpec secret;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<String, Boolean> queued = new ConcurrentHashMap<>();
+
+    /**
+     * @param secret the secret the webhook was created with, or {@code null} to accept unsigned deliveries
+     */
+    public WebhookHandler(Logger logger, RepositoryCache cache, ObjectMapper objectMapper, Refresher refresher, String secret) {
+        this.logger = logger;
+        this.cache = cache;
+        this.objectMapper = objectMapper;
+        this.refresher = refresher;
+        this.secret = secret == null ? null : new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        if (!"POST".equals(exchange.getRequestMethod())) {
+            exchange.getResponseHeaders().set("Allow", "POST");
+            reply(exchange, 405, "Only POST is supported");
+            return;
+        }
+
+        byte[] body;
+        try (InputStream input = exchange.getRequestBody()) {
+            body = input.readAllBytes();
+        }
+
+        if (!isSigned(body, exchange.getRequestHeaders().getFirst("X-Hub-Signature-256"))) {
+            reply(exchange, 401, "Signature does not match");
+            return;
+        }
+
+        String event = exchange.getRequestHeaders().getFirst("X-GitHub-Event");
+        if ("ping".equals(event)) {
+            reply(exchange, 200, "pong");
+            return;
+        }
+
+        if (event == null || !EVENTS.contains(event)) {
+            reply(exchange, 202, "ignored");
+            return;
+        }
+
+        JsonNode payload;
+        try {
+            payload = objectMapper.readTree(body);
+        } catch (JsonProcessingException e) {
+            reply(exchange, 400, "Payload is not JSON");
+            return;
+        }
+
+        String organization = payload.path("repository").path("owner").path("login").asText(null);
+        String repository = payload.path("repository").path("name").asText(null);
+        if (organization == null || repository == null) {
+            reply(exchange, 400, "Payload has no repository");
+            return;
+        }
+
+        if (!cache.isServed(organization)) {
+            reply(exchange, 202, "ignored");
+            return;
+        }
+
+        logger.infof("Webhook %s for %s/%s", event, organization, repository);
+
+        if ("repository".equals(event)) {
+            String action = payload.path("action").asText("");
+            if (action.equals("deleted")) {
+                cache.remove(organization, repository);
+                reply(exchange, 202, "removed");
+                return;
+            }
+
+            if (action.equals("renamed")) {
+                String previous = payload.path("changes").path("repository").path("name").path("from").asText(null);
+                if (previous != null) {
+                    cache.remove(organization, previous);
+                }
+            }
+        }
+
+        submit(organization, repository);
+        reply(exchange, 202, "queued");
+    }
+
+    @Override
+    public void close() {
+        executor.close();
+    }
+
+    /**
+     * {@link #queued} holds the repositories being collected, mapped to whether another delivery arrived meanwhile.
+     */
+    private void submit(String organization, String repository) {
+        String key = organization.toLowerCase() + "/" + repository;
+        if (queued.merge(key, false, (running, ignored) -> true)) {
+            return;
+        }
+
+        executor.submit(() -> {
+            do {
+                try {
+                    refresher.refresh(organization, repository);
+                } catch (InterruptedException e) {
+                    queued.remove(key);
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (Exception e) {
+                    logger.errorf("Failed to refresh %s/%s because: %s", organization, repository, e.getMessage());
+                }
+            } while (queued.computeIfPresent(key, (ignored, again) -> again ? false : null) != null);
+        });
+    }
+
+    private boolean isSigned(byte[] body, String signature) {
+        if (secret == null) {
+            return true;
+        }
+
+        if (signature == null || !signature.startsWith("sha256=")) {
+            return false;
+        }
+
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(secret);
+            byte[] expected = mac.doFinal(body);
+            return MessageDigest.isEqual(expected, HexFormat.of().parseHex(signature.substring("sha256=".length())));
+        } catch (IllegalArgumentException e) {
+            return false;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void reply(HttpExchange exchange, int status, String message) throws IOException {
+        StatsHttpServer.send(exchange, status, StatsHttpServer.JSON, objectMapper.writeValueAsBytes(Map.of("status", message)));
+    }
+}
@@ -0,0 +1,431 @@
+package com.garethahealy.githubstats.services;
+
+import com.garethahealy.githubstats.mapping.GraphqlRepositoryToCsvMapper;
+import com.garethahealy.githubstats.mapping.RepositoryFields;
+import com.garethahealy.githubstats.mapping.fields.CloneTrafficUniquesMapping;
+import com.garethahealy.githubstats.mapping.fields.DailyTrafficMapping;
+import com.garethahealy.githubstats.mapping.fields.ViewTrafficUniquesMapping;
+import com.garethahealy.githubstats.metrics.RunMetrics;
+import com.garethahealy.githubstats.model.config.ConfigIndex;
+import com.garethahealy.githubstats.model.csv.Repository;
+import com.garethahealy.githubstats.model.history.TrafficDay;
+import com.garethahealy.githubstats.model.state.CheckpointEntry;
+import com.garethahealy.githubstats.model.state.CollectionState;
+import jakarta.enterprise.context.ApplicationScoped;
+import org.apache.commons.collections4.ListUtils;
+import org.jboss.logging.Logger;
+import org.kohsuke.github.GHOrganization;
+import org.kohsuke.github.GHRepository;
+import org.kohsuke.github.GHRepositoryCloneTraffic;
+import org.kohsuke.github.GHRepositoryViewTraffic;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Collects the CSV row of every repository in an organization. Rows are handed to a {@link Sink} as they complete,
+ * from several threads at once; the sink decides where they go.
+ */
+@ApplicationScoped
+public class CollectStatsService {
+
+    public enum Engine {
+        PER_REPO,
+        ORG_SWEEP
+    }
+
+    /**
+     * @param fields    columns to collect; sources no selected column maps from are not fetched
+     * @param previous  state of the previous {@code --incremental} run, or {@code null} to collect every repository
+     * @param journaled rows completed by a run being resumed, keyed by repository name
+     * @param pace      gap between the starts of successive repositories, to spread their calls over time; zero starts them all at once
+     */
+    public record Request(GHOrganization organization, int repoLimit, int graphqlBatchSize, Engine engine, RepositoryFields fields, boolean refreshTraffic,
+                          CollectionState previous, Map<String, CheckpointEntry> journaled, Duration pace) {
+    }
+
+    public interface Sink {
+
+        void completed(int sequence, CheckpointEntry entry) throws IOException, InterruptedException;
+
+        /**
+         * A row taken from {@link Request#journaled()} rather than collected.
+         */
+        void restored(int sequence, CheckpointEntry entry) throws IOException, InterruptedException;
+
+        /**
+         * The daily breakdown of a repository's traffic, whenever it is fetched. Called before the repository completes.
+         */
+        default void traffic(String name, List<TrafficDay> days) throws IOException {
+        }
+
+        /**
+         * The repository at {@code sequence} failed and will not complete, so output kept in listing order can move past it.
+         */
+        default void failed(int sequence) throws InterruptedException {
+        }
+    }
+
+    private final Logger logger;
+    private final GitHubOrganizationLookupService gitHubOrganizationLookupService;
+    private final GitHubTrafficLookupService gitHubTrafficLookupService;
+    private final GitHubContributorsLookupService gitHubContributorsLookupService;
+    private final GitHubRepositoryStatsService gitHubRepositoryStatsService;
+    private final GitHubConfigYamlService gitHubConfigYamlService;
+    private final GraphqlRepositoryToCsvMapper graphqlRepositoryToCsvMapper;
+    private final CloneTrafficUniquesMapping cloneTrafficUniquesMapping;
+    private final ViewTrafficUniquesMapping viewTrafficUniquesMapping;
+    private final DailyTrafficMapping dailyTrafficMapping;
+    private final RunMetrics metrics;
+
+    public CollectStatsService(Logger logger, GitHubOrganizationLookupService gitHubOrganizationLookupService, GitHubTrafficLookupService gitHubTrafficLookupService,
+                               GitHubContributorsLookupService gitHubContributorsLookupService, GitHubRepositoryStatsService gitHubRepositoryStatsService,
+                               GitHubConfigYamlService gitHubConfigYamlService, GraphqlRepositoryToCsvMapper graphqlRepositoryToCsvMapper,
+                               CloneTrafficUniquesMapping cloneTrafficUniquesMapping, ViewTrafficUniquesMapping viewTrafficUniquesMapping,
+                               DailyTrafficMapping dailyTrafficMapping, RunMetrics metrics) {
+        this.logger = logger;
+        this.gitHubOrganizationLookupService = gitHubOrganizationLookupService;
+        this.gitHubTrafficLookupService = gitHubTrafficLookupService;
+        this.gitHubContributorsLookupService = gitHubContributorsLookupService;
+        this.gitHubRepositoryStatsService = gitHubRepositoryStatsService;
+        this.gitHubConfigYamlService = gitHubConfigYamlService;
+        this.graphqlRepositoryToCsvMapper = graphqlRepositoryToCsvMapper;
+        this.cloneTrafficUniquesMapping = cloneTrafficUniquesMapping;
+        this.viewTrafficUniquesMapping = viewTrafficUniquesMapping;
+        this.dailyTrafficMapping = dailyTrafficMapping;
+        this.metrics = metrics;
+    }
+
+    public void collect(Request request, Sink sink) throws IOException, ExecutionException, InterruptedException {
+        ConfigIndex config = request.fields().needsConfig() ? config(request.organization()) : ConfigIndex.empty();
+
+        switch (request.engine()) {
+            case PER_REPO -> collect(request, config, sink);
+            case ORG_SWEEP -> sweep(request, config, sink);
+        }
+    }
+
+    /**
+     * Collects one repository, i.e.: after a webhook reported a change to it. Its row is handed to
+     * {@link Sink#completed(int, CheckpointEntry)} as sequence 0.
+     *
+     * @return {@code false} if the repository no longer exists
+     */
+    public boolean collectRepository(GHOrganization org, String name, Sink sink) throws IOException, ExecutionException, InterruptedException {
+        GHRepository repo = metrics.time("rest.repository", () -> org.getRepository(name));
+        if (repo == null) {
+            return false;
+        }
+
+        ConfigIndex config = config(org);
+        if (repo.isArchived()) {
+            sink.completed(0, archivedEntry(org.getLogin(), repo.getName(), timestamp(repo.getPushedAt()), timestamp(repo.getUpdatedAt()), config));
+            return true;
+        }
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<com.garethahealy.githubstats.clients.graphql.generated.Repository> graphqlRepository = executor.submit(() -> gitHubRepositoryStatsService.fetchRepositoryStats(org.getLogin(), name, RepositoryFields.all()));
+
+            RunMetrics.Sample sample = metrics.start("repository");
+            Repository row;
+            try {
+                row = runnable(executor, org.getLogin(), repo.getName(), null, graphqlRepository, config, RepositoryFields.all(), false, sink);
+                sample.stop();
+            } catch (IOException | ExecutionException | InterruptedException e) {
+                sample.stop(e);
+                throw e;
+            }
+
+            sink.completed(0, new CheckpointEntry(repo.getName(), timestamp(repo.getPushedAt()), timestamp(repo.getUpdatedAt()), row));
+        }
+
+        return true;
+    }
+
+    private ConfigIndex config(GHOrganization org) throws IOException {
+        GHRepository coreOrg = org.getRepository("org");
+        if (coreOrg == null) {
+            logger.warnf("Did not find %s/org, so no repos are marked as in config", org.getLogin());
+        }
+
+        return coreOrg == null ? ConfigIndex.empty() : gitHubConfigYamlService.fetchOrgConfigIndex(coreOrg);
+    }
+
+    /**
+     * Repositories are worked on page by page as the listing arrives, so collection overlaps with listing rather than
+     * waiting for every page.
+     */
+    private void collect(Request request, ConfigIndex config, Sink sink) throws IOException, ExecutionException, InterruptedException {
+        GHOrganization org = request.organization();
+
+        long started = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> futures = new ArrayList<>();
+            AtomicInteger sequences = new AtomicInteger();
+            AtomicInteger unchangedCount = new AtomicInteger();
+
+            int found = gitHubOrganizationLookupService.listRepositories(org, request.repoLimit(), page -> {
+                Map<String, CollectionState.RepositoryState> unchanged = new HashMap<>();
+                List<GHRepository> changed = new ArrayList<>();
+                for (GHRepository repo : page) {
+                    if (repo.isArchived() || request.journaled().containsKey(repo.getName())) {
+                        continue;
+                    }
+
+                    Optional<CollectionState.RepositoryState> state = request.previous() == null ? Optional.empty()
+                        : request.previous().unchanged(repo.getName(), timestamp(repo.getPushedAt()), timestamp(repo.getUpdatedAt()));
+                    if (state.isPresent()) {
+                        unchanged.put(repo.getName(), state.get());
+                    } else {
+                        changed.add(repo);
+                    }
+                }
+
+                unchangedCount.addAndGet(unchanged.size());
+                Map<String, Future<com.garethahealy.githubstats.clients.graphql.generated.Repository>> graphqlRepositories = submitRepositoryStats(executor, org, changed, request.graphqlBatchSize(), request.fields());
+
+                for (GHRepository current : page) {
+                    int sequence = sequences.getAndIncrement();
+                    CheckpointEntry checkpoint = request.journaled().get(current.getName());
+                    if (checkpoint != null) {
+                        sink.restored(sequence, checkpoint);
+                        continue;
+                    }
+
+                    String pushedAt = timestamp(current.getPushedAt());
+                    String updatedAt = timestamp(current.getUpdatedAt());
+                    if (current.isArchived()) {
+                        sink.completed(sequence, archivedEntry(org.getLogin(), current.getName(), pushedAt, updatedAt, config));
+                        continue;
+                    }
+
+                    int slot = futures.size();
+                    Future<com.garethahealy.githubstats.clients.graphql.generated.Repository> graphqlRepository = graphqlRepositories.get(current.getName());
+                    futures.add(executor.submit(reporting(sequence, sink, () -> {
+                        pace(started, request.pace(), slot);
+                        Repository row = metrics.time("repository", () -> runnable(executor, org.getLogin(), current.getName(), unchanged.get(current.getName()), graphqlRepository, config, request.fields(), request.refreshTraffic(), sink));
+                        sink.completed(sequence, new CheckpointEntry(current.getName(), pushedAt, updatedAt, row));
+                        return null;
+                    })));
+                }
+            });
+
+            logger.infof("Found %s repos in %s", found, org.getName());
+            if (request.previous() != null) {
+                logger.infof("Incremental: %s of %s repos unchanged in %s since %s", unchangedCount.get(), found, org.getLogin(), request.previous().collectedAt());
+            }
+
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+    }
+
+    /**
+     * Pages the active repositories in name order with their stats, then the archived ones. A {@code repoLimit} takes
+     * the active repositories first, so unlike {@link #collect} it only reaches archived ones once the active ones run out.
+     */
+    private void sweep(Request request, ConfigIndex config, Sink sink) throws IOException, ExecutionException, InterruptedException {
+        GHOrganization org = request.organization();
+
+        long started = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> futures = new ArrayList<>();
+            AtomicInteger sequences = new AtomicInteger();
+
+            int found = gitHubRepositoryStatsService.sweepOrganizationRepositoryStats(org.getLogin(), request.repoLimit(), request.fields(), page -> {
+                for (com.garethahealy.githubstats.clients.graphql.generated.Repository current : page) {
+                    int sequence = sequences.getAndIncrement();
+                    CheckpointEntry checkpoint = request.journaled().get(current.getName());
+                    if (checkpoint != null) {
+                        sink.restored(sequence, checkpoint);
+                        continue;
+                    }
+
+                    CollectionState.RepositoryState unchanged = request.previous() == null ? null
+                        : request.previous().unchanged(current.getName(), current.getPushedAt(), current.getUpdatedAt()).orElse(null);
+
+                    int slot = futures.size();
+                    futures.add(executor.submit(reporting(sequence, sink, () -> {
+                        pace(started, request.pace(), slot);
+                        Repository row = metrics.time("repository", () -> runnable(executor, org.getLogin(), current.getName(), unchanged, CompletableFuture.completedFuture(current), config, request.fields(), request.refreshTraffic(), sink));
+                        sink.completed(sequence, new CheckpointEntry(current.getName(), current.getPushedAt(), current.getUpdatedAt(), row));
+                        return null;
+                    })));
+                }
+            });
+
+            List<com.garethahealy.githubstats.clients.graphql.generated.Repository> archived = new ArrayList<>();
+            if (request.repoLimit() <= 0 || found < request.repoLimit()) {
+                gitHubRepositoryStatsService.sweepOrganizationArchivedRepositories(org.getLogin(), request.repoLimit() > 0 ? request.repoLimit() - found : 0, archived::addAll);
+            }
+
+            logger.infof("Found %s repos (%s archived) in %s", found + archived.size(), archived.size(), org.getName());
+
+            int first = sequences.get();
+            for (int i = 0; i < archived.size(); i++) {
+                com.garethahealy.githubstats.clients.graphql.generated.Repository current = archived.get(i);
+                CheckpointEntry checkpoint = request.journaled().get(current.getName());
+                if (checkpoint == null) {
+                    sink.completed(first + i, archivedEntry(org.getLogin(), current.getName(), current.getPushedAt(), current.getUpdatedAt(), config));
+                } else {
+                    sink.restored(first + i, checkpoint);
+                }
+            }
+
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+    }
+
+    /**
+     * Archived repositories get no stats, so their row is built from the listing and the config.yaml index alone, on the
+     * listing thread, rather than being scheduled like the others.
+     */
+    private static CheckpointEntry archivedEntry(String organization, String name, String pushedAt, String updatedAt, ConfigIndex config) {
+        return new CheckpointEntry(name, pushedAt, updatedAt, Repository.archived(name, config.contains(name), config.isArchived(organization, name)));
+    }
+
+    /**
+     * When no selected column maps from GraphQL, nothing is sent and every lookup is {@code null}.
+     */
+    private Map<String, Future<com.garethahealy.githubstats.clients.graphql.generated.Repository>> submitRepositoryStats(ExecutorService executor, GHOrganization org, List<GHRepository> repos, int graphqlBatchSize, RepositoryFields fields) {
+        Map<String, Future<com.garethahealy.githubstats.clients.graphql.generated.Repository>> answer = new HashMap<>();
+
+        List<String> names = repos.stream()
+            .map(GHRepository::getName)
+            .toList();
+
+        if (!fields.needsGraphql()) {
+            names.forEach(name -> answer.put(name, CompletableFuture.completedFuture(null)));
+            return answer;
+        }
+
+        for (List<String> batch : ListUtils.partition(names, graphqlBatchSize)) {
+            CompletableFuture<Map<String, com.garethahealy.githubstats.clients.graphql.generated.Repository>> future = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return gitHubRepositoryStatsService.fetchRepositoryStats(org.getLogin(), batch, fields);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new CompletionException(e);
+                }
+            }, executor);
+            for (String name : batch) {
+                answer.put(name, future.thenApply(repositories -> repositories.get(name)));
+            }
+        }
+
+        return answer;
+    }
+
+    /**
+     * The REST calls of a repository are forked onto {@code executor} and joined together with its GraphQL lookup, so a
+     * repository takes as long as its slowest call. If any call fails the others are cancelled. Calls no selected column
+     * maps from are skipped. Only active repositories come here; archived ones are built by {@link #archivedEntry}.
+     */
+    private Repository runnable(ExecutorService executor, String owner, String name, CollectionState.RepositoryState unchanged, Future<com.garethahealy.githubstats.clients.graphql.generated.Repository> graphqlLookup, ConfigIndex config, RepositoryFields fields, boolean refreshTraffic, Sink sink) throws IOException, ExecutionException, InterruptedException {
+        boolean inConfig = config.contains(name);
+
+        if (unchanged != null) {
+            return carryForward(executor, owner, name, unchanged.row(), inConfig, fields, refreshTraffic, sink);
+        }
+
+        logger.infof("Working on: %s/%s", owner, name);
+
+        Future<Integer> contributorCount = submitIf(executor, fields.contains(Repository.Headers.ContributorCount), () -> gitHubContributorsLookupService.countContributors(owner, name));
+        Future<GHRepositoryCloneTraffic> cloneTraffic = submitIf(executor, fields.contains(Repository.Headers.ClonesInPast14Days), () -> gitHubTrafficLookupService.getCloneTraffic(owner, name));
+        Future<GHRepositoryViewTraffic> viewTraffic = submitIf(executor, fields.contains(Repository.Headers.ViewsInPast14Days), () -> gitHubTrafficLookupService.getViewTraffic(owner, name));
+
+        try {
+            if (fields.needsTraffic()) {
+                sink.traffic(name, dailyTrafficMapping.dailyTraffic(cloneTraffic.get(), viewTraffic.get()));
+            }
+
+            return graphqlRepositoryToCsvMapper.toCsvRow(name, graphqlLookup.get(), contributorCount.get(), cloneTraffic.get(), viewTraffic.get(), inConfig, false, false);
+        } finally {
+            cancelAll(contributorCount, cloneTraffic, viewTraffic);
+        }
+    }
+
+    private Repository carryForward(ExecutorService executor, String owner, String name, Repository previous, boolean inConfig, RepositoryFields fields, boolean refreshTraffic, Sink sink) throws IOException, ExecutionException, InterruptedException {
+        Repository answer = previous.withConfig(inConfig, false);
+        if (refreshTraffic && fields.needsTraffic()) {
+            logger.infof("Refreshing traffic for unchanged: %s/%s", owner, name);
+
+            boolean clones = fields.contains(Repository.Headers.ClonesInPast14Days);
+            boolean views = fields.contains(Repository.Headers.ViewsInPast14Days);
+            Future<GHRepositoryCloneTraffic> cloneTraffic = submitIf(executor, clones, () -> gitHubTrafficLookupService.getCloneTraffic(owner, name));
+            Future<GHRepositoryViewTraffic> viewTraffic = submitIf(executor, views, () -> gitHubTrafficLookupService.getViewTraffic(owner, name));
+
+            try {
+                sink.traffic(name, dailyTrafficMapping.dailyTraffic(cloneTraffic.get(), viewTraffic.get()));
+                answer = answer.withTraffic(clones ? cloneTrafficUniquesMapping.cloneTrafficUniques(cloneTraffic.get()) : answer.clonesInPast14Days(),
+                    views ? viewTrafficUniquesMapping.viewTrafficUniques(viewTraffic.get()) : answer.viewsInPast14Days());
+            } finally {
+                cancelAll(cloneTraffic, viewTraffic);
+            }
+        }
+
+        return answer;
+    }
+
+    /**
+     * Tells {@code sink} when the repository at {@code sequence} fails, so rows after it are not held back.
+     */
+    private static Callable<Void> reporting(int sequence, Sink sink, Callable<Void> task) {
+        return () -> {
+            try {
+                return task.call();
+            } catch (Exception e) {
+                sink.failed(sequence);
+                throw e;
+            }
+        };
+    }
+
+    private static <T> Future<T> submitIf(ExecutorService executor, boolean needed, Callable<T> call) {
+        return needed ? executor.submit(call) : CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Waits until the start slot of the {@code sequence}th repository.
+     */
+    private static void pace(long started, Duration pace, int sequence) throws InterruptedException {
+        if (pace.isZero()) {
+            return;
+        }
+
+        long wait = started + pace.toNanos() * sequence - System.nanoTime();
+        if (wait > 0) {
+            Thread.sleep(Duration.ofNanos(wait));
+        }
+    }
+
+    /**
+     * No-op for calls that already completed; stops the stragglers when a sibling call failed.
+     */
+    private static void cancelAll(Future<?>... futures) {
+        for (Future<?> future : futures) {
+            future.cancel(true);
+        }
+    }
+
+    private static String timestamp(Date date) {
+        return date == null ? null : date.toInstant().toString();
+    }
+}
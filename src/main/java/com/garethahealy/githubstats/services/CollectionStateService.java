@@ -0,0 +1,58 @@
+package com.garethahealy.githubstats.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.garethahealy.githubstats.mapping.RepositoryFields;
+import com.garethahealy.githubstats.model.state.CollectionState;
+import jakarta.enterprise.context.ApplicationScoped;
+import org.jboss.logging.Logger;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+@ApplicationScoped
+public class CollectionStateService {
+
+    private final Logger logger;
+    private final ObjectMapper objectMapper;
+
+    public CollectionStateService(Logger logger, ObjectMapper objectMapper) {
+        this.logger = logger;
+        this.objectMapper = objectMapper;
+    }
+
+    public CollectionState load(Path stateFile, String organization, RepositoryFields fields) {
+        if (!Files.exists(stateFile)) {
+            logger.infof("No previous state at %s, collecting every repository", stateFile);
+            return CollectionState.empty(organization);
+        }
+
+        try {
+            CollectionState answer = objectMapper.readValue(stateFile.toFile(), CollectionState.class);
+            if (!organization.equalsIgnoreCase(answer.organization())) {
+                logger.warnf("Ignoring state at %s because it was collected for %s, not %s", stateFile, answer.organization(), organization);
+                return CollectionState.empty(organization);
+            }
+
+            if (!answer.covers(fields.headers())) {
+                logger.warnf("Ignoring state at %s because it was collected with --fields %s, which does not hold all of %s", stateFile, answer.fields(), fields.headers());
+                return CollectionState.empty(organization);
+            }
+
+            return answer;
+        } catch (IOException e) {
+            logger.warnf("Ignoring unreadable state at %s because: %s", stateFile, e.getMessage());
+            return CollectionState.empty(organization);
+        }
+    }
+
+    public void save(Path stateFile, CollectionState state) throws IOException {
+        Path parent = stateFile.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+
+        Path temp = Files.createTempFile(parent, stateFile.getFileName().toString(), ".tmp");
+        objectMapper.writeValue(temp.toFile(), state);
+        Files.move(temp, stateFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -1,7 +1,12 @@
 package com.garethahealy.githubstats.services;
 
-import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.dataformat.yaml.YAMLMapper;
+import com.garethahealy.githubstats.config.GitHubConfigProperties;
+import com.garethahealy.githubstats.metrics.RunMetrics;
+import com.garethahealy.githubstats.model.config.ConfigIndex;
+import com.garethahealy.githubstats.processor.ConfigYamlProcessor;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Named;
 import org.jboss.logging.Logger;
@@ -13,36 +18,120 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @ApplicationScoped
 public class GitHubConfigYamlService {
 
+    private static final String FILE_NAME = "config.yaml";
+    private static final String BRANCH = "main";
+
     private final Logger logger;
     private final YAMLMapper yamlMapper;
+    private final ObjectMapper objectMapper;
+    private final ConfigYamlProcessor configYamlProcessor;
+    private final RunMetrics metrics;
+    private final boolean persist;
+    private final Path directory;
+    private final Map<String, ConfigIndex> indexes = new ConcurrentHashMap<>();
 
-    public GitHubConfigYamlService(Logger logger, @Named("yaml") YAMLMapper yamlMapper) {
+    public GitHubConfigYamlService(Logger logger, @Named("yaml") YAMLMapper yamlMapper, ObjectMapper objectMapper, ConfigYamlProcessor configYamlProcessor,
+                                   GitHubConfigProperties github, RunMetrics metrics) {
         this.logger = logger;
         this.yamlMapper = yamlMapper;
+        this.objectMapper = objectMapper;
+        this.configYamlProcessor = configYamlProcessor;
+        this.metrics = metrics;
+        this.persist = github.cache().enabled();
+        this.directory = Path.of(github.cache().directory(), "config-index");
     }
 
-    public JsonNode fetchOrgConfigYaml(GHRepository coreOrg) throws IOException {
-        JsonNode answer = null;
+    /**
+     * Compares the blob sha of {@code config.yaml} against the index kept in memory and, when {@code github.cache.enabled},
+     * under {@code github.cache.directory}, and only downloads and parses the file when it has changed.
+     *
+     * @return the index, empty if the file does not exist
+     */
+    public ConfigIndex fetchOrgConfigIndex(GHRepository coreOrg) throws IOException {
+        String organization = coreOrg.getOwnerName().toLowerCase(Locale.ROOT);
 
-        String fileName = "config.yaml";
-        String branch = "main";
+        String sha = metrics.time("rest.config_yaml_sha", () -> sha(coreOrg));
+        if (sha == null) {
+            logger.warnf("Did not find %s/%s/%s from %s", coreOrg.getOwnerName(), coreOrg.getName(), FILE_NAME, BRANCH);
+            return ConfigIndex.empty();
+        }
 
-        try {
-            logger.infof("Downloading %s/%s/%s from %s", coreOrg.getOwnerName(), coreOrg.getName(), fileName, branch);
+        ConfigIndex previous = indexes.computeIfAbsent(organization, this::load);
+        if (sha.equals(previous.sha())) {
+            logger.infof("%s/%s/%s is unchanged at %s, reusing its index", coreOrg.getOwnerName(), coreOrg.getName(), FILE_NAME, sha);
+            return previous;
+        }
 
-            GHContent content = coreOrg.getFileContent(fileName, branch);
+        ConfigIndex answer = metrics.time("rest.config_yaml", () -> downloadOrgConfigIndex(coreOrg, sha));
+        indexes.put(organization, answer);
+        save(organization, answer);
+
+        return answer;
+    }
 
-            try (BufferedReader reader = new BufferedReader(new InputStreamReader(content.read(), StandardCharsets.UTF_8))) {
-                answer = yamlMapper.readValue(reader, JsonNode.class);
+    private String sha(GHRepository coreOrg) throws IOException {
+        try {
+            for (GHContent current : coreOrg.getDirectoryContent("", BRANCH)) {
+                if (current.isFile() && current.getName().equals(FILE_NAME)) {
+                    return current.getSha();
+                }
             }
         } catch (GHFileNotFoundException ex) {
-            logger.warnf("Did not find %s/%s/%s from %s : %s", coreOrg.getOwnerName(), coreOrg.getName(), fileName, branch, ex);
+            logger.debugf("Did not find %s/%s from %s : %s", coreOrg.getOwnerName(), coreOrg.getName(), BRANCH, ex);
         }
 
-        return answer;
+        return null;
+    }
+
+    /**
+     * Reads the blob raw rather than through the contents API, which only inlines files up to 1 MB and base64 encodes
+     * them, and parses it as it arrives.
+     */
+    private ConfigIndex downloadOrgConfigIndex(GHRepository coreOrg, String sha) throws IOException {
+        logger.infof("Downloading %s/%s/%s from %s at %s", coreOrg.getOwnerName(), coreOrg.getName(), FILE_NAME, BRANCH, sha);
+
+        try (JsonParser parser = yamlMapper.createParser(new BufferedReader(new InputStreamReader(coreOrg.readBlob(sha), StandardCharsets.UTF_8)))) {
+            return configYamlProcessor.index(sha, parser);
+        }
+    }
+
+    private ConfigIndex load(String organization) {
+        Path file = directory.resolve(organization + ".json");
+        if (!persist || !Files.exists(file)) {
+            return ConfigIndex.empty();
+        }
+
+        try {
+            return objectMapper.readValue(file.toFile(), ConfigIndex.class);
+        } catch (IOException e) {
+            logger.warnf("Ignoring unreadable config index at %s because: %s", file, e.getMessage());
+            return ConfigIndex.empty();
+        }
+    }
+
+    private void save(String organization, ConfigIndex index) {
+        if (!persist) {
+            return;
+        }
+
+        try {
+            Files.createDirectories(directory);
+
+            Path temp = Files.createTempFile(directory, organization, ".tmp");
+            objectMapper.writeValue(temp.toFile(), index);
+            Files.move(temp, directory.resolve(organization + ".json"), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warnf("Could not save the config index to %s because: %s", directory, e.getMessage());
+        }
     }
 }
@@ -1,15 +1,23 @@
 package com.garethahealy.githubstats.services;
 
+import com.garethahealy.githubstats.clients.GitHubRestClient;
+import com.garethahealy.githubstats.metrics.RunMetrics;
 import jakarta.enterprise.context.ApplicationScoped;
-import org.kohsuke.github.GHRepository;
 
 import java.io.IOException;
-import java.util.List;
 
 @ApplicationScoped
 public class GitHubContributorsLookupService {
 
-    public List<GHRepository.Contributor> getContributors(GHRepository repo) throws IOException {
-        return repo.listContributors().toList();
+    private final GitHubRestClient restClient;
+    private final RunMetrics metrics;
+
+    public GitHubContributorsLookupService(GitHubRestClient restClient, RunMetrics metrics) {
+        this.restClient = restClient;
+        this.metrics = metrics;
+    }
+
+    public int countContributors(String owner, String name) throws IOException {
+        return metrics.time("rest.contributors", () -> restClient.count("/repos/" + owner + "/" + name + "/contributors"));
     }
 }
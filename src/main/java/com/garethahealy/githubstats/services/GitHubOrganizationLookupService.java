@@ -1,38 +1,99 @@
 package com.garethahealy.githubstats.services;
 
+import com.garethahealy.githubstats.metrics.RunMetrics;
 import jakarta.enterprise.context.ApplicationScoped;
+import org.kohsuke.github.GHException;
 import org.kohsuke.github.GHOrganization;
 import org.kohsuke.github.GHRepository;
+import org.kohsuke.github.PagedIterator;
 import org.kohsuke.github.GitHub;
 
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 @ApplicationScoped
 public class GitHubOrganizationLookupService {
 
     private final GitHub client;
+    private final RunMetrics metrics;
 
-    public GitHubOrganizationLookupService(GitHub client) {
+    public GitHubOrganizationLookupService(GitHub client, RunMetrics metrics) {
         this.client = client;
+        this.metrics = metrics;
     }
 
     public GHOrganization getOrganization(String organization) throws IOException {
-        return client.getOrganization(organization);
+        return metrics.time("rest.organization", () -> client.getOrganization(organization));
     }
 
-    public List<GHRepository> getRepositories(GHOrganization org, int repoLimit) throws IOException {
-        List<GHRepository> answer = new ArrayList<>();
+    public interface PageConsumer {
 
+        void accept(List<GHRepository> page) throws IOException, InterruptedException;
+    }
+
+    /**
+     * Lists the repositories of an organization a page at a time, handing each page to {@code pageConsumer} as it
+     * arrives. The next page is fetched while the consumer works on the current one, and no page is requested once
+     * {@code repoLimit} repositories have been listed.
+     *
+     * @param repoLimit 0 lists every repository
+     * @return the number of repositories handed over
+     */
+    public int listRepositories(GHOrganization org, int repoLimit, PageConsumer pageConsumer) throws IOException, InterruptedException {
         int pageSize = repoLimit > 0 ? Math.min(repoLimit, 100) : 100;
-        for (GHRepository ghRepository : org.listRepositories(pageSize)) {
-            answer.add(ghRepository);
-            if (repoLimit > 0 && answer.size() >= repoLimit) {
-                break;
+        PagedIterator<GHRepository> pages = org.listRepositories(pageSize).iterator();
+
+        int count = 0;
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<List<GHRepository>> next = executor.submit(() -> nextPage(pages));
+            try {
+                while (next != null) {
+                    List<GHRepository> page = await(next);
+                    if (repoLimit > 0 && count + page.size() > repoLimit) {
+                        page = page.subList(0, repoLimit - count);
+                    }
+
+                    count += page.size();
+                    next = page.isEmpty() || (repoLimit > 0 && count >= repoLimit) ? null : executor.submit(() -> nextPage(pages));
+
+                    if (!page.isEmpty()) {
+                        pageConsumer.accept(page);
+                    }
+                }
+            } finally {
+                if (next != null) {
+                    next.cancel(true);
+                }
             }
         }
 
-        return answer;
+        return count;
+    }
+
+    private List<GHRepository> nextPage(PagedIterator<GHRepository> pages) throws IOException {
+        return metrics.time("rest.list_repositories", () -> pages.hasNext() ? pages.nextPage() : List.of());
+    }
+
+    /**
+     * Unwraps the {@link IOException} the paged iterator wraps in a {@link GHException}.
+     */
+    private static List<GHRepository> await(Future<List<GHRepository>> page) throws IOException, InterruptedException {
+        try {
+            return page.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof GHException && e.getCause().getCause() instanceof IOException cause) {
+                throw cause;
+            }
+
+            if (e.getCause() instanceof IOException cause) {
+                throw cause;
+            }
+
+            throw new IllegalStateException(e.getCause());
+        }
     }
 }
@@ -4,12 +4,21 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.garethahealy.githubstats.clients.GitHubGraphQLClient;
 import com.garethahealy.githubstats.clients.graphql.generated.Repository;
 import com.garethahealy.githubstats.config.jackson.GraphqlObjectMapper;
+import com.garethahealy.githubstats.config.jackson.JsonpBinding;
+import com.garethahealy.githubstats.mapping.RepositoryFields;
+import com.garethahealy.githubstats.metrics.RunMetrics;
+import com.garethahealy.githubstats.model.graphql.GitHubOrgRepoStatsGraphqlData;
 import com.garethahealy.githubstats.model.graphql.GitHubRepoStatsGraphqlData;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.json.JsonObject;
+import jakarta.json.JsonValue;
 import org.jboss.logging.Logger;
 
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.ExecutionException;
 
 @ApplicationScoped
@@ -18,25 +27,147 @@ public class GitHubRepositoryStatsService {
     private final Logger logger;
     private final GitHubGraphQLClient gitHubGraphQLClient;
     private final ObjectMapper graphqlResponseMapper;
+    private final RunMetrics metrics;
 
-    public GitHubRepositoryStatsService(Logger logger, GitHubGraphQLClient gitHubGraphQLClient, @GraphqlObjectMapper ObjectMapper objectMapper) {
+    public GitHubRepositoryStatsService(Logger logger, GitHubGraphQLClient gitHubGraphQLClient, @GraphqlObjectMapper ObjectMapper objectMapper, RunMetrics metrics) {
         this.logger = logger;
         this.gitHubGraphQLClient = gitHubGraphQLClient;
         this.graphqlResponseMapper = objectMapper;
+        this.metrics = metrics;
     }
 
-    public Repository fetchRepositoryStats(String owner, String name) {
+    public Repository fetchRepositoryStats(String owner, String name, RepositoryFields fields) throws InterruptedException {
         Repository answer = null;
 
+        RunMetrics.Sample sample = metrics.start("graphql.repo_stats");
         try {
-            JsonObject response = gitHubGraphQLClient.getRepoStats(owner, name);
-            GitHubRepoStatsGraphqlData payload = graphqlResponseMapper.readValue(response.toString(), GitHubRepoStatsGraphqlData.class);
+            JsonObject response = gitHubGraphQLClient.getRepoStats(owner, name, fields.graphqlIncludes());
+            GitHubRepoStatsGraphqlData payload = JsonpBinding.readValue(graphqlResponseMapper, response, GitHubRepoStatsGraphqlData.class);
 
             answer = payload.repository();
-        } catch (IOException | IllegalStateException | ExecutionException | InterruptedException e) {
+            sample.stop();
+        } catch (IOException | IllegalStateException | ExecutionException e) {
+            sample.stop(e);
             logger.errorf("Error while trying to fetch repository stats for %s/%s because: %s", owner, name, e.getMessage());
+        } catch (InterruptedException e) {
+            sample.stop(e);
+            throw e;
         }
 
         return answer;
     }
+
+    /**
+     * Repositories whose alias failed in the batch, or the whole batch if the query failed, are looked up on their own.
+     */
+    public Map<String, Repository> fetchRepositoryStats(String owner, List<String> names, RepositoryFields fields) throws InterruptedException {
+        Map<String, Repository> answer = new HashMap<>();
+        if (names.size() == 1) {
+            answer.put(names.getFirst(), fetchRepositoryStats(owner, names.getFirst(), fields));
+            return answer;
+        }
+
+        RunMetrics.Sample sample = metrics.start("graphql.repo_stats_batch");
+        try {
+            Map<String, JsonValue> response = gitHubGraphQLClient.getRepoStats(owner, names, fields.graphqlIncludes());
+            for (Map.Entry<String, JsonValue> current : response.entrySet()) {
+                Repository repository = null;
+                if (current.getValue().getValueType() == JsonValue.ValueType.OBJECT) {
+                    repository = JsonpBinding.readValue(graphqlResponseMapper, current.getValue(), Repository.class);
+                }
+
+                answer.put(current.getKey(), repository);
+            }
+
+            sample.stop();
+        } catch (IOException | IllegalStateException | ExecutionException e) {
+            sample.stop(e);
+            logger.errorf("Error while trying to fetch repository stats for %s repos in %s, falling back to single lookups because: %s", names.size(), owner, e.getMessage());
+
+            answer.clear();
+        } catch (InterruptedException e) {
+            sample.stop(e);
+            throw e;
+        }
+
+        for (String name : names) {
+            if (!answer.containsKey(name)) {
+                answer.put(name, fetchRepositoryStats(owner, name, fields));
+            }
+        }
+
+        return answer;
+    }
+
+    public interface PageConsumer {
+
+        void accept(List<Repository> page) throws IOException, InterruptedException;
+    }
+
+    /**
+     * Pages every active repository of an organization together with the {@code RepoStatsFields} its {@code fields} map
+     * from, handing each page to {@code pageConsumer} as soon as it arrives.
+     */
+    public int sweepOrganizationRepositoryStats(String login, int repoLimit, RepositoryFields fields, PageConsumer pageConsumer) throws IOException, ExecutionException, InterruptedException {
+        Map<String, Boolean> includes = fields.graphqlIncludes();
+        return sweep("graphql.org_repo_stats", (current, first, after) -> gitHubGraphQLClient.getOrgRepoStats(current, first, after, includes), login, repoLimit, pageConsumer);
+    }
+
+    /**
+     * Pages every archived repository of an organization, with only its name and timestamps as they get no stats.
+     */
+    public int sweepOrganizationArchivedRepositories(String login, int repoLimit, PageConsumer pageConsumer) throws IOException, ExecutionException, InterruptedException {
+        return sweep("graphql.org_archived_repos", gitHubGraphQLClient::getOrgArchivedRepos, login, repoLimit, pageConsumer);
+    }
+
+    private interface PageQuery {
+
+        JsonObject fetch(String login, int first, String after) throws ExecutionException, InterruptedException;
+    }
+
+    private int sweep(String call, PageQuery query, String login, int repoLimit, PageConsumer pageConsumer) throws IOException, ExecutionException, InterruptedException {
+        int count = 0;
+        int pageSize = repoLimit > 0 ? Math.min(repoLimit, 100) : 100;
+
+        String after = null;
+        boolean hasNextPage = true;
+        while (hasNextPage) {
+            GitHubOrgRepoStatsGraphqlData payload = fetchPage(call, query, login, pageSize, after);
+            if (payload.organization() == null || payload.organization().repositories() == null) {
+                throw new IllegalStateException("Organization not found: " + login);
+            }
+
+            GitHubOrgRepoStatsGraphqlData.RepositoryConnection connection = payload.organization().repositories();
+
+            List<Repository> page = connection.nodes() == null ? List.of() : connection.nodes().stream()
+                .filter(Objects::nonNull)
+                .toList();
+
+            if (repoLimit > 0 && count + page.size() > repoLimit) {
+                page = page.subList(0, repoLimit - count);
+            }
+
+            count += page.size();
+            pageConsumer.accept(page);
+
+            GitHubOrgRepoStatsGraphqlData.PageInfo pageInfo = connection.pageInfo();
+            hasNextPage = pageInfo != null && pageInfo.hasNextPage() && (repoLimit <= 0 || count < repoLimit);
+            after = pageInfo == null ? null : pageInfo.endCursor();
+        }
+
+        return count;
+    }
+
+    private GitHubOrgRepoStatsGraphqlData fetchPage(String call, PageQuery query, String login, int pageSize, String after) throws IOException, ExecutionException, InterruptedException {
+        RunMetrics.Sample sample = metrics.start(call);
+        try {
+            JsonObject response = query.fetch(login, pageSize, after);
+            GitHubOrgRepoStatsGraphqlData answer = JsonpBinding.readValue(graphqlResponseMapper, response, GitHubOrgRepoStatsGraphqlData.class);
+            sample.stop();
+            return answer;
+        } catch (IOException | RuntimeException | ExecutionException | InterruptedException e) {
+            sample.stop(e);
+            throw e;
+        }
+    }
 }
@@ -1,7 +1,8 @@
 package com.garethahealy.githubstats.services;
 
+import com.garethahealy.githubstats.clients.GitHubRestClient;
+import com.garethahealy.githubstats.metrics.RunMetrics;
 import jakarta.enterprise.context.ApplicationScoped;
-import org.kohsuke.github.GHRepository;
 import org.kohsuke.github.GHRepositoryCloneTraffic;
 import org.kohsuke.github.GHRepositoryViewTraffic;
 
@@ -10,11 +11,19 @@ import java.io.IOException;
 @ApplicationScoped
 public class GitHubTrafficLookupService {
 
-    public GHRepositoryCloneTraffic getCloneTraffic(GHRepository repo) throws IOException {
-        return repo.getCloneTraffic();
+    private final GitHubRestClient restClient;
+    private final RunMetrics metrics;
+
+    public GitHubTrafficLookupService(GitHubRestClient restClient, RunMetrics metrics) {
+        this.restClient = restClient;
+        this.metrics = metrics;
+    }
+
+    public GHRepositoryCloneTraffic getCloneTraffic(String owner, String name) throws IOException {
+        return metrics.time("rest.clone_traffic", () -> restClient.get("/repos/" + owner + "/" + name + "/traffic/clones", GHRepositoryCloneTraffic.class));
     }
 
-    public GHRepositoryViewTraffic getViewTraffic(GHRepository repo) throws IOException {
-        return repo.getViewTraffic();
+    public GHRepositoryViewTraffic getViewTraffic(String owner, String name) throws IOException {
+        return metrics.time("rest.view_traffic", () -> restClient.get("/repos/" + owner + "/" + name + "/traffic/views", GHRepositoryViewTraffic.class));
     }
 }
@@ -0,0 +1,151 @@
+package com.garethahealy.githubstats.clients;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.garethahealy.githubstats.config.GitHubConfigProperties;
+import org.jboss.logging.Logger;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.kohsuke.github.connector.GitHubConnector;
+import org.kohsuke.github.connector.GitHubConnectorRequest;
+import org.kohsuke.github.connector.GitHubConnectorResponse;
+import org.mockito.ArgumentCaptor;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class CachingGitHubConnectorTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void send_revalidatesWithEtagAndServesNotModifiedFromDisk() throws Exception {
+        GitHubConnector delegate = mock(GitHubConnector.class);
+        GitHubConnectorRequest request = request();
+
+        GitHubConnectorResponse ok = response(request, 200, Map.of("ETag", List.of("\"abc\"")), "[{\"login\":\"a\"}]");
+        GitHubConnectorResponse notModified = response(request, 304, Map.of("ETag", List.of("\"abc\"")), "");
+        when(delegate.send(any())).thenReturn(ok, notModified);
+
+        CachingGitHubConnector connector = new CachingGitHubConnector(delegate, cache(Duration.ZERO, 1));
+
+        assertEquals("[{\"login\":\"a\"}]", body(connector.send(request)));
+
+        GitHubConnectorResponse revalidated = connector.send(request);
+        assertEquals(200, revalidated.statusCode());
+        assertEquals("[{\"login\":\"a\"}]", body(revalidated));
+
+        ArgumentCaptor<GitHubConnectorRequest> sent = ArgumentCaptor.forClass(GitHubConnectorRequest.class);
+        verify(delegate, times(2)).send(sent.capture());
+        assertNull(sent.getAllValues().get(0).header("If-None-Match"));
+        assertEquals("\"abc\"", sent.getAllValues().get(1).header("If-None-Match"));
+    }
+
+    @Test
+    void send_skipsRequest_whileEntryIsInsideTtl() throws Exception {
+        GitHubConnector delegate = mock(GitHubConnector.class);
+        GitHubConnectorRequest request = request();
+
+        GitHubConnectorResponse ok = response(request, 200, Map.of("Last-Modified", List.of("Mon, 01 Jan 2024 00:00:00 GMT")), "{}");
+        when(delegate.send(any())).thenReturn(ok);
+
+        CachingGitHubConnector connector = new CachingGitHubConnector(delegate, cache(Duration.ofHours(1), 1));
+        connector.send(request);
+
+        assertEquals("{}", body(connector.send(request)));
+        verify(delegate, times(1)).send(any());
+    }
+
+    @Test
+    void send_passesThroughErrors() throws Exception {
+        GitHubConnector delegate = mock(GitHubConnector.class);
+        GitHubConnectorRequest request = request();
+
+        GitHubConnectorResponse forbidden = response(request, 403, Map.of("ETag", List.of("\"x\"")), "{}");
+        when(delegate.send(any())).thenReturn(forbidden);
+
+        CachingGitHubConnector connector = new CachingGitHubConnector(delegate, cache(Duration.ZERO, 1));
+
+        assertSame(forbidden, connector.send(request));
+        assertSame(forbidden, connector.send(request));
+    }
+
+    @Test
+    void send_doesNotReplayRateLimitHeaders() throws Exception {
+        GitHubConnector delegate = mock(GitHubConnector.class);
+        GitHubConnectorRequest request = request();
+
+        GitHubConnectorResponse ok = response(request, 200, Map.of("ETag", List.of("\"abc\""), "X-RateLimit-Remaining", List.of("12"), "X-RateLimit-Reset", List.of("1760000000")), "{}");
+        when(delegate.send(any())).thenReturn(ok);
+
+        CachingGitHubConnector connector = new CachingGitHubConnector(delegate, cache(Duration.ofHours(1), 1));
+        connector.send(request);
+
+        GitHubConnectorResponse cached = connector.send(request);
+        assertEquals("\"abc\"", cached.header("ETag"));
+        assertNull(cached.header("X-RateLimit-Remaining"));
+        assertNull(cached.header("X-RateLimit-Reset"));
+    }
+
+    @Test
+    void send_doesNotShareEntriesBetweenTokens() throws Exception {
+        GitHubConnector delegate = mock(GitHubConnector.class);
+        GitHubConnectorRequest first = request();
+        when(first.header("Authorization")).thenReturn("token first");
+        GitHubConnectorRequest second = request();
+        when(second.header("Authorization")).thenReturn("token second");
+
+        when(delegate.send(any())).thenReturn(response(first, 200, Map.of(), "{\"private\":true}"), response(second, 200, Map.of(), "{}"));
+
+        CachingGitHubConnector connector = new CachingGitHubConnector(delegate, cache(Duration.ofHours(1), 1));
+        connector.send(first);
+
+        assertEquals("{}", body(connector.send(second)));
+        verify(delegate, times(2)).send(any());
+    }
+
+    private GitHubResponseCache cache(Duration ttl, int maxSizeMb) throws Exception {
+        GitHubConfigProperties.Cache config = mock(GitHubConfigProperties.Cache.class);
+        when(config.enabled()).thenReturn(true);
+        when(config.directory()).thenReturn(tempDir.toString());
+        when(config.ttl()).thenReturn(ttl);
+        when(config.maxSizeMb()).thenReturn(maxSizeMb);
+
+        GitHubConfigProperties github = mock(GitHubConfigProperties.class);
+        when(github.cache()).thenReturn(config);
+
+        GitHubResponseCache cache = new GitHubResponseCache(Logger.getLogger(CachingGitHubConnectorTest.class), new ObjectMapper().findAndRegisterModules(), github);
+        cache.loadIndex();
+        return cache;
+    }
+
+    private static GitHubConnectorRequest request() throws Exception {
+        GitHubConnectorRequest request = mock(GitHubConnectorRequest.class);
+        when(request.method()).thenReturn("GET");
+        when(request.url()).thenReturn(URI.create("https://api.github.com/repos/o/r/contributors").toURL());
+        when(request.allHeaders()).thenReturn(Map.of("Accept", List.of("application/vnd.github+json")));
+        return request;
+    }
+
+    private static GitHubConnectorResponse response(GitHubConnectorRequest request, int status, Map<String, List<String>> headers, String body) {
+        return new GitHubConnectorResponse.ByteArrayResponse(request, status, headers) {
+            @Override
+            protected InputStream rawBodyStream() {
+                return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+            }
+        };
+    }
+
+    private static String body(GitHubConnectorResponse response) throws Exception {
+        return new String(response.bodyStream().readAllBytes(), StandardCharsets.UTF_8);
+    }
+}
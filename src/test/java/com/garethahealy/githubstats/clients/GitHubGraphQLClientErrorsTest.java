@@ -0,0 +1,157 @@
+package com.garethahealy.githubstats.clients;
+
+import com.garethahealy.githubstats.config.GitHubConfigProperties;
+import com.garethahealy.githubstats.mapping.RepositoryFields;
+import io.smallrye.graphql.client.GraphQLError;
+import io.smallrye.graphql.client.InvalidResponseException;
+import io.smallrye.graphql.client.Response;
+import io.smallrye.graphql.client.dynamic.api.DynamicGraphQLClient;
+import jakarta.json.Json;
+import jakarta.json.JsonValue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class GitHubGraphQLClientErrorsTest {
+
+    @Mock
+    DynamicGraphQLClient dynamicClient;
+
+    @Mock
+    GitHubRequestScheduler scheduler;
+
+    @Mock
+    GitHubResponseCache cache;
+
+    @Mock
+    GitHubConfigProperties github;
+
+    @Mock
+    Response response;
+
+    private GitHubGraphQLClient client;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        client = new GitHubGraphQLClient(dynamicClient, scheduler, cache, github);
+        when(dynamicClient.executeSync(anyString(), anyMap())).thenReturn(response);
+    }
+
+    @Test
+    void getRepoStats_keepsTheBatch_whenOneAliasIsNotFound() throws Exception {
+        List<GraphQLError> errors = List.of(error("NOT_FOUND", "repo1"));
+        when(response.hasError()).thenReturn(true);
+        when(response.getErrors()).thenReturn(errors);
+        when(response.getData()).thenReturn(Json.createObjectBuilder()
+            .add("repo0", Json.createObjectBuilder().add("name", "a"))
+            .addNull("repo1")
+            .build());
+
+        Map<String, JsonValue> answer = client.getRepoStats("o", List.of("a", "missing"), RepositoryFields.all().graphqlIncludes());
+
+        assertEquals(List.of("a", "missing"), List.copyOf(answer.keySet()));
+        assertEquals("a", answer.get("a").asJsonObject().getString("name"));
+        assertEquals(JsonValue.NULL, answer.get("missing"));
+    }
+
+    @Test
+    void getRepoStats_leavesOutAliasesThatFailedForAnotherReason() throws Exception {
+        List<GraphQLError> errors = List.of(error("SERVICE_UNAVAILABLE", "repo0"));
+        when(response.hasError()).thenReturn(true);
+        when(response.getErrors()).thenReturn(errors);
+        when(response.getData()).thenReturn(Json.createObjectBuilder()
+            .addNull("repo0")
+            .add("repo1", Json.createObjectBuilder().add("name", "b"))
+            .build());
+
+        Map<String, JsonValue> answer = client.getRepoStats("o", List.of("a", "b"), RepositoryFields.all().graphqlIncludes());
+
+        assertEquals(List.of("b"), List.copyOf(answer.keySet()));
+    }
+
+    @Test
+    void getRepoStats_throws_whenAnErrorIsNotAboutAnAlias() throws Exception {
+        List<GraphQLError> errors = List.of(error(null));
+        when(response.hasError()).thenReturn(true);
+        when(response.getErrors()).thenReturn(errors);
+        lenient().when(response.getData()).thenReturn(Json.createObjectBuilder().build());
+
+        assertThrows(IllegalStateException.class, () -> client.getRepoStats("o", List.of("a", "b"), RepositoryFields.all().graphqlIncludes()));
+    }
+
+    @Test
+    void getRepoStats_retries_whenRateLimited() throws Exception {
+        Response limited = mock(Response.class);
+        List<GraphQLError> errors = List.of(error("RATE_LIMITED"));
+        when(limited.hasError()).thenReturn(true);
+        when(limited.getErrors()).thenReturn(errors);
+
+        when(dynamicClient.executeSync(anyString(), anyMap())).thenReturn(limited, response);
+        when(response.getData()).thenReturn(Json.createObjectBuilder().add("repository", Json.createObjectBuilder().add("name", "a")).build());
+        when(scheduler.maxRetries()).thenReturn(3);
+
+        assertEquals("a", client.getRepoStats("o", "a", RepositoryFields.all().graphqlIncludes()).getJsonObject("repository").getString("name"));
+        verify(scheduler).pause(eq(GitHubRequestScheduler.GRAPHQL), any());
+    }
+
+    @Test
+    void getRepoStats_waitsForRetryAfter_onASecondaryLimit() throws Exception {
+        Response limited = mock(Response.class);
+        when(limited.getStatusCode()).thenReturn(403);
+        when(limited.getTransportMeta()).thenReturn(Map.of("retry-after", List.of("7")));
+
+        when(dynamicClient.executeSync(anyString(), anyMap())).thenReturn(limited, response);
+        when(response.getData()).thenReturn(Json.createObjectBuilder().add("repository", JsonValue.NULL).build());
+        when(scheduler.maxRetries()).thenReturn(3);
+
+        client.getRepoStats("o", "a", RepositoryFields.all().graphqlIncludes());
+
+        verify(scheduler).backoff(0, Duration.ofSeconds(7));
+        verify(dynamicClient, times(2)).executeSync(anyString(), anyMap());
+    }
+
+    @Test
+    void getRepoStats_waitsAMinute_onASecondaryLimitWithoutHeaders() throws Exception {
+        when(dynamicClient.executeSync(anyString(), anyMap()))
+            .thenThrow(new InvalidResponseException("Unexpected response. Code=403, message=\"Forbidden\", body=\"{\"message\":\"You have exceeded a secondary rate limit.\"}\""))
+            .thenReturn(response);
+        when(response.getData()).thenReturn(Json.createObjectBuilder().add("repository", JsonValue.NULL).build());
+        when(scheduler.maxRetries()).thenReturn(3);
+        when(scheduler.untilReset(GitHubRequestScheduler.GRAPHQL)).thenReturn(null);
+
+        client.getRepoStats("o", "a", RepositoryFields.all().graphqlIncludes());
+
+        verify(scheduler).backoff(0, GitHubRequestScheduler.SECONDARY_RATE_LIMIT_WAIT);
+        verify(scheduler, times(2)).release();
+    }
+
+    @Test
+    void getRepoStats_doesNotRetry_aForbiddenResponseThatIsNotRateLimited() throws Exception {
+        when(response.getStatusCode()).thenReturn(403);
+        when(response.getTransportMeta()).thenReturn(Map.of("X-RateLimit-Remaining", List.of("4999"), "X-RateLimit-Reset", List.of("1760000000")));
+
+        assertThrows(IllegalStateException.class, () -> client.getRepoStats("o", "a", RepositoryFields.all().graphqlIncludes()));
+
+        verify(scheduler).update(GitHubRequestScheduler.GRAPHQL, 4999, Instant.ofEpochSecond(1760000000));
+        verify(dynamicClient, times(1)).executeSync(anyString(), anyMap());
+    }
+
+    private static GraphQLError error(String type, Object... path) {
+        GraphQLError error = mock(GraphQLError.class);
+        lenient().when(error.getPath()).thenReturn(path);
+        lenient().when(error.getOtherFields()).thenReturn(type == null ? Map.of() : Map.of("type", type));
+        return error;
+    }
+}
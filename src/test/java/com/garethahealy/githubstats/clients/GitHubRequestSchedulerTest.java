@@ -0,0 +1,113 @@
+package com.garethahealy.githubstats.clients;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.garethahealy.githubstats.config.GitHubConfigProperties;
+import com.garethahealy.githubstats.metrics.RunMetrics;
+import org.jboss.logging.Logger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class GitHubRequestSchedulerTest {
+
+    private GitHubRequestScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        GitHubConfigProperties.Requests requests = mock(GitHubConfigProperties.Requests.class);
+        when(requests.maxConcurrency()).thenReturn(2);
+        when(requests.maxRetries()).thenReturn(3);
+        when(requests.initialBackoff()).thenReturn(Duration.ofMillis(100));
+        when(requests.maxBackoff()).thenReturn(Duration.ofMillis(500));
+        when(requests.paceBelowRemaining()).thenReturn(0);
+
+        GitHubConfigProperties github = mock(GitHubConfigProperties.class);
+        when(github.requests()).thenReturn(requests);
+
+        scheduler = new GitHubRequestScheduler(Logger.getLogger(GitHubRequestSchedulerTest.class), github, new RunMetrics(new ObjectMapper()));
+    }
+
+    @Test
+    void backoff_growsExponentiallyWithJitterAndIsCapped() {
+        Duration first = scheduler.backoff(0, null);
+        assertTrue(first.toMillis() >= 100 && first.toMillis() <= 150);
+
+        Duration second = scheduler.backoff(1, null);
+        assertTrue(second.toMillis() >= 200 && second.toMillis() <= 300);
+
+        Duration capped = scheduler.backoff(10, null);
+        assertTrue(capped.toMillis() >= 500 && capped.toMillis() <= 750);
+    }
+
+    @Test
+    void backoff_prefersRetryAfter() {
+        Duration wait = scheduler.backoff(0, Duration.ofSeconds(2));
+        assertTrue(wait.toMillis() >= 2000 && wait.toMillis() <= 3000);
+    }
+
+    @Test
+    void untilReset_isNull_whileBudgetRemains() {
+        scheduler.update(GitHubRequestScheduler.REST, 10, Instant.now().plusSeconds(60));
+        assertNull(scheduler.untilReset(GitHubRequestScheduler.REST));
+    }
+
+    @Test
+    void untilReset_reportsWait_whenBudgetExhausted() {
+        scheduler.update(GitHubRequestScheduler.GRAPHQL, 0, Instant.now().plusSeconds(60));
+
+        Duration wait = scheduler.untilReset(GitHubRequestScheduler.GRAPHQL);
+        assertNotNull(wait);
+        assertTrue(wait.toSeconds() > 50);
+    }
+
+    @Test
+    void acquire_capsConcurrentRequests() throws InterruptedException {
+        scheduler.acquire(GitHubRequestScheduler.REST);
+        scheduler.acquire(GitHubRequestScheduler.REST);
+
+        Thread blocked = Thread.ofVirtual().start(() -> {
+            try {
+                scheduler.acquire(GitHubRequestScheduler.REST);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        blocked.join(Duration.ofMillis(200));
+        assertTrue(blocked.isAlive());
+
+        scheduler.release();
+        blocked.join(Duration.ofSeconds(5));
+        assertFalse(blocked.isAlive());
+    }
+
+    @Test
+    void acquire_waitsForBudget_withoutHoldingAPermit() throws InterruptedException {
+        scheduler.update(GitHubRequestScheduler.GRAPHQL, 0, Instant.now().plusSeconds(60));
+
+        Thread exhausted = Thread.ofVirtual().start(() -> {
+            try {
+                scheduler.acquire(GitHubRequestScheduler.GRAPHQL);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        exhausted.join(Duration.ofMillis(200));
+        assertTrue(exhausted.isAlive());
+
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            scheduler.acquire(GitHubRequestScheduler.REST);
+            scheduler.acquire(GitHubRequestScheduler.REST);
+        });
+
+        exhausted.interrupt();
+        exhausted.join(Duration.ofSeconds(5));
+        assertFalse(exhausted.isAlive());
+    }
+}
@@ -0,0 +1,109 @@
+package com.garethahealy.githubstats.clients;
+
+import com.garethahealy.githubstats.config.GitHubConfigProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.kohsuke.github.GHRepositoryCloneTraffic;
+import org.kohsuke.github.GHRepositoryViewTraffic;
+import org.kohsuke.github.GitHub;
+import org.kohsuke.github.HttpException;
+import org.kohsuke.github.connector.GitHubConnector;
+import org.kohsuke.github.connector.GitHubConnectorRequest;
+import org.kohsuke.github.connector.GitHubConnectorResponse;
+import org.mockito.ArgumentCaptor;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class GitHubRestClientTest {
+
+    private GitHubConnector connector;
+    private GitHubRestClient restClient;
+
+    @BeforeEach
+    void setUp() {
+        GitHub client = mock(GitHub.class);
+        when(client.getApiUrl()).thenReturn("https://api.github.com");
+
+        GitHubConfigProperties github = mock(GitHubConfigProperties.class);
+        when(github.oauth()).thenReturn("secret");
+
+        connector = mock(GitHubConnector.class);
+        restClient = new GitHubRestClient(client, connector, github);
+    }
+
+    @Test
+    void count_readsTotalFromLastPageLink() throws Exception {
+        String link = "<https://api.github.com/repositories/1/contributors?per_page=1&page=2>; rel=\"next\", "
+            + "<https://api.github.com/repositories/1/contributors?per_page=1&page=347>; rel=\"last\"";
+        when(connector.send(any())).thenAnswer(invocation -> response(invocation.getArgument(0), 200, Map.of("Link", List.of(link)), "[{}]"));
+
+        assertEquals(347, restClient.count("/repos/o/r/contributors"));
+
+        ArgumentCaptor<GitHubConnectorRequest> sent = ArgumentCaptor.forClass(GitHubConnectorRequest.class);
+        verify(connector).send(sent.capture());
+        assertEquals("https://api.github.com/repos/o/r/contributors?per_page=1", sent.getValue().url().toString());
+        assertEquals("token secret", sent.getValue().header("authorization"));
+    }
+
+    @Test
+    void count_usesBody_whenThereIsASinglePage() throws Exception {
+        when(connector.send(any())).thenAnswer(invocation -> response(invocation.getArgument(0), 200, Map.of(), "[{\"login\":\"a\"}]"));
+        assertEquals(1, restClient.count("/repos/o/r/contributors"));
+    }
+
+    @Test
+    void count_isZero_forEmptyRepository() throws Exception {
+        when(connector.send(any())).thenAnswer(invocation -> response(invocation.getArgument(0), 204, Map.of(), ""));
+        assertEquals(0, restClient.count("/repos/o/r/contributors"));
+    }
+
+    @Test
+    void count_throws_onError() throws Exception {
+        when(connector.send(any())).thenAnswer(invocation -> response(invocation.getArgument(0), 403, Map.of(), "{\"message\":\"too large\"}"));
+        assertThrows(HttpException.class, () -> restClient.count("/repos/o/r/contributors"));
+    }
+
+    @Test
+    void get_readsKohsukeTypes() throws Exception {
+        String body = "{\"count\":7,\"uniques\":3,\"clones\":[{\"timestamp\":\"2026-03-01T00:00:00Z\",\"count\":7,\"uniques\":3}]}";
+        when(connector.send(any())).thenAnswer(invocation -> response(invocation.getArgument(0), 200, Map.of(), body));
+
+        GHRepositoryCloneTraffic answer = restClient.get("/repos/o/r/traffic/clones", GHRepositoryCloneTraffic.class);
+
+        assertEquals(3, answer.getUniques());
+        assertEquals(1, answer.getDailyInfo().size());
+
+        ArgumentCaptor<GitHubConnectorRequest> sent = ArgumentCaptor.forClass(GitHubConnectorRequest.class);
+        verify(connector).send(sent.capture());
+        assertEquals("https://api.github.com/repos/o/r/traffic/clones", sent.getValue().url().toString());
+    }
+
+    @Test
+    void get_throws_onError() throws Exception {
+        when(connector.send(any())).thenAnswer(invocation -> response(invocation.getArgument(0), 403, Map.of(), "{\"message\":\"Must have push access\"}"));
+        assertThrows(HttpException.class, () -> restClient.get("/repos/o/r/traffic/views", GHRepositoryViewTraffic.class));
+    }
+
+    @Test
+    void lastPage_ignoresLinksWithoutLastRelation() {
+        assertNull(GitHubRestClient.lastPage(null));
+        assertNull(GitHubRestClient.lastPage("<https://api.github.com/x?page=1>; rel=\"prev\""));
+        assertEquals(12, GitHubRestClient.lastPage("<https://api.github.com/x?per_page=1&page=12>; rel=\"last\""));
+    }
+
+    private static GitHubConnectorResponse response(GitHubConnectorRequest request, int status, Map<String, List<String>> headers, String body) {
+        return new GitHubConnectorResponse.ByteArrayResponse(request, status, headers) {
+            @Override
+            protected InputStream rawBodyStream() {
+                return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+            }
+        };
+    }
+}
@@ -0,0 +1,45 @@
+package com.garethahealy.githubstats.clients;
+
+import com.garethahealy.githubstats.mapping.RepositoryFields;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GraphqlDocumentsTest {
+
+    @Test
+    void queries_carryTheFieldsFragment() {
+        assertTrue(GraphqlDocuments.REPO_STATS.startsWith("query RepoStats("));
+        assertTrue(GraphqlDocuments.ORG_REPO_STATS.startsWith("query OrgRepoStats("));
+        assertTrue(GraphqlDocuments.REPO_STATS.contains("...RepoStatsFields"));
+        assertTrue(GraphqlDocuments.ORG_REPO_STATS.contains("...RepoStatsFields"));
+        assertTrue(GraphqlDocuments.REPO_STATS.contains("fragment RepoStatsFields on Repository"));
+        assertTrue(GraphqlDocuments.ORG_REPO_STATS.contains("fragment RepoStatsFields on Repository"));
+        assertTrue(GraphqlDocuments.ORG_ARCHIVED_REPOS.startsWith("query OrgArchivedRepos("));
+        assertFalse(GraphqlDocuments.ORG_ARCHIVED_REPOS.contains("RepoStatsFields"));
+    }
+
+    @Test
+    void repoStatsFields_includeVariables_matchRepositoryFields() {
+        Set<String> includes = RepositoryFields.all().graphqlIncludes().keySet();
+
+        assertEquals(includes, variables(Pattern.compile("@include\\(if: \\$(\\w+)\\)"), GraphqlDocuments.REPO_STATS_FIELDS));
+        assertEquals(includes, variables(Pattern.compile("\\$(with\\w+): Boolean!"), GraphqlDocuments.REPO_STATS));
+        assertEquals(includes, variables(Pattern.compile("\\$(with\\w+): Boolean!"), GraphqlDocuments.ORG_REPO_STATS));
+    }
+
+    private static Set<String> variables(Pattern pattern, String document) {
+        Set<String> answer = new TreeSet<>();
+        Matcher matcher = pattern.matcher(document);
+        while (matcher.find()) {
+            answer.add(matcher.group(1));
+        }
+
+        return answer;
+    }
+}
@@ -0,0 +1,147 @@
+package com.garethahealy.githubstats.clients;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.garethahealy.githubstats.metrics.RunMetrics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.kohsuke.github.connector.GitHubConnector;
+import org.kohsuke.github.connector.GitHubConnectorRequest;
+import org.kohsuke.github.connector.GitHubConnectorResponse;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ScheduledGitHubConnectorTest {
+
+    @Mock
+    GitHubConnector delegate;
+
+    @Mock
+    GitHubRequestScheduler scheduler;
+
+    @Mock
+    GitHubConnectorRequest request;
+
+    private RunMetrics metrics;
+    private ScheduledGitHubConnector connector;
+
+    @BeforeEach
+    void setUp() {
+        metrics = new RunMetrics(new ObjectMapper());
+        connector = new ScheduledGitHubConnector(delegate, scheduler, metrics);
+    }
+
+    @Test
+    void send_recordsRateLimitHeaders() throws Exception {
+        GitHubConnectorResponse ok = response(200, "4999", "1700000000", null);
+        when(delegate.send(request)).thenReturn(ok);
+
+        assertEquals(ok.statusCode(), connector.send(request).statusCode());
+        verify(scheduler).update(GitHubRequestScheduler.REST, 4999, Instant.ofEpochSecond(1700000000));
+        verify(scheduler).release();
+        assertTrue(metrics.prometheus().contains("github_stats_http_responses_total{resource=\"core\",status=\"200\"} 1"));
+    }
+
+    @Test
+    void send_retriesSecondaryRateLimitWithRetryAfter() throws Exception {
+        GitHubConnectorResponse limited = response(403, "10", "1700000000", "3");
+        GitHubConnectorResponse ok = response(200, "9", "1700000000", null);
+        when(delegate.send(request)).thenReturn(limited, ok);
+        when(scheduler.maxRetries()).thenReturn(3);
+        when(scheduler.backoff(0, Duration.ofSeconds(3))).thenReturn(Duration.ofSeconds(3));
+
+        assertEquals(ok.statusCode(), connector.send(request).statusCode());
+        verify(limited).close();
+        verify(scheduler).pause(GitHubRequestScheduler.REST, Duration.ofSeconds(3));
+    }
+
+    @Test
+    void send_doesNotRetryPermissionDenied() throws Exception {
+        GitHubConnectorResponse forbidden = response(403, "4000", "1700000000", null);
+        when(delegate.send(request)).thenReturn(forbidden);
+
+        assertEquals(forbidden.statusCode(), connector.send(request).statusCode());
+        verify(delegate, times(1)).send(request);
+        verify(scheduler, never()).pause(anyString(), any());
+    }
+
+    @Test
+    void send_retriesSecondaryRateLimitWithoutHeaders_forAMinute() throws Exception {
+        GitHubConnectorResponse limited = response(403, null, null, null);
+        when(limited.bodyStream()).thenReturn(body("{\"message\":\"You have exceeded a secondary rate limit. Please wait a few minutes before you try again.\"}"));
+        GitHubConnectorResponse ok = response(200, "9", "1700000000", null);
+        when(delegate.send(request)).thenReturn(limited, ok);
+        when(scheduler.maxRetries()).thenReturn(3);
+        when(scheduler.untilReset(GitHubRequestScheduler.REST)).thenReturn(null);
+        when(scheduler.backoff(0, GitHubRequestScheduler.SECONDARY_RATE_LIMIT_WAIT)).thenReturn(Duration.ofSeconds(75));
+
+        assertEquals(ok.statusCode(), connector.send(request).statusCode());
+        verify(limited).close();
+        verify(scheduler).pause(GitHubRequestScheduler.REST, Duration.ofSeconds(75));
+    }
+
+    @Test
+    void send_returnsPermissionDeniedWithItsBody() throws Exception {
+        String message = "{\"message\":\"Must have push access to repository\"}";
+        GitHubConnectorResponse forbidden = response(403, "4000", "1700000000", null);
+        when(forbidden.bodyStream()).thenReturn(body(message));
+        when(delegate.send(request)).thenReturn(forbidden);
+
+        try (GitHubConnectorResponse response = connector.send(request); InputStream in = response.bodyStream()) {
+            assertEquals(403, response.statusCode());
+            assertEquals(message, new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+
+        verify(scheduler, never()).pause(anyString(), any());
+    }
+
+    @Test
+    void send_returnsLastResponse_whenRetriesExhausted() throws Exception {
+        GitHubConnectorResponse limited = response(429, null, null, null);
+        when(delegate.send(request)).thenReturn(limited);
+        when(scheduler.maxRetries()).thenReturn(1);
+        when(scheduler.backoff(eq(0), any())).thenReturn(Duration.ZERO);
+
+        assertEquals(limited.statusCode(), connector.send(request).statusCode());
+        verify(delegate, times(2)).send(request);
+    }
+
+    @Test
+    void send_countsTheBodyBytesRead_whenTheResponseIsClosed() throws Exception {
+        GitHubConnectorResponse ok = response(200, "4999", "1700000000", null);
+        when(ok.bodyStream()).thenReturn(new ByteArrayInputStream("{\"login\":\"redhat-cop\"}".getBytes(StandardCharsets.UTF_8)));
+        when(delegate.send(request)).thenReturn(ok);
+
+        try (GitHubConnectorResponse response = connector.send(request); InputStream body = response.bodyStream()) {
+            assertEquals(22, body.readAllBytes().length);
+            assertFalse(metrics.prometheus().contains("github_stats_response_bytes_total"));
+        }
+
+        verify(ok).close();
+        assertTrue(metrics.prometheus().contains("github_stats_response_bytes_total{resource=\"core\"} 22"));
+    }
+
+    private static InputStream body(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static GitHubConnectorResponse response(int status, String remaining, String reset, String retryAfter) {
+        GitHubConnectorResponse response = mock(GitHubConnectorResponse.class);
+        lenient().when(response.statusCode()).thenReturn(status);
+        lenient().when(response.header("X-RateLimit-Remaining")).thenReturn(remaining);
+        lenient().when(response.header("X-RateLimit-Reset")).thenReturn(reset);
+        lenient().when(response.header("Retry-After")).thenReturn(retryAfter);
+        return response;
+    }
+}
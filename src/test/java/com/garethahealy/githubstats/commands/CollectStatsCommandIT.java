@@ -20,6 +20,45 @@ class CollectStatsCommandIT {
         assertTrue(result.getOutput().contains("Output written to target/redhat-cop-collect-stats-limit5.csv"));
     }
 
+    @Test
+    @Launch(value = {"collect-stats", "--organization=redhat-cop", "--csv-output=target/redhat-cop-collect-stats-incremental.csv", "--repository-limit=5", "--incremental"})
+    void runIncremental(LaunchResult result) {
+        result.echoSystemOut();
+
+        assertEquals(0, result.exitCode());
+        assertTrue(result.getOutput().contains("State written to target/redhat-cop-collect-stats-incremental.csv.state.json"));
+        assertTrue(result.getOutput().contains("Output written to target/redhat-cop-collect-stats-incremental.csv"));
+    }
+
+    @Test
+    @Launch(value = {"collect-stats", "--organization=redhat-cop", "--csv-output=target/redhat-cop-collect-stats-resume.csv", "--repository-limit=5", "--resume"})
+    void runResume(LaunchResult result) {
+        result.echoSystemOut();
+
+        assertEquals(0, result.exitCode());
+        assertTrue(result.getOutput().contains("Resuming: 0 repos already completed in target/redhat-cop-collect-stats-resume.csv.journal.jsonl"));
+        assertTrue(result.getOutput().contains("Output written to target/redhat-cop-collect-stats-resume.csv"));
+    }
+
+    @Test
+    @Launch(value = {"collect-stats", "--organization=redhat-cop", "--csv-output=target/redhat-cop-collect-stats-arrow.csv", "--repository-limit=5", "--output-format=CSV,ARROW"})
+    void runArrow(LaunchResult result) {
+        result.echoSystemOut();
+
+        assertEquals(0, result.exitCode());
+        assertTrue(result.getOutput().contains("Output written to target/redhat-cop-collect-stats-arrow.csv"));
+        assertTrue(result.getOutput().contains("Output written to target/redhat-cop-collect-stats-arrow.arrow"));
+    }
+
+    @Test
+    @Launch(value = {"collect-stats", "--organization=redhat-cop", "--csv-output=target/redhat-cop-collect-stats-history.csv", "--repository-limit=5", "--history-dir=target/github-history"})
+    void runWithHistory(LaunchResult result) {
+        result.echoSystemOut();
+
+        assertEquals(0, result.exitCode());
+        assertTrue(result.getOutput().contains("History appended to target/github-history"));
+    }
+
     @Test
     @Launch(value = {"collect-stats", "--organization=redhat-cop", "--csv-output=target/redhat-cop-collect-stats.csv"})
     void run(LaunchResult result) {
@@ -0,0 +1,146 @@
+package com.garethahealy.githubstats.commands;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.garethahealy.githubstats.model.csv.Repository;
+import com.garethahealy.githubstats.model.history.TrafficDay;
+import com.garethahealy.githubstats.output.RowWriter;
+import com.garethahealy.githubstats.output.SnapshotStore;
+import io.quarkus.test.junit.main.Launch;
+import io.quarkus.test.junit.main.LaunchResult;
+import io.quarkus.test.junit.main.QuarkusMainIntegrationTest;
+import io.quarkus.test.junit.main.QuarkusMainLauncher;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+
+import static com.garethahealy.githubstats.model.csv.Repositories.row;
+import static org.junit.jupiter.api.Assertions.*;
+
+@QuarkusMainIntegrationTest
+class HistoryCommandIT {
+
+    private static Path history;
+
+    @BeforeAll
+    static void seed() throws IOException {
+        history = Files.createTempDirectory(Files.createDirectories(Path.of("target")), "history-it");
+        SnapshotStore store = new SnapshotStore(history, new ObjectMapper().findAndRegisterModules());
+
+        Repository archived = row("repo-b").counts(1, 7, 4, 2).traffic(50, 50).archived(true, false).build();
+        run(store, "2026-03-01T02:00:00Z", row("repo-a").counts(3, 10, 2, 1).traffic(4, 5).build(), archived);
+        run(store, "2026-03-02T02:00:00Z", row("repo-a").counts(3, 12, 3, 1).traffic(6, 8).build(), archived);
+        run(store, "2026-03-03T02:00:00Z", row("repo-a").counts(4, 20, 1, 0).traffic(9, 9).build(), archived);
+
+        store.mergeTraffic("redhat-cop", "repo-a", List.of(traffic("2025-01-01", 1000, 500), traffic("2025-10-01", 100, 50),
+            traffic("2026-01-20", 10, 5), traffic("2026-02-20", 1, 0), traffic("2026-03-03", 2, 1)));
+    }
+
+    @Test
+    @Launch(value = {"history", "--organization=redhat-cop", "--history-dir=target/empty-history"})
+    void runWithoutHistory(LaunchResult result) {
+        result.echoSystemOut();
+
+        assertEquals(0, result.exitCode());
+        assertTrue(result.getOutput().contains("Day,Repositories,Archived,CommitCount"));
+        assertTrue(result.getOutput().contains("No history for redhat-cop in target/empty-history"));
+    }
+
+    @Test
+    void runOrganization(QuarkusMainLauncher launcher) throws IOException {
+        Path output = history.resolve("organization.csv");
+        LaunchResult result = launcher.launch("history", "--organization=redhat-cop", "--history-dir=" + history, "--csv-output=" + output);
+        result.echoSystemOut();
+
+        assertEquals(0, result.exitCode());
+        assertEquals(List.of(
+            "Day,Repositories,Archived,CommitCount,OpenIssueCount,OpenPullRequestCount,ClonesInPast14Days,ViewsInPast14Days",
+            "2026-03-01,2,1,10,2,1,4,5",
+            "2026-03-02,2,1,12,3,1,6,8",
+            "2026-03-03,2,1,20,1,0,9,9"), Files.readAllLines(output));
+        assertTrue(result.getOutput().contains("redhat-cop from 2026-03-01 to 2026-03-03: repositories +0, commits +10, open issues -1"));
+    }
+
+    @Test
+    void runOrganizationUntil(QuarkusMainLauncher launcher) throws IOException {
+        Path output = history.resolve("organization-until.csv");
+        LaunchResult result = launcher.launch("history", "--organization=redhat-cop", "--history-dir=" + history, "--until=2026-03-01",
+            "--csv-output=" + output);
+        result.echoSystemOut();
+
+        assertEquals(0, result.exitCode());
+        assertEquals(List.of(
+            "Day,Repositories,Archived,CommitCount,OpenIssueCount,OpenPullRequestCount,ClonesInPast14Days,ViewsInPast14Days",
+            "2026-03-01,2,1,10,2,1,4,5"), Files.readAllLines(output));
+    }
+
+    @Test
+    void runRepositorySince(QuarkusMainLauncher launcher) throws IOException {
+        Path output = history.resolve("repository-since.csv");
+        LaunchResult result = launcher.launch("history", "--organization=redhat-cop", "--repository=repo-a", "--history-dir=" + history,
+            "--since=2026-03-02", "--csv-output=" + output);
+        result.echoSystemOut();
+
+        assertEquals(0, result.exitCode());
+        assertEquals(List.of(
+            "Day,ContributorCount,CommitCount,CommitsSincePrevious,OpenIssueCount,OpenPullRequestCount,ClonesInPast14Days,ViewsInPast14Days,IsArchived",
+            "2026-03-02,3,12,,3,1,6,8,false",
+            "2026-03-03,4,20,8,1,0,9,9,false"), Files.readAllLines(output));
+        assertTrue(result.getOutput().contains("redhat-cop/repo-a from 2026-03-02 to 2026-03-03: commits +8, open issues -2, open pull requests -1"));
+    }
+
+    @Test
+    void runTraffic(QuarkusMainLauncher launcher) throws IOException {
+        Path output = history.resolve("traffic.csv");
+        LaunchResult result = launcher.launch("history", "--organization=redhat-cop", "--repository=repo-a", "--traffic", "--history-dir=" + history,
+            "--csv-output=" + output);
+        result.echoSystemOut();
+
+        assertEquals(0, result.exitCode());
+        assertEquals(List.of(
+            "Day,Views,UniqueViews,Clones,UniqueClones",
+            "2025-01-01,1000,1,500,1",
+            "2025-10-01,100,1,50,1",
+            "2026-01-20,10,1,5,1",
+            "2026-02-20,1,1,0,1",
+            "2026-03-03,2,1,1,1"), Files.readAllLines(output));
+        assertTrue(result.getOutput().contains("redhat-cop/repo-a in the 30 days to 2026-03-03: 3 views, 1 clones over 2 days with traffic"));
+        assertTrue(result.getOutput().contains("redhat-cop/repo-a in the 90 days to 2026-03-03: 13 views, 6 clones over 3 days with traffic"));
+        assertTrue(result.getOutput().contains("redhat-cop/repo-a in the 365 days to 2026-03-03: 113 views, 56 clones over 4 days with traffic"));
+    }
+
+    @Test
+    void runTrafficUntil(QuarkusMainLauncher launcher) throws IOException {
+        Path output = history.resolve("traffic-until.csv");
+        LaunchResult result = launcher.launch("history", "--organization=redhat-cop", "--repository=repo-a", "--traffic", "--history-dir=" + history,
+            "--since=2025-06-01", "--until=2026-02-20", "--csv-output=" + output);
+        result.echoSystemOut();
+
+        assertEquals(0, result.exitCode());
+        assertEquals(List.of(
+            "Day,Views,UniqueViews,Clones,UniqueClones",
+            "2025-10-01,100,1,50,1",
+            "2026-01-20,10,1,5,1",
+            "2026-02-20,1,1,0,1"), Files.readAllLines(output));
+        assertTrue(result.getOutput().contains("redhat-cop/repo-a in the 30 days to 2026-02-20: 1 views, 0 clones over 1 days with traffic"));
+        assertTrue(result.getOutput().contains("redhat-cop/repo-a in the 90 days to 2026-02-20: 11 views, 5 clones over 2 days with traffic"));
+        assertTrue(result.getOutput().contains("redhat-cop/repo-a in the 365 days to 2026-02-20: 111 views, 55 clones over 3 days with traffic"));
+    }
+
+    private static void run(SnapshotStore store, String collectedAt, Repository... rows) throws IOException {
+        try (RowWriter writer = store.writer("redhat-cop", Instant.parse(collectedAt))) {
+            for (Repository current : rows) {
+                writer.write(current);
+            }
+        }
+    }
+
+    private static TrafficDay traffic(String day, int views, int clones) {
+        return new TrafficDay(LocalDate.parse(day), views, 1, clones, 1);
+    }
+}
@@ -0,0 +1,79 @@
+package com.garethahealy.githubstats.config.jackson;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.garethahealy.githubstats.clients.graphql.generated.Blob;
+import com.garethahealy.githubstats.clients.graphql.generated.Commit;
+import com.garethahealy.githubstats.clients.graphql.generated.Repository;
+import com.garethahealy.githubstats.clients.graphql.generated.Tree;
+import com.garethahealy.githubstats.model.graphql.GitHubRepoStatsGraphqlData;
+import jakarta.json.Json;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonReader;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JsonpBindingTest {
+
+    private static final String PAYLOAD = """
+        {
+          "repository": {
+            "name": "demo",
+            "repositoryTopics": {"nodes": [{"topic": {"name": "container-cop"}}, {"topic": {"name": "helm"}}]},
+            "issues": {"totalCount": 12},
+            "pullRequests": {"totalCount": 3},
+            "defaultBranchRef": {"target": {"__typename": "Commit", "history": {"totalCount": 412, "nodes": [
+              {"committedDate": "2024-05-01T12:34:56Z", "author": {"user": {"login": "octocat"}}}]}}},
+            "owners": {"__typename": "Blob"},
+            "codeowners": null,
+            "workflows": {"__typename": "Tree"},
+            "travis": null,
+            "renovate": null
+          },
+          "rateLimit": {"cost": 1, "remaining": 4999, "resetAt": "2024-05-01T13:00:00Z"}
+        }
+        """;
+
+    private final ObjectMapper mapper = new ObjectMapperConfig().mapper();
+
+    @Test
+    void readValue_bindsLikeTheSerialisedString() throws Exception {
+        JsonObject data;
+        try (JsonReader reader = Json.createReader(new StringReader(PAYLOAD))) {
+            data = reader.readObject();
+        }
+
+        assertEquals(mapper.readTree(PAYLOAD), JsonpBinding.readValue(mapper, data, JsonNode.class));
+
+        Repository repository = JsonpBinding.readValue(mapper, data, GitHubRepoStatsGraphqlData.class).repository();
+
+        assertEquals("demo", repository.getName());
+        assertEquals(2, repository.getRepositoryTopics().getNodes().size());
+        assertEquals(12, repository.getIssues().getTotalCount());
+        assertInstanceOf(Commit.class, repository.getDefaultBranchRef().getTarget());
+        assertEquals(412, ((Commit) repository.getDefaultBranchRef().getTarget()).getHistory().getTotalCount());
+        assertInstanceOf(Blob.class, repository.getOwners());
+        assertInstanceOf(Tree.class, repository.getWorkflows());
+        assertNull(repository.getCodeowners());
+    }
+
+    @Test
+    void readValue_keepsNumberRanges() throws Exception {
+        JsonObject data = Json.createObjectBuilder()
+            .add("int", 7)
+            .add("long", 1L << 40)
+            .add("decimal", 1.5)
+            .addNull("missing")
+            .build();
+
+        JsonNode tree = JsonpBinding.readValue(mapper, data, JsonNode.class);
+
+        assertTrue(tree.get("int").isInt());
+        assertTrue(tree.get("long").isLong());
+        assertEquals(1.5, tree.get("decimal").doubleValue());
+        assertTrue(tree.get("missing").isNull());
+    }
+}
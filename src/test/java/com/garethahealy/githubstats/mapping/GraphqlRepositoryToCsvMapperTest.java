@@ -5,8 +5,6 @@ import io.quarkus.test.junit.QuarkusTest;
 import jakarta.inject.Inject;
 import org.junit.jupiter.api.Test;
 
-import java.util.List;
-
 import static org.junit.jupiter.api.Assertions.*;
 
 @QuarkusTest
@@ -35,6 +33,7 @@ class GraphqlRepositoryToCsvMapperTest {
         assertEquals(0, row.openPullRequestCount());
         assertEquals(0L, row.clonesInPast14Days());
         assertEquals(0L, row.viewsInPast14Days());
+        assertEquals(Repository.archived("archived-repo", false, false), row);
     }
 
     @Test
@@ -42,7 +41,7 @@ class GraphqlRepositoryToCsvMapperTest {
         Repository row = mapper.toCsvRow(
             "active-repo",
             null,
-            List.of(),
+            0,
             null,
             null,
             true,
@@ -0,0 +1,50 @@
+package com.garethahealy.githubstats.mapping;
+
+import com.garethahealy.githubstats.model.csv.Repository;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RepositoryFieldsTest {
+
+    @Test
+    void all_needsEverySource() {
+        RepositoryFields fields = RepositoryFields.all();
+
+        assertTrue(fields.isAll());
+        assertFalse(fields.graphqlIncludes().containsValue(false));
+        assertTrue(fields.needsGraphql());
+        assertTrue(fields.needsTraffic());
+        assertTrue(fields.needsConfig());
+    }
+
+    @Test
+    void of_alwaysKeepsRepoName_andAsksOnlyForWhatTheColumnsMapFrom() {
+        RepositoryFields fields = RepositoryFields.of(List.of(Repository.Headers.CommitCount, Repository.Headers.LastCommitAuthor, Repository.Headers.HasOwners));
+
+        assertFalse(fields.isAll());
+        assertTrue(fields.contains(Repository.Headers.RepoName));
+        assertEquals(Set.of("withDefaultBranch", "withOwners"), included(fields));
+        assertFalse(fields.needsTraffic());
+        assertFalse(fields.needsConfig());
+    }
+
+    @Test
+    void of_needsNoGraphql_whenOnlyRestColumnsAreSelected() {
+        RepositoryFields fields = RepositoryFields.of(List.of(Repository.Headers.ContributorCount, Repository.Headers.ViewsInPast14Days, Repository.Headers.InConfig));
+
+        assertFalse(fields.needsGraphql());
+        assertEquals(Set.of(), included(fields));
+        assertTrue(fields.needsTraffic());
+        assertTrue(fields.needsConfig());
+    }
+
+    private static Set<String> included(RepositoryFields fields) {
+        return fields.graphqlIncludes().entrySet().stream().filter(Map.Entry::getValue).map(Map.Entry::getKey).collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,81 @@
+package com.garethahealy.githubstats.metrics;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RunMetricsTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final RunMetrics metrics = new RunMetrics(objectMapper);
+
+    @Test
+    void time_recordsLatencyAndErrorsByType() {
+        assertEquals("ok", metrics.time("rest.contributors", () -> "ok"));
+        assertThrows(IOException.class, () -> metrics.time("rest.contributors", () -> {
+            throw new IOException("boom");
+        }));
+
+        RunMetrics.CallSnapshot call = metrics.snapshot().calls().getFirst();
+        assertEquals("rest.contributors", call.call());
+        assertEquals(2, call.count());
+        assertEquals(1, call.errorCount());
+        assertEquals(1L, call.errors().get("IOException"));
+    }
+
+    @Test
+    void snapshot_reportsPercentilesAsBucketUpperBounds() {
+        for (int i = 0; i < 98; i++) {
+            metrics.record("graphql.repo_stats", TimeUnit.MILLISECONDS.toNanos(20), null);
+        }
+
+        metrics.record("graphql.repo_stats", TimeUnit.MILLISECONDS.toNanos(700), null);
+        metrics.record("graphql.repo_stats", TimeUnit.SECONDS.toNanos(3), null);
+
+        RunMetrics.CallSnapshot call = metrics.snapshot().calls().getFirst();
+        assertEquals(0.025, call.p50Seconds());
+        assertEquals(0.025, call.p95Seconds());
+        assertEquals(1.0, call.p99Seconds());
+        assertEquals(3.0, call.maxSeconds());
+    }
+
+    @Test
+    void prometheus_writesHistogramsCountersAndGauges() {
+        metrics.record("rest.view_traffic", TimeUnit.MILLISECONDS.toNanos(40), null);
+        metrics.increment("retries_total", "resource", "core");
+        metrics.gauge("rate_limit_remaining", 4321, "resource", "graphql");
+
+        String text = metrics.prometheus();
+
+        assertTrue(text.contains("github_stats_call_seconds_bucket{call=\"rest.view_traffic\",le=\"0.025\"} 0"));
+        assertTrue(text.contains("github_stats_call_seconds_bucket{call=\"rest.view_traffic\",le=\"0.05\"} 1"));
+        assertTrue(text.contains("github_stats_call_seconds_count{call=\"rest.view_traffic\"} 1"));
+        assertTrue(text.contains("github_stats_retries_total{resource=\"core\"} 1"));
+        assertTrue(text.contains("github_stats_rate_limit_remaining{resource=\"graphql\"} 4321"));
+    }
+
+    @Test
+    void export_writesJson() throws IOException {
+        metrics.record("rest.clone_traffic", TimeUnit.MILLISECONDS.toNanos(5), null);
+        metrics.add("response_bytes_total", 2048, "resource", "core");
+
+        Path target = tempDir.resolve("metrics.json");
+        metrics.export(target, RunMetrics.Format.JSON);
+
+        JsonNode json = objectMapper.readTree(Files.readString(target));
+        assertEquals("rest.clone_traffic", json.get("calls").get(0).get("call").asText());
+        assertEquals(2048, json.get("counters").get(0).get("value").asLong());
+        assertTrue(metrics.summary().contains("rest.clone_traffic"));
+    }
+}
@@ -0,0 +1,105 @@
+package com.garethahealy.githubstats.model.csv;
+
+import java.util.List;
+
+/**
+ * Builds {@link Repository} rows for tests, so a new column only has to be added here. Anything not set is null, zero,
+ * empty or false.
+ */
+public final class Repositories {
+
+    private Repositories() {
+    }
+
+    public static Builder row(String repoName) {
+        return new Builder(repoName);
+    }
+
+    public static final class Builder {
+
+        private final String repoName;
+        private String lastCommitAuthor;
+        private String lastCommitDate;
+        private String cop;
+        private int contributorCount;
+        private int commitCount;
+        private int openIssueCount;
+        private int openPullRequestCount;
+        private List<String> topics = List.of();
+        private long clonesInPast14Days;
+        private long viewsInPast14Days;
+        private boolean hasOwners;
+        private boolean hasCodeOwners;
+        private boolean hasWorkflows;
+        private boolean hasTravis;
+        private boolean hasRenovate;
+        private boolean inConfig;
+        private boolean isArchived;
+        private boolean inArchivedTeam;
+
+        private Builder(String repoName) {
+            this.repoName = repoName;
+        }
+
+        public Builder lastCommit(String author, String date) {
+            this.lastCommitAuthor = author;
+            this.lastCommitDate = date;
+            return this;
+        }
+
+        public Builder cop(String cop) {
+            this.cop = cop;
+            return this;
+        }
+
+        public Builder counts(int contributorCount, int commitCount, int openIssueCount, int openPullRequestCount) {
+            this.contributorCount = contributorCount;
+            this.commitCount = commitCount;
+            this.openIssueCount = openIssueCount;
+            this.openPullRequestCount = openPullRequestCount;
+            return this;
+        }
+
+        public Builder commitCount(int commitCount) {
+            this.commitCount = commitCount;
+            return this;
+        }
+
+        public Builder topics(List<String> topics) {
+            this.topics = topics;
+            return this;
+        }
+
+        public Builder traffic(long clonesInPast14Days, long viewsInPast14Days) {
+            this.clonesInPast14Days = clonesInPast14Days;
+            this.viewsInPast14Days = viewsInPast14Days;
+            return this;
+        }
+
+        public Builder files(boolean hasOwners, boolean hasCodeOwners, boolean hasWorkflows, boolean hasTravis, boolean hasRenovate) {
+            this.hasOwners = hasOwners;
+            this.hasCodeOwners = hasCodeOwners;
+            this.hasWorkflows = hasWorkflows;
+            this.hasTravis = hasTravis;
+            this.hasRenovate = hasRenovate;
+            return this;
+        }
+
+        public Builder inConfig(boolean inConfig) {
+            this.inConfig = inConfig;
+            return this;
+        }
+
+        public Builder archived(boolean isArchived, boolean inArchivedTeam) {
+            this.isArchived = isArchived;
+            this.inArchivedTeam = inArchivedTeam;
+            return this;
+        }
+
+        public Repository build() {
+            return new Repository(repoName, lastCommitAuthor, lastCommitDate, cop, contributorCount, commitCount, openIssueCount,
+                openPullRequestCount, topics, clonesInPast14Days, viewsInPast14Days, hasOwners, hasCodeOwners, hasWorkflows,
+                hasTravis, hasRenovate, inConfig, isArchived, inArchivedTeam);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.garethahealy.githubstats.output;
+
+import com.garethahealy.githubstats.mapping.RepositoryFields;
+import com.garethahealy.githubstats.model.csv.Repository;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.BigIntVector;
+import org.apache.arrow.vector.BitVector;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.complex.ListVector;
+import org.apache.arrow.vector.ipc.ArrowFileReader;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.garethahealy.githubstats.model.csv.Repositories.row;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ArrowRowWriterTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void write_keepsColumnTypes() throws Exception {
+        Path output = tempDir.resolve("redhat-cop.arrow");
+
+        try (ArrowRowWriter writer = new ArrowRowWriter(output, "redhat-cop")) {
+            writer.write(row("repo-a").lastCommit("someone", "2026-01-01").cop("infra").counts(3, 120, 4, 2).topics(List.of("ansible", "openshift")).traffic(17L, 9001L)
+                .files(true, false, true, false, true).inConfig(true).build());
+            writer.write(row("repo-b").topics(null).archived(true, true).build());
+        }
+
+        try (BufferAllocator allocator = new RootAllocator(); ArrowFileReader reader = new ArrowFileReader(FileChannel.open(output, StandardOpenOption.READ), allocator)) {
+            assertTrue(reader.loadNextBatch());
+            VectorSchemaRoot root = reader.getVectorSchemaRoot();
+
+            assertEquals(2, root.getRowCount());
+            assertEquals("redhat-cop", ((VarCharVector) root.getVector("Organization")).getObject(0).toString());
+            assertEquals("repo-a", ((VarCharVector) root.getVector("RepoName")).getObject(0).toString());
+            assertEquals(120, ((IntVector) root.getVector("CommitCount")).get(0));
+            assertEquals(9001L, ((BigIntVector) root.getVector("ViewsInPast14Days")).get(0));
+            assertEquals(1, ((BitVector) root.getVector("HasRenovate")).get(0));
+            assertEquals(List.of("ansible", "openshift"), topics((ListVector) root.getVector("Topics"), 0));
+
+            assertTrue(root.getVector("CoP").isNull(1));
+            assertTrue(root.getVector("CommitCount").isNull(1));
+            assertTrue(root.getVector("HasOwners").isNull(1));
+            assertEquals(1, ((BitVector) root.getVector("IsArchived")).get(1));
+            assertEquals(List.of(), topics((ListVector) root.getVector("Topics"), 1));
+        }
+    }
+
+    @Test
+    void write_onlyHasTheSelectedColumns() throws Exception {
+        Path output = tempDir.resolve("redhat-cop.arrow");
+
+        try (ArrowRowWriter writer = new ArrowRowWriter(output, "redhat-cop", RepositoryFields.of(List.of(Repository.Headers.CommitCount, Repository.Headers.Topics)))) {
+            writer.write(row("repo-a").lastCommit("someone", "2026-01-01").cop("infra").counts(3, 120, 4, 2).topics(List.of("ansible")).traffic(17L, 9001L)
+                .files(true, false, true, false, true).inConfig(true).build());
+        }
+
+        try (BufferAllocator allocator = new RootAllocator(); ArrowFileReader reader = new ArrowFileReader(FileChannel.open(output, StandardOpenOption.READ), allocator)) {
+            assertTrue(reader.loadNextBatch());
+            VectorSchemaRoot root = reader.getVectorSchemaRoot();
+
+            assertEquals(List.of("Organization", "RepoName", "CommitCount", "Topics"), root.getSchema().getFields().stream().map(field -> field.getName()).toList());
+            assertEquals(120, ((IntVector) root.getVector("CommitCount")).get(0));
+            assertEquals(List.of("ansible"), topics((ListVector) root.getVector("Topics"), 0));
+        }
+    }
+
+    @Test
+    void close_writesRowsInBatches() throws Exception {
+        Path output = tempDir.resolve("batches.arrow");
+
+        try (ArrowRowWriter writer = new ArrowRowWriter(output, "redhat-cop")) {
+            for (int i = 0; i < ArrowRowWriter.BATCH_SIZE + 1; i++) {
+                writer.write(row("repo-" + i).build());
+            }
+        }
+
+        assertEquals(List.of(ArrowRowWriter.BATCH_SIZE, 1), batchSizes(output));
+    }
+
+    @Test
+    void combine_appendsPartsInOrder() throws Exception {
+        Path first = tempDir.resolve("first.arrow");
+        Path second = tempDir.resolve("second.arrow");
+        Path output = tempDir.resolve("combined.arrow");
+
+        try (ArrowRowWriter writer = new ArrowRowWriter(first, "org-a")) {
+            writer.write(row("a1").build());
+            writer.write(row("a2").build());
+        }
+
+        try (ArrowRowWriter writer = new ArrowRowWriter(second, "org-b")) {
+            writer.write(row("b1").build());
+        }
+
+        ArrowRowWriter.combine(List.of(first, second), output, RepositoryFields.all());
+
+        List<String> organizations = new ArrayList<>();
+        try (BufferAllocator allocator = new RootAllocator(); ArrowFileReader reader = new ArrowFileReader(FileChannel.open(output, StandardOpenOption.READ), allocator)) {
+            VectorSchemaRoot root = reader.getVectorSchemaRoot();
+            while (reader.loadNextBatch()) {
+                VarCharVector vector = (VarCharVector) root.getVector("Organization");
+                VarCharVector names = (VarCharVector) root.getVector("RepoName");
+                for (int i = 0; i < root.getRowCount(); i++) {
+                    organizations.add(vector.getObject(i) + "/" + names.getObject(i));
+                }
+            }
+        }
+
+        assertEquals(List.of("org-a/a1", "org-a/a2", "org-b/b1"), organizations);
+    }
+
+    private static List<String> topics(ListVector vector, int index) {
+        return vector.getObject(index).stream().map(Object::toString).toList();
+    }
+
+    private static List<Integer> batchSizes(Path output) throws Exception {
+        List<Integer> answer = new ArrayList<>();
+        try (BufferAllocator allocator = new RootAllocator(); ArrowFileReader reader = new ArrowFileReader(FileChannel.open(output, StandardOpenOption.READ), allocator)) {
+            while (reader.loadNextBatch()) {
+                answer.add(reader.getVectorSchemaRoot().getRowCount());
+            }
+        }
+
+        return answer;
+    }
+}
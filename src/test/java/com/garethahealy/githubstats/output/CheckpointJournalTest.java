@@ -0,0 +1,119 @@
+package com.garethahealy.githubstats.output;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.garethahealy.githubstats.model.csv.Repositories;
+import com.garethahealy.githubstats.model.state.CheckpointEntry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CheckpointJournalTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @Test
+    void read_returnsAppendedEntries() throws Exception {
+        Path journal = tempDir.resolve("run.journal.jsonl");
+
+        try (CheckpointJournal checkpoints = new CheckpointJournal(journal, "redhat-cop", objectMapper, false)) {
+            checkpoints.append(entry("a"));
+            checkpoints.append(entry("b"));
+        }
+
+        Map<String, CheckpointEntry> answer = CheckpointJournal.read(journal, "redhat-cop", objectMapper);
+
+        assertEquals(List.of("a", "b"), List.copyOf(answer.keySet()));
+        assertEquals("a", answer.get("a").row().repoName());
+        assertEquals("2026-01-01T00:00:00Z", answer.get("b").pushedAt());
+    }
+
+    @Test
+    void read_skipsLineTruncatedByCrash_andResumeAppendsAfterIt() throws Exception {
+        Path journal = tempDir.resolve("run.journal.jsonl");
+
+        try (CheckpointJournal checkpoints = new CheckpointJournal(journal, "redhat-cop", objectMapper, false)) {
+            checkpoints.append(entry("a"));
+        }
+
+        Files.writeString(journal, "{\"name\":\"b\",\"row\":{\"repoN", StandardOpenOption.APPEND);
+        assertEquals(List.of("a"), List.copyOf(CheckpointJournal.read(journal, "redhat-cop", objectMapper).keySet()));
+
+        try (CheckpointJournal checkpoints = new CheckpointJournal(journal, "redhat-cop", objectMapper, true)) {
+            checkpoints.append(entry("c"));
+        }
+
+        assertEquals(List.of("a", "c"), List.copyOf(CheckpointJournal.read(journal, "redhat-cop", objectMapper).keySet()));
+        assertFalse(Files.readString(journal).contains("repoN\""));
+    }
+
+    @Test
+    void read_throws_withTheLineNumber_whenALineBeforeTheLastIsUnreadable() throws Exception {
+        Path journal = tempDir.resolve("run.journal.jsonl");
+
+        try (CheckpointJournal checkpoints = new CheckpointJournal(journal, "redhat-cop", objectMapper, false)) {
+            checkpoints.append(entry("a"));
+        }
+
+        Files.writeString(journal, "{\"name\":\"b\",\"row\":{\"repoN\n", StandardOpenOption.APPEND);
+        try (CheckpointJournal checkpoints = new CheckpointJournal(journal, "redhat-cop", objectMapper, true)) {
+            checkpoints.append(entry("c"));
+        }
+
+        IllegalStateException answer = assertThrows(IllegalStateException.class, () -> CheckpointJournal.read(journal, "redhat-cop", objectMapper));
+        assertTrue(answer.getMessage().contains("line 3"));
+    }
+
+    @Test
+    void read_throws_whenTheJournalBelongsToAnotherOrganization() throws Exception {
+        Path journal = tempDir.resolve("run.journal.jsonl");
+
+        try (CheckpointJournal checkpoints = new CheckpointJournal(journal, "redhat-cop", objectMapper, false)) {
+            checkpoints.append(entry("a"));
+        }
+
+        IllegalStateException answer = assertThrows(IllegalStateException.class, () -> CheckpointJournal.read(journal, "openshift", objectMapper));
+        assertTrue(answer.getMessage().contains("belongs to redhat-cop"));
+    }
+
+    @Test
+    void read_throws_whenTheJournalNamesNoOrganization() throws Exception {
+        Path journal = tempDir.resolve("run.journal.jsonl");
+        Files.writeString(journal, objectMapper.writeValueAsString(entry("a")) + "\n");
+
+        assertThrows(IllegalStateException.class, () -> CheckpointJournal.read(journal, "redhat-cop", objectMapper));
+    }
+
+    @Test
+    void open_withoutResume_startsAfresh() throws Exception {
+        Path journal = tempDir.resolve("run.journal.jsonl");
+
+        try (CheckpointJournal checkpoints = new CheckpointJournal(journal, "redhat-cop", objectMapper, false)) {
+            checkpoints.append(entry("a"));
+        }
+
+        try (CheckpointJournal checkpoints = new CheckpointJournal(journal, "redhat-cop", objectMapper, false)) {
+            checkpoints.append(entry("b"));
+        }
+
+        assertEquals(List.of("b"), List.copyOf(CheckpointJournal.read(journal, "redhat-cop", objectMapper).keySet()));
+    }
+
+    @Test
+    void read_missingJournal_isEmpty() throws Exception {
+        assertTrue(CheckpointJournal.read(tempDir.resolve("missing.jsonl"), "redhat-cop", objectMapper).isEmpty());
+    }
+
+    private static CheckpointEntry entry(String name) {
+        return new CheckpointEntry(name, "2026-01-01T00:00:00Z", "2026-01-02T00:00:00Z", Repositories.row(name).build());
+    }
+}
@@ -0,0 +1,73 @@
+package com.garethahealy.githubstats.output;
+
+import com.garethahealy.githubstats.mapping.RepositoryFields;
+import com.garethahealy.githubstats.model.csv.Repository;
+import org.apache.commons.csv.CSVFormat;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static com.garethahealy.githubstats.model.csv.Repositories.row;
+import static org.junit.jupiter.api.Assertions.*;
+
+class CsvRowWriterTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void combine_appendsPartsInOrderUnderOneHeader() throws Exception {
+        Path first = part("first.csv", "org-a", "a1", "a2");
+        Path second = part("second.csv", "org-b", "b1");
+        Path output = tempDir.resolve("combined.csv");
+
+        CsvRowWriter.combine(List.of(first, second), output, RepositoryFields.all());
+
+        assertEquals(List.of(
+            "=HYPERLINK(\"https://www.github.com/org-a/a1\",\"org-a/a1\")",
+            "=HYPERLINK(\"https://www.github.com/org-a/a2\",\"org-a/a2\")",
+            "=HYPERLINK(\"https://www.github.com/org-b/b1\",\"org-b/b1\")"), repoLinks(output));
+        assertEquals(1, Files.readAllLines(output).stream().filter(line -> line.startsWith("RepoName")).count());
+    }
+
+    @Test
+    void write_onlyHasTheSelectedColumns() throws Exception {
+        Path output = tempDir.resolve("fields.csv");
+        try (CsvRowWriter writer = new CsvRowWriter(output, "org-a", false, RepositoryFields.of(List.of(Repository.Headers.Topics, Repository.Headers.CommitCount)))) {
+            writer.write(row("a1").counts(3, 42, 0, 0).topics(List.of("topic-a", "topic-b")).build());
+        }
+
+        List<String> lines = Files.readAllLines(output);
+        assertEquals("RepoName,CommitCount,Topics", lines.getFirst());
+        assertTrue(lines.get(1).endsWith(",42,\"topic-a,topic-b\""), lines.get(1));
+    }
+
+    private Path part(String name, String organization, String... repos) throws Exception {
+        Path answer = tempDir.resolve(name);
+        try (CsvRowWriter writer = new CsvRowWriter(answer, organization, true)) {
+            for (String repo : repos) {
+                writer.write(row(repo).topics(List.of("topic-a", "topic-b")).build());
+            }
+        }
+
+        return answer;
+    }
+
+    private static List<String> repoLinks(Path output) throws Exception {
+        CSVFormat csvFormat = CSVFormat.Builder.create(CSVFormat.DEFAULT)
+            .setHeader()
+            .setSkipHeaderRecord(true)
+            .get();
+
+        try (Reader reader = Files.newBufferedReader(output, StandardCharsets.UTF_8)) {
+            return csvFormat.parse(reader).stream()
+                .map(record -> record.get(Repository.Headers.RepoName))
+                .toList();
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.garethahealy.githubstats.output;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.garethahealy.githubstats.model.csv.Repositories;
+import com.garethahealy.githubstats.model.csv.Repository;
+import com.garethahealy.githubstats.model.history.OrganizationPoint;
+import com.garethahealy.githubstats.model.history.RepositoryPoint;
+import com.garethahealy.githubstats.model.history.TrafficDay;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnapshotStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @Test
+    void repository_returnsSeriesPerDay_lastRunWinning() throws Exception {
+        SnapshotStore store = new SnapshotStore(tempDir, objectMapper);
+
+        run(store, "2026-03-01T02:00:00Z", row("repo-a", 10, false));
+        run(store, "2026-03-02T02:00:00Z", row("repo-a", 12, false));
+        run(store, "2026-03-02T09:00:00Z", row("repo-a", 13, false));
+        run(store, "2026-03-03T02:00:00Z", row("repo-a", 20, false));
+
+        NavigableMap<LocalDate, RepositoryPoint> answer = store.repository("redhat-cop", "repo-a", LocalDate.parse("2026-03-02"), null);
+
+        assertEquals(List.of(LocalDate.parse("2026-03-02"), LocalDate.parse("2026-03-03")), List.copyOf(answer.keySet()));
+        assertEquals(13, answer.firstEntry().getValue().commitCount());
+        assertEquals(20, answer.lastEntry().getValue().commitCount());
+    }
+
+    @Test
+    void organization_totalsEachRun_withoutArchivedCounts() throws Exception {
+        SnapshotStore store = new SnapshotStore(tempDir, objectMapper);
+
+        run(store, "2026-03-01T02:00:00Z", row("repo-a", 10, false), row("repo-b", 5, false), row("repo-c", 99, true));
+
+        OrganizationPoint answer = store.organization("redhat-cop", null, null).firstEntry().getValue();
+
+        assertEquals(3, answer.repositories());
+        assertEquals(1, answer.archived());
+        assertEquals(15, answer.commitCount());
+        assertEquals(3, Files.readAllLines(tempDir.resolve("redhat-cop").resolve("snapshots").resolve("2026-03-01.jsonl")).size());
+    }
+
+    @Test
+    void writer_keepsOneSeriesFilePerRepository() throws Exception {
+        SnapshotStore store = new SnapshotStore(tempDir, objectMapper);
+
+        run(store, "2026-03-01T02:00:00Z", row("repo-a", 10, false), row("repo-b", 5, false));
+
+        Path organization = tempDir.resolve("redhat-cop");
+        assertTrue(Files.exists(organization.resolve("snapshots").resolve("2026-03-01.jsonl")));
+        assertEquals(1, Files.readAllLines(organization.resolve("repos").resolve("repo-b.jsonl")).size());
+        assertTrue(store.repository("redhat-cop", "missing", null, null).isEmpty());
+    }
+
+    @Test
+    void mergeTraffic_appendsOnlyNewDays_andRewritesTheLastDay() throws Exception {
+        SnapshotStore store = new SnapshotStore(tempDir, objectMapper);
+
+        assertEquals(3, store.mergeTraffic("redhat-cop", "repo-a", List.of(traffic("2026-03-03", 1), traffic("2026-03-01", 5), traffic("2026-03-02", 7))));
+        assertEquals(0, store.mergeTraffic("redhat-cop", "repo-a", List.of(traffic("2026-03-01", 5), traffic("2026-03-02", 7), traffic("2026-03-03", 1))));
+        assertEquals(2, store.mergeTraffic("redhat-cop", "repo-a", List.of(traffic("2026-03-02", 7), traffic("2026-03-03", 4), traffic("2026-03-04", 2))));
+
+        NavigableMap<LocalDate, TrafficDay> answer = store.traffic("redhat-cop", "repo-a", null, null);
+
+        assertEquals(4, Files.readAllLines(tempDir.resolve("redhat-cop").resolve("traffic").resolve("repo-a.jsonl")).size());
+        assertEquals(List.of(5, 7, 4, 2), answer.values().stream().map(TrafficDay::views).toList());
+    }
+
+    @Test
+    void mergeTraffic_dropsALineCutShort() throws Exception {
+        SnapshotStore store = new SnapshotStore(tempDir, objectMapper);
+        store.mergeTraffic("redhat-cop", "repo-a", List.of(traffic("2026-03-01", 5)));
+
+        Path file = tempDir.resolve("redhat-cop").resolve("traffic").resolve("repo-a.jsonl");
+        Files.writeString(file, "{\"day\":\"2026-03-02\",\"vie", StandardOpenOption.APPEND);
+
+        assertEquals(1, store.mergeTraffic("redhat-cop", "repo-a", List.of(traffic("2026-03-01", 5), traffic("2026-03-02", 6))));
+        assertEquals(List.of(5, 6), store.traffic("redhat-cop", "repo-a", null, null).values().stream().map(TrafficDay::views).toList());
+        assertEquals(2, Files.readAllLines(file).size());
+    }
+
+    @Test
+    void mergeTraffic_serialisesConcurrentMergesOfOneRepository() throws Exception {
+        SnapshotStore store = new SnapshotStore(tempDir, objectMapper);
+
+        List<Callable<Integer>> merges = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            LocalDate first = LocalDate.parse("2026-03-01").plusDays(i % 40);
+            merges.add(() -> store.mergeTraffic("redhat-cop", "repo-a", first.datesUntil(first.plusDays(14)).map(day -> new TrafficDay(day, day.getDayOfYear(), 1, 2, 1)).toList()));
+        }
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+            for (Future<Integer> current : executor.invokeAll(merges)) {
+                current.get();
+            }
+        }
+
+        List<LocalDate> days = new ArrayList<>();
+        for (String current : Files.readAllLines(tempDir.resolve("redhat-cop").resolve("traffic").resolve("repo-a.jsonl"))) {
+            days.add(objectMapper.readValue(current, TrafficDay.class).day());
+        }
+
+        assertEquals(days.stream().sorted().distinct().toList(), days);
+        assertEquals(LocalDate.parse("2026-03-01").plusDays(39 + 13), days.getLast());
+    }
+
+    @Test
+    void repository_skipsAPartialLastLine_andTheNextRunCutsItOff() throws Exception {
+        SnapshotStore store = new SnapshotStore(tempDir, objectMapper);
+        run(store, "2026-03-01T10:00:00Z", row("repo-a", 10, false));
+
+        Path file = tempDir.resolve("redhat-cop").resolve("repos").resolve("repo-a.jsonl");
+        Files.writeString(file, "{\"day\":\"2026-03-02\",\"comm", StandardOpenOption.APPEND);
+        assertEquals(1, store.repository("redhat-cop", "repo-a", null, null).size());
+
+        run(store, "2026-03-03T10:00:00Z", row("repo-a", 12, false));
+
+        assertEquals(2, store.repository("redhat-cop", "repo-a", null, null).size());
+        assertEquals(2, Files.readAllLines(file).size());
+    }
+
+    @Test
+    void repository_throws_withTheLineNumber_whenAnEarlierLineIsUnreadable() throws Exception {
+        SnapshotStore store = new SnapshotStore(tempDir, objectMapper);
+        run(store, "2026-03-01T10:00:00Z", row("repo-a", 10, false));
+
+        Path file = tempDir.resolve("redhat-cop").resolve("repos").resolve("repo-a.jsonl");
+        Files.writeString(file, "not json\n" + Files.readString(file));
+
+        IllegalStateException answer = assertThrows(IllegalStateException.class, () -> store.repository("redhat-cop", "repo-a", null, null));
+        assertTrue(answer.getMessage().contains("line 1"));
+    }
+
+    private static TrafficDay traffic(String day, int views) {
+        return new TrafficDay(LocalDate.parse(day), views, 1, 2, 1);
+    }
+
+    private static void run(SnapshotStore store, String collectedAt, Repository... rows) throws Exception {
+        try (RowWriter writer = store.writer("redhat-cop", Instant.parse(collectedAt))) {
+            for (Repository current : rows) {
+                writer.write(current);
+            }
+        }
+    }
+
+    private static Repository row(String name, int commitCount, boolean isArchived) {
+        return Repositories.row(name).counts(1, commitCount, 2, 3).traffic(4, 5).archived(isArchived, false).build();
+    }
+}
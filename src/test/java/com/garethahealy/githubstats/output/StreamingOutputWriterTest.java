@@ -0,0 +1,150 @@
+package com.garethahealy.githubstats.output;
+
+import com.garethahealy.githubstats.model.csv.Repository;
+import org.apache.commons.csv.CSVFormat;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static com.garethahealy.githubstats.model.csv.Repositories.row;
+import static org.junit.jupiter.api.Assertions.*;
+
+class StreamingOutputWriterTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void write_keepsOrgOrder_whenRowsCompleteOutOfOrder() throws Exception {
+        Path output = tempDir.resolve("org.csv");
+
+        try (StreamingOutputWriter writer = new StreamingOutputWriter(List.of(new CsvRowWriter(output, "redhat-cop", false)), StreamingOutputWriter.Order.ORG, 4)) {
+            writer.write(2, row("c").build());
+            writer.write(0, row("a").build());
+            writer.write(1, row("b").build());
+        }
+
+        assertEquals(List.of("a", "b", "c"), repoNames(output));
+    }
+
+    @Test
+    void write_keepsCompletionOrder() throws Exception {
+        Path output = tempDir.resolve("completion.csv");
+
+        try (StreamingOutputWriter writer = new StreamingOutputWriter(List.of(new CsvRowWriter(output, "redhat-cop", false)), StreamingOutputWriter.Order.COMPLETION, 2)) {
+            writer.write(2, row("c").build());
+            writer.write(0, row("a").build());
+            writer.write(1, row("b").build());
+        }
+
+        assertEquals(List.of("c", "a", "b"), repoNames(output));
+    }
+
+    @Test
+    void close_writesBufferedRows_whenSequenceHasGaps() throws Exception {
+        Path output = tempDir.resolve("gaps.csv");
+
+        try (StreamingOutputWriter writer = new StreamingOutputWriter(List.of(new CsvRowWriter(output, "redhat-cop", false)), StreamingOutputWriter.Order.ORG, 4)) {
+            writer.write(3, row("d").build());
+            writer.write(1, row("b").build());
+        }
+
+        assertEquals(List.of("b", "d"), repoNames(output));
+    }
+
+    @Test
+    void write_waits_whenTooFarAheadOfTheNextRow() throws Exception {
+        Path output = tempDir.resolve("window.csv");
+
+        try (StreamingOutputWriter writer = new StreamingOutputWriter(List.of(new CsvRowWriter(output, "redhat-cop", false)), StreamingOutputWriter.Order.ORG, 2)) {
+            Thread ahead = Thread.ofVirtual().start(() -> write(writer, 2, "c"));
+
+            ahead.join(Duration.ofMillis(200));
+            assertTrue(ahead.isAlive());
+
+            writer.write(0, row("a").build());
+            ahead.join(Duration.ofSeconds(10));
+            assertFalse(ahead.isAlive());
+
+            writer.write(1, row("b").build());
+        }
+
+        assertEquals(List.of("a", "b", "c"), repoNames(output));
+    }
+
+    @Test
+    void skip_releasesRowsWaitingOnAFailedRepository() throws Exception {
+        Path output = tempDir.resolve("skip.csv");
+
+        try (StreamingOutputWriter writer = new StreamingOutputWriter(List.of(new CsvRowWriter(output, "redhat-cop", false)), StreamingOutputWriter.Order.ORG, 2)) {
+            Thread ahead = Thread.ofVirtual().start(() -> write(writer, 2, "c"));
+
+            writer.skip(0);
+            writer.write(1, row("b").build());
+            ahead.join(Duration.ofSeconds(10));
+            assertFalse(ahead.isAlive());
+        }
+
+        assertEquals(List.of("b", "c"), repoNames(output));
+    }
+
+    @Test
+    void write_failsFast_andCloseRethrows_whenARowWriterThrows() {
+        RowWriter broken = new RowWriter() {
+            @Override
+            public void write(Repository row) {
+                throw new IllegalStateException("allocation failed");
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            StreamingOutputWriter writer = new StreamingOutputWriter(List.of(broken), StreamingOutputWriter.Order.COMPLETION, 1);
+
+            IOException failed = assertThrows(IOException.class, () -> {
+                for (int i = 0; i < 1000; i++) {
+                    writer.write(i, row("repo-" + i).build());
+                }
+            });
+            assertInstanceOf(IllegalStateException.class, failed.getCause());
+
+            assertEquals("allocation failed", assertThrows(IllegalStateException.class, writer::close).getMessage());
+        });
+    }
+
+    private static void write(StreamingOutputWriter writer, int sequence, String name) {
+        try {
+            writer.write(sequence, row(name).build());
+        } catch (IOException | InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static List<String> repoNames(Path output) throws Exception {
+        CSVFormat csvFormat = CSVFormat.Builder.create(CSVFormat.DEFAULT)
+            .setHeader()
+            .setSkipHeaderRecord(true)
+            .get();
+
+        try (Reader reader = Files.newBufferedReader(output, StandardCharsets.UTF_8)) {
+            return csvFormat.parse(reader).stream()
+                .map(record -> record.get(Repository.Headers.RepoName))
+                .map(link -> link.substring(link.lastIndexOf(",\"") + 2, link.lastIndexOf("\")")))
+                .toList();
+        }
+    }
+}
@@ -1,7 +1,9 @@
 package com.garethahealy.githubstats.processor;
 
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLMapper;
+import com.garethahealy.githubstats.model.config.ConfigIndex;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -12,47 +14,123 @@ import static org.junit.jupiter.api.Assertions.*;
 class ConfigYamlProcessorTest {
 
     private ConfigYamlProcessor processor;
-    private ObjectMapper objectMapper;
+    private YAMLMapper yamlMapper;
 
     @BeforeEach
     void setUp() {
         processor = new ConfigYamlProcessor();
-        objectMapper = new ObjectMapper();
+        yamlMapper = new YAMLMapper();
     }
 
     @Test
-    void getReposFromYaml_returnsEmpty_whenConfigNull() {
-        assertTrue(processor.getReposFromYaml(null).isEmpty());
+    void index_isEmpty_whenConfigNull() {
+        ConfigIndex answer = processor.index("abc", (JsonNode) null);
+
+        assertEquals("abc", answer.sha());
+        assertTrue(answer.repositories().isEmpty());
     }
 
     @Test
-    void getReposFromYaml_returnsEmpty_whenOrgsMissing() throws Exception {
-        JsonNode root = objectMapper.readTree("{\"other\":true}");
-        assertTrue(processor.getReposFromYaml(root).isEmpty());
+    void index_isEmpty_whenOrgsMissing() throws Exception {
+        assertTrue(index("{\"other\":true}").repositories().isEmpty());
+        assertTrue(index("[]").repositories().isEmpty());
     }
 
     @Test
-    void getReposFromYaml_collectsRepoKeysFromNestedStructure() throws Exception {
+    void index_collectsRepoKeysFromNestedStructure() throws Exception {
         String json = """
             {"orgs":[{"repos":{"repo-a":{},"repo-b":{}},"teams":{"aarchived":{"repos":{"inner":{}}}}}]}
             """;
-        JsonNode root = objectMapper.readTree(json);
-        assertEquals(Set.of("inner", "repo-a", "repo-b"), processor.getReposFromYaml(root));
+        ConfigIndex answer = index(json);
+
+        assertEquals(Set.of("inner", "repo-a", "repo-b"), answer.repositories().keySet());
+        assertTrue(answer.contains("0", "repo-a"));
+        assertTrue(answer.contains("0/teams/aarchived", "inner"));
+    }
+
+    @Test
+    void index_recordsEveryPathListingARepo() throws Exception {
+        String json = """
+            {"orgs":{"redhat-cop":{"repos":{"shared":{}},"teams":{"parent":{"repos":{"shared":{}},"teams":{"child":{"repos":{"nested":{}}}}}}}}}
+            """;
+        ConfigIndex answer = index(json);
+
+        assertEquals(Set.of("redhat-cop", "redhat-cop/teams/parent"), answer.repositories().get("shared"));
+        assertTrue(answer.contains(ConfigIndex.teamPath("redhat-cop", "parent") + "/teams/child", "nested"));
+        assertFalse(answer.contains("redhat-cop", "nested"));
+        assertFalse(answer.contains("missing"));
+    }
+
+    @Test
+    void index_skipsEverythingButRepoKeys() throws Exception {
+        String yaml = """
+            admins: [someone]
+            repos:
+              not-an-org-repo: {}
+            orgs:
+              redhat-cop:
+                members:
+                  - user-a
+                  - user-b
+                repos:
+                  repo-a:
+                    description: has nested repos-like values
+                    topics: [repos]
+                  repo-b: {}
+                teams:
+                  writers:
+                    members: [user-a]
+                    repos:
+                      repo-a: write
+                  scalar:
+                    repos: none
+            """;
+        ConfigIndex answer = index(yaml);
+
+        assertEquals(Set.of("repo-a", "repo-b"), answer.repositories().keySet());
+        assertEquals(Set.of("redhat-cop", "redhat-cop/teams/writers"), answer.repositories().get("repo-a"));
     }
 
     @Test
-    void getArchivedReposFromYaml_returnsEmpty_whenPathMissing() throws Exception {
-        assertTrue(processor.getArchivedReposFromYaml(null).isEmpty());
-        JsonNode root = objectMapper.readTree("{\"orgs\":{}}");
-        assertTrue(processor.getArchivedReposFromYaml(root).isEmpty());
+    void isArchived_isFalse_whenPathMissing() throws Exception {
+        assertFalse(processor.index("abc", (JsonNode) null).isArchived("redhat-cop", "old-one"));
+        assertFalse(index("{\"orgs\":{}}").isArchived("redhat-cop", "old-one"));
     }
 
     @Test
-    void getArchivedReposFromYaml_readsRedhatCopArchivedTeamRepos() throws Exception {
+    void isArchived_readsRedhatCopArchivedTeamRepos() throws Exception {
         String json = """
             {"orgs":{"redhat-cop":{"teams":{"aarchived":{"repos":{"old-one":{},"old-two":{}}}}}}}
             """;
-        JsonNode root = objectMapper.readTree(json);
-        assertEquals(Set.of("old-one", "old-two"), processor.getArchivedReposFromYaml(root));
+        ConfigIndex answer = index(json);
+
+        assertTrue(answer.isArchived("redhat-cop", "old-one"));
+        assertTrue(answer.isArchived("redhat-cop", "old-two"));
+    }
+
+    @Test
+    void isArchived_readsOnlyGivenOrganization() throws Exception {
+        String json = """
+            {"orgs":{"redhat-cop":{"teams":{"aarchived":{"repos":{"old-one":{}}}}},"other-org":{"teams":{"aarchived":{"repos":{"old-two":{}}}}}}}
+            """;
+        ConfigIndex answer = index(json);
+
+        assertTrue(answer.isArchived("other-org", "old-two"));
+        assertFalse(answer.isArchived("other-org", "old-one"));
+    }
+
+    /**
+     * Indexes the config from both the tree and the token stream, which must agree.
+     */
+    private ConfigIndex index(String yaml) throws Exception {
+        ConfigIndex tree = processor.index("abc", yamlMapper.readTree(yaml));
+
+        ConfigIndex streamed;
+        try (JsonParser parser = yamlMapper.createParser(yaml)) {
+            streamed = processor.index("abc", parser);
+        }
+
+        assertEquals(tree, streamed);
+        return streamed;
     }
 }
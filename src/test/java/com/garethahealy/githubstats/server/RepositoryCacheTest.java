@@ -0,0 +1,60 @@
+package com.garethahealy.githubstats.server;
+
+import com.garethahealy.githubstats.model.csv.Repositories;
+import com.garethahealy.githubstats.model.csv.Repository;
+import com.garethahealy.githubstats.model.state.CheckpointEntry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RepositoryCacheTest {
+
+    @Test
+    void refreshed_dropsRepositoriesNoLongerListed_andBecomesReady() {
+        RepositoryCache cache = new RepositoryCache();
+        cache.register("redhat-cop");
+        cache.put("redhat-cop", entry("repo-b"));
+        cache.put("redhat-cop", entry("repo-a"));
+
+        assertFalse(cache.isReady());
+        assertNull(cache.state("redhat-cop"));
+
+        cache.refreshed("redhat-cop", Instant.parse("2026-03-01T00:00:00Z"), cache.names("redhat-cop"), Set.of("repo-a"));
+
+        assertTrue(cache.isReady());
+        assertEquals(List.of("repo-a"), cache.rows("Redhat-Cop").orElseThrow().stream().map(Repository::repoName).toList());
+        assertTrue(cache.state("redhat-cop").unchanged("repo-a", "2026-02-01T00:00:00Z", "2026-02-02T00:00:00Z").isPresent());
+    }
+
+    @Test
+    void refreshed_keepsRepositoriesAddedWhileItRan() {
+        RepositoryCache cache = new RepositoryCache();
+        cache.register("redhat-cop");
+        cache.put("redhat-cop", entry("repo-a"));
+        cache.put("redhat-cop", entry("repo-b"));
+
+        Set<String> before = cache.names("redhat-cop");
+        cache.put("redhat-cop", entry("repo-new"));
+        cache.refreshed("redhat-cop", Instant.parse("2026-03-01T00:00:00Z"), before, Set.of("repo-a"));
+
+        assertEquals(List.of("repo-a", "repo-new"), cache.rows("redhat-cop").orElseThrow().stream().map(Repository::repoName).toList());
+    }
+
+    @Test
+    void rows_isEmptyForOrganizationsNotServed() {
+        RepositoryCache cache = new RepositoryCache();
+
+        assertTrue(cache.rows("redhat-cop").isEmpty());
+        assertTrue(cache.row("redhat-cop", "repo-a").isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> cache.put("redhat-cop", entry("repo-a")));
+    }
+
+    static CheckpointEntry entry(String name) {
+        Repository row = Repositories.row(name).counts(1, 2, 3, 4).traffic(5, 6).build();
+        return new CheckpointEntry(name, "2026-02-01T00:00:00Z", "2026-02-02T00:00:00Z", row);
+    }
+}
@@ -0,0 +1,95 @@
+package com.garethahealy.githubstats.server;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.garethahealy.githubstats.metrics.RunMetrics;
+import org.jboss.logging.Logger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Instant;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StatsHttpServerTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final HttpClient client = HttpClient.newHttpClient();
+    private RepositoryCache cache;
+    private StatsHttpServer server;
+
+    @BeforeEach
+    void start() throws Exception {
+        cache = new RepositoryCache();
+        cache.register("redhat-cop");
+        server = new StatsHttpServer(new InetSocketAddress("localhost", 0), Logger.getLogger(StatsHttpServerTest.class), cache, objectMapper, new RunMetrics(objectMapper));
+        server.start();
+    }
+
+    @AfterEach
+    void stop() {
+        server.close();
+        client.close();
+    }
+
+    @Test
+    void health_isDownUntilTheFirstRefresh() throws Exception {
+        assertEquals(503, get("/health", "application/json").statusCode());
+
+        cache.refreshed("redhat-cop", Instant.now(), Set.of(), Set.of());
+
+        assertEquals(200, get("/health", "application/json").statusCode());
+    }
+
+    @Test
+    void repositories_asJsonOrCsv() throws Exception {
+        cache.put("redhat-cop", RepositoryCacheTest.entry("repo-a"));
+        cache.put("redhat-cop", RepositoryCacheTest.entry("repo-b"));
+
+        HttpResponse<String> json = get("/organizations/redhat-cop/repositories", "application/json");
+        JsonNode rows = objectMapper.readTree(json.body());
+        assertEquals(200, json.statusCode());
+        assertEquals(2, rows.size());
+        assertEquals("repo-a", rows.get(0).get("repoName").asText());
+
+        HttpResponse<String> csv = get("/organizations/redhat-cop/repositories?format=csv", "*/*");
+        assertEquals(200, csv.statusCode());
+        assertTrue(csv.headers().firstValue("Content-Type").orElseThrow().startsWith("text/csv"));
+        assertEquals(3, csv.body().lines().count());
+        assertTrue(csv.body().startsWith("RepoName,CoP"));
+    }
+
+    @Test
+    void repository_notServed() throws Exception {
+        cache.put("redhat-cop", RepositoryCacheTest.entry("repo-a"));
+
+        assertEquals(200, get("/organizations/redhat-cop/repositories/repo-a", "application/json").statusCode());
+        assertEquals(404, get("/organizations/redhat-cop/repositories/missing", "application/json").statusCode());
+        assertEquals(404, get("/organizations/openshift/repositories", "application/json").statusCode());
+        assertEquals(404, get("/unknown", "application/json").statusCode());
+    }
+
+    @Test
+    void route_answers500_whenTheHandlerThrows() throws Exception {
+        server.route("/broken", exchange -> {
+            throw new IllegalStateException("boom");
+        });
+
+        HttpResponse<String> answer = get("/broken", "application/json");
+
+        assertEquals(500, answer.statusCode());
+        assertEquals("Internal error", objectMapper.readTree(answer.body()).get("error").asText());
+    }
+
+    private HttpResponse<String> get(String path, String accept) throws Exception {
+        URI uri = URI.create("http://localhost:" + server.address().getPort() + path);
+        return client.send(HttpRequest.newBuilder(uri).header("Accept", accept).build(), HttpResponse.BodyHandlers.ofString());
+    }
+}
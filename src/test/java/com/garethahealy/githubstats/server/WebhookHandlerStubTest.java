@@ -0,0 +1,153 @@
+package com.garethahealy.githubstats.server;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.garethahealy.githubstats.metrics.RunMetrics;
+import com.garethahealy.githubstats.model.csv.Repository;
+import com.garethahealy.githubstats.model.state.CheckpointEntry;
+import com.garethahealy.githubstats.services.CollectStatsService;
+import com.garethahealy.githubstats.stub.GitHubStub;
+import com.garethahealy.githubstats.stub.StubServices;
+import org.jboss.logging.Logger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Replays recorded GitHub deliveries against the webhook endpoint, collecting the repository they name from a
+ * {@link GitHubStub} through {@link RepositoryRefresher}.
+ */
+class WebhookHandlerStubTest {
+
+    private static final String SECRET = "it's a secret";
+
+    @TempDir
+    Path tempDir;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final HttpClient client = HttpClient.newHttpClient();
+    private final BlockingQueue<String> refreshed = new LinkedBlockingQueue<>();
+    private GitHubStub stub;
+    private RepositoryCache cache;
+    private StatsHttpServer server;
+    private WebhookHandler handler;
+
+    @BeforeEach
+    void start() throws Exception {
+        // 20 repositories, of which repo-00009 and repo-00019 are archived; helm-charts is not one of them
+        stub = new GitHubStub("redhat-cop", new GitHubStub.Settings(20, 10, Duration.ZERO, 1000, Duration.ofHours(1), 0, true));
+        stub.start();
+
+        cache = new RepositoryCache();
+        cache.register("redhat-cop");
+        cache.put("redhat-cop", RepositoryCacheTest.entry("helm-charts"));
+
+        Logger logger = Logger.getLogger(WebhookHandlerStubTest.class);
+        StubServices services = StubServices.of(stub, tempDir);
+        RepositoryRefresher refresher = new RepositoryRefresher(logger, services.organizationLookupService(), services.collectStatsService(), cache,
+            org -> new CollectStatsService.Sink() {
+                @Override
+                public void completed(int sequence, CheckpointEntry entry) {
+                    cache.put(org.getLogin(), entry);
+                }
+
+                @Override
+                public void restored(int sequence, CheckpointEntry entry) {
+                    completed(sequence, entry);
+                }
+            });
+
+        handler = new WebhookHandler(logger, cache, objectMapper, (organization, repository) -> {
+            try {
+                refresher.refresh(organization, repository);
+            } finally {
+                refreshed.add(organization + "/" + repository);
+            }
+        }, SECRET);
+
+        server = new StatsHttpServer(new InetSocketAddress("localhost", 0), logger, cache, objectMapper, new RunMetrics(objectMapper));
+        server.route("/webhooks", handler);
+        server.start();
+    }
+
+    @AfterEach
+    void stop() {
+        server.close();
+        handler.close();
+        client.close();
+        stub.close();
+    }
+
+    @Test
+    void push_forARepositoryGitHubDoesNotFind_removesTheRow() throws Exception {
+        assertEquals(202, deliver("push", fixture("push.json", "helm-charts"), SECRET).statusCode());
+
+        assertEquals("redhat-cop/helm-charts", refreshed.poll(10, TimeUnit.SECONDS));
+        assertTrue(cache.row("redhat-cop", "helm-charts").isEmpty());
+        assertEquals(1L, stub.requests().get("GET /repos/{owner}/{repo}"));
+    }
+
+    @Test
+    void push_forAnArchivedRepository_cachesItWithoutCollectingIt() throws Exception {
+        assertEquals(202, deliver("push", fixture("push.json", "repo-00009"), SECRET).statusCode());
+
+        assertEquals("redhat-cop/repo-00009", refreshed.poll(10, TimeUnit.SECONDS));
+        Repository row = cache.row("redhat-cop", "repo-00009").orElseThrow();
+        assertTrue(row.isArchived());
+        assertTrue(cache.row("redhat-cop", "helm-charts").isPresent());
+        assertNull(stub.requests().get("GET /repos/{owner}/{repo}/contributors"));
+    }
+
+    @Test
+    void push_forAnActiveRepository_collectsIt() throws Exception {
+        assertEquals(202, deliver("push", fixture("push.json", "repo-00003"), SECRET).statusCode());
+
+        assertEquals("redhat-cop/repo-00003", refreshed.poll(10, TimeUnit.SECONDS));
+        Repository row = cache.row("redhat-cop", "repo-00003").orElseThrow();
+        assertFalse(row.isArchived());
+        assertEquals(stub.contributors("repo-00003"), row.contributorCount());
+        assertTrue(row.commitCount() > 0);
+    }
+
+    private HttpResponse<String> deliver(String event, byte[] payload, String secret) throws Exception {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + server.address().getPort() + "/webhooks"))
+            .header("X-GitHub-Event", event)
+            .header("Content-Type", "application/json")
+            .header("X-Hub-Signature-256", "sha256=" + HexFormat.of().formatHex(mac.doFinal(payload)))
+            .POST(HttpRequest.BodyPublishers.ofByteArray(payload))
+            .build();
+
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    /**
+     * The recorded delivery, for {@code repository} rather than helm-charts.
+     */
+    private static byte[] fixture(String name, String repository) throws Exception {
+        try (InputStream input = WebhookHandlerStubTest.class.getResourceAsStream("/webhooks/" + name)) {
+            assertNotNull(input, name);
+            return new String(input.readAllBytes(), StandardCharsets.UTF_8).replace("helm-charts", repository).getBytes(StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.garethahealy.githubstats.server;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.garethahealy.githubstats.metrics.RunMetrics;
+import org.jboss.logging.Logger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Replays recorded GitHub deliveries against the webhook endpoint, with a stub in place of the GitHub collection.
+ */
+class WebhookHandlerTest {
+
+    private static final String SECRET = "it's a secret";
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final HttpClient client = HttpClient.newHttpClient();
+    private final BlockingQueue<String> refreshed = new LinkedBlockingQueue<>();
+    private volatile CountDownLatch release = new CountDownLatch(0);
+    private RepositoryCache cache;
+    private StatsHttpServer server;
+    private WebhookHandler handler;
+
+    @BeforeEach
+    void start() throws Exception {
+        cache = new RepositoryCache();
+        cache.register("redhat-cop");
+        cache.put("redhat-cop", RepositoryCacheTest.entry("helm-charts"));
+
+        Logger logger = Logger.getLogger(WebhookHandlerTest.class);
+        handler = new WebhookHandler(logger, cache, objectMapper, (organization, repository) -> {
+            release.await();
+            cache.put(organization, RepositoryCacheTest.entry(repository));
+            refreshed.add(organization + "/" + repository);
+        }, SECRET);
+
+        server = new StatsHttpServer(new InetSocketAddress("localhost", 0), logger, cache, objectMapper, new RunMetrics(objectMapper));
+        server.route("/webhooks", handler);
+        server.start();
+    }
+
+    @AfterEach
+    void stop() {
+        server.close();
+        handler.close();
+        client.close();
+    }
+
+    @Test
+    void push_issuesAndPullRequest_refreshTheRepository() throws Exception {
+        for (String[] delivery : List.of(new String[]{"push", "push.json"}, new String[]{"issues", "issues-opened.json"}, new String[]{"pull_request", "pull_request-opened.json"})) {
+            HttpResponse<String> response = deliver(delivery[0], fixture(delivery[1]), SECRET);
+
+            assertEquals(202, response.statusCode());
+            assertEquals("redhat-cop/helm-charts", refreshed.poll(5, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    void unsigned_isRejected() throws Exception {
+        assertEquals(401, deliver("push", fixture("push.json"), "another secret").statusCode());
+        assertEquals(401, deliver("push", fixture("push.json"), null).statusCode());
+        assertNull(refreshed.poll(200, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void ping_andOtherEvents_refreshNothing() throws Exception {
+        assertEquals(200, deliver("ping", fixture("ping.json"), SECRET).statusCode());
+        assertEquals(202, deliver("star", fixture("push.json"), SECRET).statusCode());
+        assertNull(refreshed.poll(200, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void repository_deletedRemovesTheRow_renamedMovesIt() throws Exception {
+        assertEquals(202, deliver("repository", fixture("repository-renamed.json"), SECRET).statusCode());
+        assertEquals("redhat-cop/charts", refreshed.poll(5, TimeUnit.SECONDS));
+        assertTrue(cache.row("redhat-cop", "helm-charts").isEmpty());
+        assertTrue(cache.row("redhat-cop", "charts").isPresent());
+
+        cache.put("redhat-cop", RepositoryCacheTest.entry("helm-charts"));
+        assertEquals(202, deliver("repository", fixture("repository-deleted.json"), SECRET).statusCode());
+        assertTrue(cache.row("redhat-cop", "helm-charts").isEmpty());
+        assertNull(refreshed.poll(200, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void burst_isCoalesced() throws Exception {
+        release = new CountDownLatch(1);
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(202, deliver("push", fixture("push.json"), SECRET).statusCode());
+        }
+
+        release.countDown();
+
+        assertEquals("redhat-cop/helm-charts", refreshed.poll(5, TimeUnit.SECONDS));
+        assertEquals("redhat-cop/helm-charts", refreshed.poll(5, TimeUnit.SECONDS));
+        assertNull(refreshed.poll(500, TimeUnit.MILLISECONDS));
+    }
+
+    private HttpResponse<String> deliver(String event, byte[] payload, String secret) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + server.address().getPort() + "/webhooks"))
+            .header("X-GitHub-Event", event)
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofByteArray(payload));
+
+        if (secret != null) {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            request.header("X-Hub-Signature-256", "sha256=" + HexFormat.of().formatHex(mac.doFinal(payload)));
+        }
+
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static byte[] fixture(String name) throws Exception {
+        try (InputStream input = WebhookHandlerTest.class.getResourceAsStream("/webhooks/" + name)) {
+            assertNotNull(input, name);
+            return input.readAllBytes();
+        }
+    }
+}
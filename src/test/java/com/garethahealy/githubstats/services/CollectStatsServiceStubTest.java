@@ -0,0 +1,255 @@
+package com.garethahealy.githubstats.services;
+
+import com.garethahealy.githubstats.mapping.RepositoryFields;
+import com.garethahealy.githubstats.model.csv.Repository;
+import com.garethahealy.githubstats.model.state.CheckpointEntry;
+import com.garethahealy.githubstats.model.state.CollectionState;
+import com.garethahealy.githubstats.output.RowWriter;
+import com.garethahealy.githubstats.output.StreamingOutputWriter;
+import com.garethahealy.githubstats.stub.GitHubStub;
+import com.garethahealy.githubstats.stub.StubServices;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.kohsuke.github.GHOrganization;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.IntStream;
+
+import static com.garethahealy.githubstats.model.csv.Repositories.row;
+import static org.junit.jupiter.api.Assertions.*;
+
+class CollectStatsServiceStubTest {
+
+    private static final String CONTRIBUTORS = "GET /repos/{owner}/{repo}/contributors";
+    private static final String REPO_STATS_BATCH = "POST /graphql RepoStatsBatch";
+    private static final String ORG_REPO_STATS = "POST /graphql OrgRepoStats";
+
+    @TempDir
+    Path tempDir;
+
+    private GitHubStub stub;
+    private GHOrganization org;
+    private CollectStatsService service;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        // 20 repositories, of which repo-00009 and repo-00019 are archived
+        stub = new GitHubStub("stub-org", new GitHubStub.Settings(20, 10, Duration.ZERO, 1000, Duration.ofHours(1), 0, true));
+        stub.start();
+
+        StubServices services = StubServices.of(stub, tempDir);
+        service = services.collectStatsService();
+        org = services.organizationLookupService().getOrganization("stub-org");
+    }
+
+    @AfterEach
+    void tearDown() {
+        stub.close();
+    }
+
+    @Test
+    void collect_perRepo_handsOverEveryRepositoryInListingOrder() throws Exception {
+        RecordingSink sink = collect(CollectStatsService.Engine.PER_REPO, null, Map.of());
+
+        assertEquals(names(IntStream.range(0, 20)), sink.names());
+        assertTrue(sink.completed.get(9).row().isArchived());
+        assertEquals(stub.contributors("repo-00007"), sink.completed.get(7).row().contributorCount());
+        assertTrue(sink.completed.get(7).row().commitCount() > 0);
+        assertEquals(18L, stub.requests().get(CONTRIBUTORS));
+        assertEquals(2L, stub.requests().get(REPO_STATS_BATCH));
+    }
+
+    @Test
+    void collect_orgSweep_handsOverTheActiveRepositoriesThenTheArchived() throws Exception {
+        RecordingSink sink = collect(CollectStatsService.Engine.ORG_SWEEP, null, Map.of());
+
+        List<String> expected = names(IntStream.range(0, 20).filter(i -> i % 10 != 9));
+        expected.addAll(List.of("repo-00009", "repo-00019"));
+
+        assertEquals(expected, sink.names());
+        assertTrue(sink.completed.get(18).row().isArchived());
+        assertEquals(stub.contributors("repo-00007"), sink.completed.get(7).row().contributorCount());
+        assertEquals(18L, stub.requests().get(CONTRIBUTORS));
+        assertNull(stub.requests().get(REPO_STATS_BATCH));
+    }
+
+    @Test
+    void collect_perRepo_restoresJournaledRepositoriesWithoutFetchingThem() throws Exception {
+        Map<String, CheckpointEntry> journaled = journaled("repo-00003", "repo-00009");
+
+        RecordingSink sink = collect(CollectStatsService.Engine.PER_REPO, null, journaled);
+
+        assertEquals(names(IntStream.range(0, 20)), sink.names());
+        assertEquals(Set.of(3, 9), sink.restored.keySet());
+        assertSame(journaled.get("repo-00003"), sink.restored.get(3));
+        assertEquals(17L, stub.requests().get(CONTRIBUTORS));
+    }
+
+    @Test
+    void collect_orgSweep_restoresJournaledRepositoriesWithoutFetchingThem() throws Exception {
+        Map<String, CheckpointEntry> journaled = journaled("repo-00003", "repo-00019");
+
+        RecordingSink sink = collect(CollectStatsService.Engine.ORG_SWEEP, null, journaled);
+
+        assertEquals(Set.of(3, 19), sink.restored.keySet());
+        assertSame(journaled.get("repo-00003"), sink.restored.get(3));
+        assertSame(journaled.get("repo-00019"), sink.restored.get(19));
+        assertEquals(17L, stub.requests().get(CONTRIBUTORS));
+    }
+
+    @Test
+    void collect_perRepo_incremental_carriesUnchangedRepositoriesForward() throws Exception {
+        RecordingSink first = collect(CollectStatsService.Engine.PER_REPO, null, Map.of());
+        Map<String, Long> before = stub.requests();
+
+        RecordingSink second = collect(CollectStatsService.Engine.PER_REPO, state(first), Map.of());
+
+        assertEquals(rows(first), rows(second));
+        assertEquals(before.get(CONTRIBUTORS), stub.requests().get(CONTRIBUTORS));
+        assertEquals(before.get(REPO_STATS_BATCH), stub.requests().get(REPO_STATS_BATCH));
+    }
+
+    @Test
+    void collect_orgSweep_incremental_carriesUnchangedRepositoriesForward() throws Exception {
+        RecordingSink first = collect(CollectStatsService.Engine.ORG_SWEEP, null, Map.of());
+        Map<String, Long> before = stub.requests();
+
+        RecordingSink second = collect(CollectStatsService.Engine.ORG_SWEEP, state(first), Map.of());
+
+        assertEquals(rows(first), rows(second));
+        assertEquals(before.get(CONTRIBUTORS), stub.requests().get(CONTRIBUTORS));
+        assertEquals(before.get(ORG_REPO_STATS) + 1, stub.requests().get(ORG_REPO_STATS));
+    }
+
+    @Test
+    void collect_reportsAFailedRepository_soOrgOrderMovesPastIt() throws Exception {
+        stub.failing("repo-00004");
+
+        List<String> written = new ArrayList<>();
+        RecordingSink sink = new RecordingSink();
+        // a window of 4 rows, so the rows after repo-00004 wait on it unless its failure is reported
+        assertTimeoutPreemptively(Duration.ofSeconds(30), () -> {
+            try (StreamingOutputWriter writer = new StreamingOutputWriter(List.of(recording(written)), StreamingOutputWriter.Order.ORG, 4)) {
+                CollectStatsService.Sink ordered = new CollectStatsService.Sink() {
+                    @Override
+                    public void completed(int sequence, CheckpointEntry entry) throws IOException, InterruptedException {
+                        sink.completed(sequence, entry);
+                        writer.write(sequence, entry.row());
+                    }
+
+                    @Override
+                    public void restored(int sequence, CheckpointEntry entry) throws IOException, InterruptedException {
+                        sink.restored(sequence, entry);
+                        writer.write(sequence, entry.row());
+                    }
+
+                    @Override
+                    public void failed(int sequence) throws InterruptedException {
+                        sink.failed(sequence);
+                        writer.skip(sequence);
+                    }
+                };
+
+                assertThrows(ExecutionException.class, () -> service.collect(request(CollectStatsService.Engine.PER_REPO, null, Map.of()), ordered));
+            }
+        });
+
+        assertEquals(Set.of(4), sink.failed);
+        assertEquals(names(IntStream.range(0, 20).filter(i -> i != 4)), written);
+    }
+
+    private RecordingSink collect(CollectStatsService.Engine engine, CollectionState previous, Map<String, CheckpointEntry> journaled) throws Exception {
+        RecordingSink sink = new RecordingSink();
+        service.collect(request(engine, previous, journaled), sink);
+        return sink;
+    }
+
+    private CollectStatsService.Request request(CollectStatsService.Engine engine, CollectionState previous, Map<String, CheckpointEntry> journaled) {
+        return new CollectStatsService.Request(org, 0, 10, engine, RepositoryFields.all(), false, previous, journaled, Duration.ZERO);
+    }
+
+    private static Map<String, CheckpointEntry> journaled(String... names) {
+        Map<String, CheckpointEntry> answer = new HashMap<>();
+        for (String current : names) {
+            answer.put(current, new CheckpointEntry(current, null, null, row(current).commitCount(999).build()));
+        }
+
+        return answer;
+    }
+
+    private static CollectionState state(RecordingSink sink) {
+        Map<String, CollectionState.RepositoryState> repositories = new HashMap<>();
+        sink.completed.values().forEach(entry -> repositories.put(entry.name(), new CollectionState.RepositoryState(entry.pushedAt(), entry.updatedAt(), entry.row())));
+        return new CollectionState("stub-org", Instant.now(), null, repositories);
+    }
+
+    private static List<Repository> rows(RecordingSink sink) {
+        return sink.completed.values().stream().map(CheckpointEntry::row).toList();
+    }
+
+    private static List<String> names(IntStream indexes) {
+        return new ArrayList<>(indexes.mapToObj(i -> String.format("repo-%05d", i)).toList());
+    }
+
+    private static RowWriter recording(List<String> written) {
+        return new RowWriter() {
+            @Override
+            public void write(Repository row) {
+                written.add(row.repoName());
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    private static final class RecordingSink implements CollectStatsService.Sink {
+
+        private final NavigableMap<Integer, CheckpointEntry> completed = new ConcurrentSkipListMap<>();
+        private final NavigableMap<Integer, CheckpointEntry> restored = new ConcurrentSkipListMap<>();
+        private final Set<Integer> failed = new ConcurrentSkipListSet<>();
+
+        @Override
+        public void completed(int sequence, CheckpointEntry entry) {
+            assertNull(completed.put(sequence, entry), "sequence " + sequence + " completed twice");
+        }
+
+        @Override
+        public void restored(int sequence, CheckpointEntry entry) {
+            assertNull(restored.put(sequence, entry), "sequence " + sequence + " restored twice");
+        }
+
+        @Override
+        public void failed(int sequence) {
+            failed.add(sequence);
+        }
+
+        /**
+         * @return the repositories completed or restored, by sequence
+         */
+        List<String> names() {
+            NavigableMap<Integer, CheckpointEntry> answer = new ConcurrentSkipListMap<>(completed);
+            restored.forEach((sequence, entry) -> assertNull(answer.put(sequence, entry), "sequence " + sequence + " both completed and restored"));
+            return answer.values().stream().map(CheckpointEntry::name).toList();
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.garethahealy.githubstats.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.garethahealy.githubstats.mapping.RepositoryFields;
+import com.garethahealy.githubstats.model.csv.Repositories;
+import com.garethahealy.githubstats.model.csv.Repository;
+import com.garethahealy.githubstats.model.state.CollectionState;
+import org.jboss.logging.Logger;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CollectionStateServiceTest {
+
+    private static final String PUSHED_AT = "2024-05-01T12:00:00Z";
+    private static final String UPDATED_AT = "2024-05-02T08:30:00Z";
+
+    @TempDir
+    Path tempDir;
+
+    private final CollectionStateService service = new CollectionStateService(Logger.getLogger(CollectionStateServiceTest.class), new ObjectMapper().findAndRegisterModules());
+
+    @Test
+    void saveThenLoad_roundTripsRows() throws Exception {
+        Path stateFile = tempDir.resolve("out.csv.state.json");
+        Repository row = row("repo-a");
+
+        service.save(stateFile, new CollectionState("redhat-cop", Instant.now(), null, Map.of("repo-a", new CollectionState.RepositoryState(PUSHED_AT, UPDATED_AT, row))));
+
+        CollectionState loaded = service.load(stateFile, "redhat-cop", RepositoryFields.all());
+
+        assertEquals(row, loaded.unchanged("repo-a", PUSHED_AT, UPDATED_AT).orElseThrow().row());
+        assertTrue(loaded.unchanged("repo-a", "2024-06-01T00:00:00Z", UPDATED_AT).isEmpty());
+        assertTrue(loaded.unchanged("repo-a", PUSHED_AT, "2024-06-01T00:00:00Z").isEmpty());
+        assertTrue(loaded.unchanged("repo-b", PUSHED_AT, UPDATED_AT).isEmpty());
+    }
+
+    @Test
+    void load_returnsEmpty_whenStateBelongsToAnotherOrganization() throws Exception {
+        Path stateFile = tempDir.resolve("state.json");
+        service.save(stateFile, new CollectionState("other-org", Instant.now(), null, Map.of("repo-a", new CollectionState.RepositoryState(PUSHED_AT, UPDATED_AT, row("repo-a")))));
+
+        assertTrue(service.load(stateFile, "redhat-cop", RepositoryFields.all()).unchanged("repo-a", PUSHED_AT, UPDATED_AT).isEmpty());
+    }
+
+    @Test
+    void load_returnsEmpty_whenStateLacksSelectedFields() throws Exception {
+        Path stateFile = tempDir.resolve("state.json");
+        Set<Repository.Headers> fields = EnumSet.of(Repository.Headers.RepoName, Repository.Headers.CommitCount);
+        service.save(stateFile, new CollectionState("redhat-cop", Instant.now(), fields, Map.of("repo-a", new CollectionState.RepositoryState(PUSHED_AT, UPDATED_AT, row("repo-a")))));
+
+        assertTrue(service.load(stateFile, "redhat-cop", RepositoryFields.of(List.of(Repository.Headers.CommitCount))).unchanged("repo-a", PUSHED_AT, UPDATED_AT).isPresent());
+        assertTrue(service.load(stateFile, "redhat-cop", RepositoryFields.all()).unchanged("repo-a", PUSHED_AT, UPDATED_AT).isEmpty());
+    }
+
+    @Test
+    void load_returnsEmpty_whenStateIsMissingOrUnreadable() throws Exception {
+        assertTrue(service.load(tempDir.resolve("missing.json"), "redhat-cop", RepositoryFields.all()).unchanged("repo-a", PUSHED_AT, UPDATED_AT).isEmpty());
+
+        Path corrupt = Files.writeString(tempDir.resolve("corrupt.json"), "{not json");
+        assertTrue(service.load(corrupt, "redhat-cop", RepositoryFields.all()).unchanged("repo-a", PUSHED_AT, UPDATED_AT).isEmpty());
+    }
+
+    private Repository row(String name) {
+        return Repositories.row(name).lastCommit("octocat", "2024-05-01").cop("cop-a").counts(3, 42, 1, 2).topics(List.of("container-cop"))
+            .traffic(5L, 10L).files(true, false, true, false, true).inConfig(true).build();
+    }
+}
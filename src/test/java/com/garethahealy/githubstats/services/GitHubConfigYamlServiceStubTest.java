@@ -0,0 +1,118 @@
+package com.garethahealy.githubstats.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLMapper;
+import com.garethahealy.githubstats.config.GitHubConfigProperties;
+import com.garethahealy.githubstats.metrics.RunMetrics;
+import com.garethahealy.githubstats.model.config.ConfigIndex;
+import com.garethahealy.githubstats.processor.ConfigYamlProcessor;
+import com.garethahealy.githubstats.stub.GitHubStub;
+import org.jboss.logging.Logger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.kohsuke.github.GHRepository;
+import org.kohsuke.github.GitHubBuilder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class GitHubConfigYamlServiceStubTest {
+
+    private static final String DOWNLOADS = "GET /repos/{owner}/{repo}/git/blobs/{sha}";
+
+    @TempDir
+    Path tempDir;
+
+    private GitHubStub stub;
+    private GHRepository coreOrg;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        stub = new GitHubStub("stub-org", new GitHubStub.Settings(20, 10, Duration.ZERO, 1000, Duration.ofHours(1), 0, true));
+        stub.start();
+
+        coreOrg = new GitHubBuilder()
+            .withEndpoint(stub.apiUrl())
+            .withOAuthToken("stub-token", "github-stats")
+            .build()
+            .getRepository("stub-org/org");
+    }
+
+    @AfterEach
+    void tearDown() {
+        stub.close();
+    }
+
+    @Test
+    void fetchOrgConfigIndex_indexesConfigAndArchivedTeam() throws Exception {
+        ConfigIndex answer = service().fetchOrgConfigIndex(coreOrg);
+
+        assertTrue(answer.contains("repo-00000"));
+        assertFalse(answer.contains("repo-00001"));
+        assertTrue(stub.isArchived("repo-00019"));
+        assertTrue(answer.isArchived("stub-org", "repo-00019"));
+        assertFalse(answer.isArchived("stub-org", "repo-00000"));
+    }
+
+    @Test
+    void fetchOrgConfigIndex_downloadsOnlyWhenTheShaChanges() throws Exception {
+        ConfigIndex first = service().fetchOrgConfigIndex(coreOrg);
+        assertTrue(Files.exists(tempDir.resolve("config-index").resolve("stub-org.json")));
+
+        GitHubConfigYamlService restarted = service();
+        assertEquals(first, restarted.fetchOrgConfigIndex(coreOrg));
+        assertEquals(first, restarted.fetchOrgConfigIndex(coreOrg));
+
+        assertEquals(1L, stub.requests().get(DOWNLOADS));
+        assertEquals(3L, stub.requests().get("GET /repos/{owner}/org/contents"));
+    }
+
+    @Test
+    void fetchOrgConfigIndex_rebuildsAStaleIndex() throws Exception {
+        Path index = tempDir.resolve("config-index").resolve("stub-org.json");
+        Files.createDirectories(index.getParent());
+        Files.writeString(index, "{\"sha\":\"stale\",\"repositories\":{\"repo-00001\":[\"stub-org\"]}}");
+
+        ConfigIndex answer = service().fetchOrgConfigIndex(coreOrg);
+
+        assertNotEquals("stale", answer.sha());
+        assertFalse(answer.contains("repo-00001"));
+        assertEquals(1L, stub.requests().get(DOWNLOADS));
+    }
+
+    @Test
+    void fetchOrgConfigIndex_keepsTheIndexInMemoryOnly_whenTheCacheIsDisabled() throws Exception {
+        GitHubConfigYamlService service = service(false);
+        ConfigIndex first = service.fetchOrgConfigIndex(coreOrg);
+
+        assertEquals(first, service.fetchOrgConfigIndex(coreOrg));
+        assertEquals(1L, stub.requests().get(DOWNLOADS));
+        assertFalse(Files.exists(tempDir.resolve("config-index")));
+
+        service(false).fetchOrgConfigIndex(coreOrg);
+        assertEquals(2L, stub.requests().get(DOWNLOADS));
+    }
+
+    private GitHubConfigYamlService service() {
+        return service(true);
+    }
+
+    private GitHubConfigYamlService service(boolean persist) {
+        GitHubConfigProperties.Cache cache = mock(GitHubConfigProperties.Cache.class);
+        when(cache.enabled()).thenReturn(persist);
+        when(cache.directory()).thenReturn(tempDir.toString());
+
+        GitHubConfigProperties github = mock(GitHubConfigProperties.class);
+        when(github.cache()).thenReturn(cache);
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        return new GitHubConfigYamlService(Logger.getLogger(GitHubConfigYamlServiceStubTest.class), new YAMLMapper(), objectMapper, new ConfigYamlProcessor(),
+            github, new RunMetrics(objectMapper));
+    }
+}
@@ -0,0 +1,80 @@
+package com.garethahealy.githubstats.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.garethahealy.githubstats.metrics.RunMetrics;
+import com.garethahealy.githubstats.stub.GitHubStub;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.kohsuke.github.GHOrganization;
+import org.kohsuke.github.GHRepository;
+import org.kohsuke.github.GitHubBuilder;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GitHubOrganizationLookupServiceStubTest {
+
+    private static final String REPOS = "GET /orgs/{org}/repos";
+
+    private GitHubStub stub;
+    private GitHubOrganizationLookupService service;
+    private GHOrganization org;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        stub = new GitHubStub("stub-org", GitHubStub.Settings.of(250));
+        stub.start();
+
+        service = new GitHubOrganizationLookupService(new GitHubBuilder()
+            .withEndpoint(stub.apiUrl())
+            .withOAuthToken("stub-token", "github-stats")
+            .build(), new RunMetrics(new ObjectMapper()));
+        org = service.getOrganization("stub-org");
+    }
+
+    @AfterEach
+    void tearDown() {
+        stub.close();
+    }
+
+    @Test
+    void listRepositories_handsOverEveryPage() throws Exception {
+        List<Integer> pages = new ArrayList<>();
+
+        assertEquals(250, service.listRepositories(org, 0, page -> pages.add(page.size())));
+        assertEquals(List.of(100, 100, 50), pages);
+        assertEquals(3L, stub.requests().get(REPOS));
+    }
+
+    @Test
+    void listRepositories_stopsRequestingPagesAtTheLimit() throws Exception {
+        List<GHRepository> repos = new ArrayList<>();
+
+        assertEquals(150, service.listRepositories(org, 150, repos::addAll));
+        assertEquals("repo-00149", repos.getLast().getName());
+        assertEquals(2L, stub.requests().get(REPOS));
+    }
+
+    @Test
+    void listRepositories_fetchesTheNextPageWhileAPageIsWorkedOn() throws Exception {
+        List<Long> requestedDuringFirstPage = new ArrayList<>();
+
+        service.listRepositories(org, 0, page -> {
+            if (requestedDuringFirstPage.isEmpty()) {
+                Instant deadline = Instant.now().plus(Duration.ofSeconds(5));
+                while (stub.requests().get(REPOS) < 2 && Instant.now().isBefore(deadline)) {
+                    Thread.sleep(10);
+                }
+
+                requestedDuringFirstPage.add(stub.requests().get(REPOS));
+            }
+        });
+
+        assertEquals(List.of(2L), requestedDuringFirstPage);
+    }
+}
@@ -6,6 +6,7 @@ import org.junit.jupiter.api.Test;
 import org.kohsuke.github.*;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -25,12 +26,13 @@ class GitHubOrganizationLookupServiceTest {
 
 
     @Test
-    void getRepositories() throws IOException {
+    void listRepositories() throws IOException, InterruptedException {
         GHOrganization org = gitHubOrganizationLookupService.getOrganization("redhat-cop");
 
-        List<GHRepository> repos = gitHubOrganizationLookupService.getRepositories(org, 5);
+        List<GHRepository> repos = new ArrayList<>();
+        int found = gitHubOrganizationLookupService.listRepositories(org, 5, repos::addAll);
 
-        assertNotNull(repos);
+        assertEquals(5, found);
         assertEquals(5, repos.size());
     }
 }
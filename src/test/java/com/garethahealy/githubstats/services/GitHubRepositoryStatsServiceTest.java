@@ -1,11 +1,16 @@
 package com.garethahealy.githubstats.services;
 
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.garethahealy.githubstats.clients.GitHubGraphQLClient;
 import com.garethahealy.githubstats.clients.graphql.generated.Repository;
+import com.garethahealy.githubstats.mapping.RepositoryFields;
+import com.garethahealy.githubstats.metrics.RunMetrics;
+import com.garethahealy.githubstats.model.graphql.GitHubOrgRepoStatsGraphqlData;
 import com.garethahealy.githubstats.model.graphql.GitHubRepoStatsGraphqlData;
 import jakarta.json.Json;
 import jakarta.json.JsonObject;
+import jakarta.json.JsonValue;
 import org.jboss.logging.Logger;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -13,6 +18,10 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ExecutionException;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -22,6 +31,9 @@ import static org.mockito.Mockito.*;
 @ExtendWith(MockitoExtension.class)
 class GitHubRepositoryStatsServiceTest {
 
+    private static final RepositoryFields ALL = RepositoryFields.all();
+    private static final Map<String, Boolean> INCLUDES = ALL.graphqlIncludes();
+
     private final Logger logger = Logger.getLogger(GitHubRepositoryStatsServiceTest.class);
 
     @Mock
@@ -34,7 +46,7 @@ class GitHubRepositoryStatsServiceTest {
 
     @BeforeEach
     void setUp() {
-        service = new GitHubRepositoryStatsService(logger, gitHubGraphQLClient, graphqlResponseMapper);
+        service = new GitHubRepositoryStatsService(logger, gitHubGraphQLClient, graphqlResponseMapper, new RunMetrics(new ObjectMapper()));
     }
 
     @Test
@@ -43,28 +55,180 @@ class GitHubRepositoryStatsServiceTest {
         repo.setName("demo");
 
         JsonObject data = Json.createObjectBuilder().build();
-        when(gitHubGraphQLClient.getRepoStats("owner", "demo")).thenReturn(data);
-        when(graphqlResponseMapper.readValue(eq(data.toString()), eq(GitHubRepoStatsGraphqlData.class)))
+        when(gitHubGraphQLClient.getRepoStats("owner", "demo", INCLUDES)).thenReturn(data);
+        when(graphqlResponseMapper.readValue(any(JsonParser.class), eq(GitHubRepoStatsGraphqlData.class)))
             .thenReturn(new GitHubRepoStatsGraphqlData(repo));
 
-        assertSame(repo, service.fetchRepositoryStats("owner", "demo"));
+        assertSame(repo, service.fetchRepositoryStats("owner", "demo", ALL));
     }
 
     @Test
     void fetchRepositoryStats_returnsNull_whenMapperThrows() throws Exception {
         JsonObject data = Json.createObjectBuilder().build();
-        when(gitHubGraphQLClient.getRepoStats("o", "r")).thenReturn(data);
-        when(graphqlResponseMapper.readValue(anyString(), eq(GitHubRepoStatsGraphqlData.class)))
+        when(gitHubGraphQLClient.getRepoStats("o", "r", INCLUDES)).thenReturn(data);
+        when(graphqlResponseMapper.readValue(any(JsonParser.class), eq(GitHubRepoStatsGraphqlData.class)))
             .thenThrow(new IllegalStateException("parse error"));
 
-        assertNull(service.fetchRepositoryStats("o", "r"));
+        assertNull(service.fetchRepositoryStats("o", "r", ALL));
     }
 
     @Test
     void fetchRepositoryStats_returnsNull_whenGraphQlClientThrows() throws Exception {
-        when(gitHubGraphQLClient.getRepoStats("o", "r"))
+        when(gitHubGraphQLClient.getRepoStats("o", "r", INCLUDES))
             .thenThrow(new ExecutionException("boom", new RuntimeException()));
 
-        assertNull(service.fetchRepositoryStats("o", "r"));
+        assertNull(service.fetchRepositoryStats("o", "r", ALL));
+    }
+
+    @Test
+    void fetchRepositoryStats_returnsRepositoriesByName_whenBatchSucceeds() throws Exception {
+        Repository repo = new Repository();
+        repo.setName("demo");
+
+        JsonObject data = Json.createObjectBuilder().add("name", "demo").build();
+        Map<String, JsonValue> response = new LinkedHashMap<>();
+        response.put("demo", data);
+        response.put("missing", JsonValue.NULL);
+
+        when(gitHubGraphQLClient.getRepoStats("owner", List.of("demo", "missing"), INCLUDES)).thenReturn(response);
+        when(graphqlResponseMapper.readValue(any(JsonParser.class), eq(Repository.class))).thenReturn(repo);
+
+        Map<String, Repository> answer = service.fetchRepositoryStats("owner", List.of("demo", "missing"), ALL);
+
+        assertEquals(2, answer.size());
+        assertSame(repo, answer.get("demo"));
+        assertNull(answer.get("missing"));
+    }
+
+    @Test
+    void fetchRepositoryStats_fallsBackToSingleLookups_whenBatchFails() throws Exception {
+        Repository repo = new Repository();
+        repo.setName("a");
+
+        JsonObject data = Json.createObjectBuilder().build();
+        when(gitHubGraphQLClient.getRepoStats(eq("o"), anyList(), eq(INCLUDES))).thenThrow(new IllegalStateException("GraphQL errors"));
+        when(gitHubGraphQLClient.getRepoStats("o", "a", INCLUDES)).thenReturn(data);
+        when(gitHubGraphQLClient.getRepoStats("o", "b", INCLUDES)).thenThrow(new ExecutionException("boom", new RuntimeException()));
+        when(graphqlResponseMapper.readValue(any(JsonParser.class), eq(GitHubRepoStatsGraphqlData.class))).thenReturn(new GitHubRepoStatsGraphqlData(repo));
+
+        Map<String, Repository> answer = service.fetchRepositoryStats("o", List.of("a", "b"), ALL);
+
+        assertSame(repo, answer.get("a"));
+        assertTrue(answer.containsKey("b"));
+        assertNull(answer.get("b"));
+    }
+
+    @Test
+    void fetchRepositoryStats_retriesOnlyTheRepositoriesMissingFromTheBatch() throws Exception {
+        Repository repo = new Repository();
+        repo.setName("a");
+
+        Map<String, JsonValue> response = new LinkedHashMap<>();
+        response.put("a", Json.createObjectBuilder().add("name", "a").build());
+        response.put("missing", JsonValue.NULL);
+
+        when(gitHubGraphQLClient.getRepoStats("o", List.of("a", "b", "missing"), INCLUDES)).thenReturn(response);
+        when(gitHubGraphQLClient.getRepoStats("o", "b", INCLUDES)).thenReturn(Json.createObjectBuilder().build());
+        when(graphqlResponseMapper.readValue(any(JsonParser.class), eq(Repository.class))).thenReturn(repo);
+        when(graphqlResponseMapper.readValue(any(JsonParser.class), eq(GitHubRepoStatsGraphqlData.class))).thenReturn(new GitHubRepoStatsGraphqlData(repo));
+
+        Map<String, Repository> answer = service.fetchRepositoryStats("o", List.of("a", "b", "missing"), ALL);
+
+        assertEquals(3, answer.size());
+        assertSame(repo, answer.get("b"));
+        assertNull(answer.get("missing"));
+        verify(gitHubGraphQLClient, times(1)).getRepoStats(eq("o"), anyString(), eq(INCLUDES));
+    }
+
+    @Test
+    void fetchRepositoryStats_rethrowsInterrupt_withoutFallingBack() throws Exception {
+        when(gitHubGraphQLClient.getRepoStats(eq("o"), anyList(), eq(INCLUDES))).thenThrow(new InterruptedException());
+
+        assertThrows(InterruptedException.class, () -> service.fetchRepositoryStats("o", List.of("a", "b"), ALL));
+        verify(gitHubGraphQLClient, never()).getRepoStats(eq("o"), anyString(), anyMap());
+    }
+
+    @Test
+    void fetchRepositoryStats_usesSingleQuery_whenBatchHasOneRepository() throws Exception {
+        JsonObject data = Json.createObjectBuilder().build();
+        when(gitHubGraphQLClient.getRepoStats("o", "r", INCLUDES)).thenReturn(data);
+        when(graphqlResponseMapper.readValue(any(JsonParser.class), eq(GitHubRepoStatsGraphqlData.class))).thenReturn(new GitHubRepoStatsGraphqlData(null));
+
+        Map<String, Repository> answer = service.fetchRepositoryStats("o", List.of("r"), ALL);
+
+        assertTrue(answer.containsKey("r"));
+        verify(gitHubGraphQLClient, never()).getRepoStats(anyString(), anyList(), anyMap());
+    }
+
+    @Test
+    void sweepOrganizationRepositoryStats_pagesUntilLimitReached() throws Exception {
+        Repository first = new Repository();
+        first.setName("a");
+        Repository second = new Repository();
+        second.setName("b");
+        Repository third = new Repository();
+        third.setName("c");
+
+        JsonObject firstPage = Json.createObjectBuilder().add("page", 1).build();
+        JsonObject secondPage = Json.createObjectBuilder().add("page", 2).build();
+        when(gitHubGraphQLClient.getOrgRepoStats("org", 3, null, INCLUDES)).thenReturn(firstPage);
+        when(gitHubGraphQLClient.getOrgRepoStats("org", 3, "cursor-1", INCLUDES)).thenReturn(secondPage);
+        when(graphqlResponseMapper.readValue(any(JsonParser.class), eq(GitHubOrgRepoStatsGraphqlData.class)))
+            .thenReturn(orgPage(true, "cursor-1", first, second), orgPage(true, "cursor-2", third, new Repository()));
+
+        List<String> names = new ArrayList<>();
+        int found = service.sweepOrganizationRepositoryStats("org", 3, ALL, page -> page.forEach(repo -> names.add(repo.getName())));
+
+        assertEquals(3, found);
+        assertEquals(List.of("a", "b", "c"), names);
+        verify(gitHubGraphQLClient, never()).getOrgRepoStats("org", 3, "cursor-2", INCLUDES);
+    }
+
+    @Test
+    void sweepOrganizationRepositoryStats_asksOnlyForTheSelectedFields() throws Exception {
+        RepositoryFields fields = RepositoryFields.of(List.of(com.garethahealy.githubstats.model.csv.Repository.Headers.OpenIssueCount));
+
+        JsonObject page = Json.createObjectBuilder().add("page", 1).build();
+        when(gitHubGraphQLClient.getOrgRepoStats(eq("org"), eq(100), isNull(), argThat(includes -> includes.get("withIssues") && !includes.get("withDefaultBranch")))).thenReturn(page);
+        when(graphqlResponseMapper.readValue(any(JsonParser.class), eq(GitHubOrgRepoStatsGraphqlData.class)))
+            .thenReturn(orgPage(false, null, new Repository()));
+
+        assertEquals(1, service.sweepOrganizationRepositoryStats("org", 0, fields, current -> {
+        }));
+    }
+
+    @Test
+    void sweepOrganizationArchivedRepositories_usesTheArchivedQuery() throws Exception {
+        Repository archived = new Repository();
+        archived.setName("old");
+
+        JsonObject page = Json.createObjectBuilder().add("page", 1).build();
+        when(gitHubGraphQLClient.getOrgArchivedRepos("org", 100, null)).thenReturn(page);
+        when(graphqlResponseMapper.readValue(any(JsonParser.class), eq(GitHubOrgRepoStatsGraphqlData.class)))
+            .thenReturn(orgPage(false, "cursor-1", archived));
+
+        List<String> names = new ArrayList<>();
+        int found = service.sweepOrganizationArchivedRepositories("org", 0, current -> current.forEach(repo -> names.add(repo.getName())));
+
+        assertEquals(1, found);
+        assertEquals(List.of("old"), names);
+        verify(gitHubGraphQLClient, never()).getOrgRepoStats(anyString(), anyInt(), any(), anyMap());
+    }
+
+    @Test
+    void sweepOrganizationRepositoryStats_throws_whenOrganizationMissing() throws Exception {
+        JsonObject data = Json.createObjectBuilder().build();
+        when(gitHubGraphQLClient.getOrgRepoStats("missing", 100, null, INCLUDES)).thenReturn(data);
+        when(graphqlResponseMapper.readValue(any(JsonParser.class), eq(GitHubOrgRepoStatsGraphqlData.class)))
+            .thenReturn(new GitHubOrgRepoStatsGraphqlData(null));
+
+        assertThrows(IllegalStateException.class, () -> service.sweepOrganizationRepositoryStats("missing", 0, ALL, page -> {
+        }));
+    }
+
+    private static GitHubOrgRepoStatsGraphqlData orgPage(boolean hasNextPage, String endCursor, Repository... nodes) {
+        return new GitHubOrgRepoStatsGraphqlData(new GitHubOrgRepoStatsGraphqlData.Organization(
+            new GitHubOrgRepoStatsGraphqlData.RepositoryConnection(
+                new GitHubOrgRepoStatsGraphqlData.PageInfo(hasNextPage, endCursor), List.of(nodes))));
     }
 }
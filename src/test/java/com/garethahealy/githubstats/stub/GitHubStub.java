@@ -0,0 +1,707 @@
+package com.garethahealy.githubstats.stub;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.NullNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntFunction;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A local stand-in for the GitHub REST and GraphQL APIs, serving a synthetic organization of {@code repo-00000},
+ * {@code repo-00001}, ... built from the responses recorded in {@code src/test/resources/stub}. Where throughput depends
+ * on it, it behaves like GitHub:
+ * <ul>
+ *     <li>latency: each response is held for {@link Settings#latency()}, give or take half</li>
+ *     <li>pagination: REST lists honour {@code per_page} and {@code page} and send {@code Link} next/last headers,
+ *     GraphQL connections page by cursor</li>
+ *     <li>rate limits: {@code core} and {@code graphql} each allow {@link Settings#rateLimit()} requests per
+ *     {@link Settings#rateLimitWindow()}, reported in the {@code X-RateLimit-*} headers and {@code rateLimit}; once spent,
+ *     REST answers 403 and GraphQL a {@code RATE_LIMITED} error until the window resets</li>
+ *     <li>secondary limits: every {@link Settings#secondaryLimitEvery()}th request answers 403 with a "secondary rate
+ *     limit" message, and with {@code Retry-After} unless {@link Settings#secondaryLimitRetryAfter()} is false</li>
+ * </ul>
+ * A repository can be made to fail, see {@link #failing(String)}. Every request is counted, see {@link #requests()}.
+ */
+public class GitHubStub implements AutoCloseable {
+
+    public static final String SECONDARY_LIMITED = "403 secondary rate limit";
+    public static final String RATE_LIMITED = "403 rate limit";
+
+    private static final Pattern REPOSITORY = Pattern.compile("repo-(\\d{5})");
+    private static final Pattern OPERATION = Pattern.compile("query\\s+(\\w+)");
+    private static final Pattern IS_ARCHIVED = Pattern.compile("isArchived:\\s*(true|false)");
+    private static final String JSON = "application/json; charset=utf-8";
+
+    /**
+     * @param repositories        size of the organization, up to 99,999
+     * @param archivedEvery       every nth repository is archived; 0 archives none
+     * @param latency             mean time to answer a request
+     * @param rateLimit           requests allowed per window, for REST and GraphQL each
+     * @param secondaryLimitEvery      every nth request hits a secondary limit; 0 never does
+     * @param secondaryLimitRetryAfter whether a secondary limit says when to retry; GitHub does not always
+     */
+    public record Settings(int repositories, int archivedEvery, Duration latency, int rateLimit, Duration rateLimitWindow, int secondaryLimitEvery,
+                           boolean secondaryLimitRetryAfter) {
+
+        public Settings {
+            if (repositories < 0 || repositories > 99_999) {
+                throw new IllegalArgumentException("repositories must be between 0 and 99999: " + repositories);
+            }
+
+            if (rateLimitWindow.isZero() || rateLimitWindow.isNegative()) {
+                throw new IllegalArgumentException("rateLimitWindow must be positive: " + rateLimitWindow);
+            }
+        }
+
+        /**
+         * No latency, limits or archived repositories.
+         */
+        public static Settings of(int repositories) {
+            return new Settings(repositories, 0, Duration.ZERO, 1_000_000, Duration.ofHours(1), 0, true);
+        }
+    }
+
+    private final String organization;
+    private final Settings settings;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, JsonNode> fixtures = new HashMap<>();
+    private final Map<String, LongAdder> requests = new ConcurrentHashMap<>();
+    private final Set<String> failing = ConcurrentHashMap.newKeySet();
+    private final AtomicLong sequence = new AtomicLong();
+    private final Budget core = new Budget("core");
+    private final Budget graphql = new Budget("graphql");
+    private final Instant started = Instant.now();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final HttpServer server;
+    private String configYaml;
+
+    public GitHubStub(String organization, Settings settings) throws IOException {
+        this.organization = organization;
+        this.settings = settings;
+
+        for (String name : new String[]{"organization", "repository", "contributor", "clone-traffic", "view-traffic", "repo-stats"}) {
+            try (InputStream in = Objects.requireNonNull(GitHubStub.class.getResourceAsStream("/stub/" + name + ".json"), "Missing fixture: " + name)) {
+                fixtures.put(name, objectMapper.readTree(in));
+            }
+        }
+
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        this.server.setExecutor(executor);
+        this.server.createContext("/", this::handle);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * @return the REST endpoint, i.e.: for {@code GITHUB_API_URL}
+     */
+    public String apiUrl() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    /**
+     * @return the GraphQL endpoint, i.e.: for {@code GITHUB_GRAPHQL_URL}
+     */
+    public String graphqlUrl() {
+        return apiUrl() + "/graphql";
+    }
+
+    /**
+     * @return requests so far by endpoint, i.e.: {@code GET /repos/{owner}/{repo}/contributors} or
+     * {@code POST /graphql RepoStatsBatch}, plus {@link #SECONDARY_LIMITED} and {@link #RATE_LIMITED} for those refused
+     */
+    public Map<String, Long> requests() {
+        Map<String, Long> answer = new TreeMap<>();
+        requests.forEach((key, value) -> answer.put(key, value.sum()));
+        return answer;
+    }
+
+    /**
+     * Contributors of {@code repository}, as counted by paging {@code /contributors}.
+     */
+    public int contributors(String repository) {
+        return 1 + index(repository) % 50;
+    }
+
+    public boolean isArchived(String repository) {
+        return isArchived(index(repository));
+    }
+
+    /**
+     * From now on, REST requests about {@code repository} answer 500.
+     */
+    public void failing(String repository) {
+        failing.add(repository);
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.close();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            hold();
+
+            try {
+                if (exchange.getRequestHeaders().getFirst("Authorization") == null) {
+                    send(exchange, 401, message("Requires authentication"));
+                } else if ("POST".equals(exchange.getRequestMethod()) && "/graphql".equals(exchange.getRequestURI().getPath())) {
+                    graphql(exchange);
+                } else if ("GET".equals(exchange.getRequestMethod())) {
+                    rest(exchange);
+                } else {
+                    count(exchange.getRequestMethod() + " " + exchange.getRequestURI().getPath());
+                    send(exchange, 404, message("Not Found"));
+                }
+            } catch (RuntimeException e) {
+                if (exchange.getResponseCode() == -1) {
+                    send(exchange, 500, message(String.valueOf(e.getMessage())));
+                }
+            }
+        }
+    }
+
+    private void rest(HttpExchange exchange) throws IOException {
+        String[] path = exchange.getRequestURI().getPath().substring(1).split("/");
+        Map<String, String> query = query(exchange.getRequestURI());
+
+        if (path.length == 1 && path[0].equals("rate_limit")) {
+            count("GET /rate_limit");
+            headers(exchange, core, core.usage());
+            send(exchange, 200, rateLimit());
+            return;
+        }
+
+        String endpoint = endpoint(path);
+        count(endpoint);
+        if (secondaryLimited(exchange)) {
+            return;
+        }
+
+        Budget.Usage usage = core.take();
+        headers(exchange, core, usage);
+        if (!usage.allowed()) {
+            count(RATE_LIMITED);
+            send(exchange, 403, message("API rate limit exceeded for user ID 1."));
+            return;
+        }
+
+        if (path.length > 2 && path[0].equals("repos") && failing.contains(path[2])) {
+            send(exchange, 500, message("Server Error"));
+            return;
+        }
+
+        switch (endpoint) {
+            case "GET /user" -> send(exchange, 200, objectMapper.createObjectNode().put("login", "github-stats").put("id", 1).put("type", "User"));
+            case "GET /orgs/{org}" -> {
+                if (isOrganization(path[1])) {
+                    send(exchange, 200, organization());
+                } else {
+                    send(exchange, 404, message("Not Found"));
+                }
+            }
+            case "GET /orgs/{org}/repos" -> {
+                if (isOrganization(path[1])) {
+                    page(exchange, query, settings.repositories(), this::repository);
+                } else {
+                    send(exchange, 404, message("Not Found"));
+                }
+            }
+            case "GET /repos/{owner}/{repo}" -> {
+                if (isOrganization(path[1]) && path[2].equals("org")) {
+                    send(exchange, 200, repository("org", -1));
+                } else if (isOrganization(path[1]) && index(path[2]) >= 0) {
+                    send(exchange, 200, repository(index(path[2])));
+                } else {
+                    send(exchange, 404, message("Not Found"));
+                }
+            }
+            case "GET /repos/{owner}/org/contents" -> {
+                if (isOrganization(path[1])) {
+                    send(exchange, 200, objectMapper.createArrayNode().add(configYamlEntry()));
+                } else {
+                    send(exchange, 404, message("Not Found"));
+                }
+            }
+            case "GET /repos/{owner}/org/contents/config.yaml" -> {
+                if (isOrganization(path[1])) {
+                    send(exchange, 200, configYamlContent());
+                } else {
+                    send(exchange, 404, message("Not Found"));
+                }
+            }
+            case "GET /repos/{owner}/{repo}/git/blobs/{sha}" -> {
+                if (isOrganization(path[1]) && path[2].equals("org") && path[5].equals(configYamlEntry().path("sha").asText())) {
+                    send(exchange, 200, configYaml);
+                } else {
+                    send(exchange, 404, message("Not Found"));
+                }
+            }
+            case "GET /repos/{owner}/{repo}/contributors" -> {
+                if (isOrganization(path[1]) && index(path[2]) >= 0) {
+                    page(exchange, query, contributors(path[2]), this::contributor);
+                } else {
+                    send(exchange, 404, message("Not Found"));
+                }
+            }
+            case "GET /repos/{owner}/{repo}/traffic/clones", "GET /repos/{owner}/{repo}/traffic/views" -> {
+                if (isOrganization(path[1]) && index(path[2]) >= 0) {
+                    send(exchange, 200, traffic(path[4]));
+                } else {
+                    send(exchange, 404, message("Not Found"));
+                }
+            }
+            default -> send(exchange, 404, message("Not Found"));
+        }
+    }
+
+    private void graphql(HttpExchange exchange) throws IOException {
+        JsonNode request = objectMapper.readTree(exchange.getRequestBody());
+        JsonNode variables = request.path("variables");
+
+        String query = request.path("query").asText();
+        Matcher operation = OPERATION.matcher(query);
+        String name = operation.find() ? operation.group(1) : "anonymous";
+        count("POST /graphql " + name);
+        if (secondaryLimited(exchange)) {
+            return;
+        }
+
+        Budget.Usage usage = graphql.take();
+        headers(exchange, graphql, usage);
+
+        ObjectNode answer = objectMapper.createObjectNode();
+        if (!usage.allowed()) {
+            count(RATE_LIMITED);
+            answer.set("data", NullNode.getInstance());
+            answer.putArray("errors").addObject().put("type", "RATE_LIMITED").put("message", "API rate limit exceeded for user ID 1.");
+            send(exchange, 200, answer);
+            return;
+        }
+
+        ObjectNode data = answer.putObject("data");
+        switch (name) {
+            case "RepoStats" -> repoStats(answer, "repository", variables.path("name").asText());
+            case "RepoStatsBatch" -> variables.fieldNames().forEachRemaining(variable -> {
+                if (variable.startsWith("name")) {
+                    repoStats(answer, "repo" + variable.substring(4), variables.path(variable).asText());
+                }
+            });
+            case "OrgRepoStats", "OrgArchivedRepos" -> {
+                if (isOrganization(variables.path("login").asText())) {
+                    Matcher archived = IS_ARCHIVED.matcher(query);
+                    data.putObject("organization").set("repositories", repositoryConnection(variables.path("first").asInt(100), variables.path("after").asText(null),
+                        archived.find() ? Boolean.valueOf(archived.group(1)) : null, query.contains("...RepoStatsFields")));
+                } else {
+                    data.set("organization", NullNode.getInstance());
+                    answer.putArray("errors").addObject().put("type", "NOT_FOUND").put("message", "Could not resolve to an Organization");
+                }
+            }
+            default -> answer.putArray("errors").addObject().put("message", "Unsupported operation: " + name);
+        }
+
+        data.putObject("rateLimit")
+            .put("cost", 1)
+            .put("remaining", usage.remaining())
+            .put("resetAt", usage.reset().toString());
+
+        send(exchange, 200, answer);
+    }
+
+    /**
+     * Sets {@code alias} to a repository, or to {@code null} with a {@code NOT_FOUND} error on its path as GitHub does.
+     */
+    private void repoStats(ObjectNode answer, String alias, String name) {
+        JsonNode repository = repoStats(name);
+        ((ObjectNode) answer.get("data")).set(alias, repository);
+        if (repository.isNull()) {
+            ObjectNode error = (answer.has("errors") ? (ArrayNode) answer.get("errors") : answer.putArray("errors")).addObject()
+                .put("type", "NOT_FOUND")
+                .put("message", "Could not resolve to a Repository with the name '" + name + "'.");
+            error.putArray("path").add(alias);
+        }
+    }
+
+    /**
+     * @param archived only archived ({@code true}) or active ({@code false}) repositories, as the {@code isArchived}
+     *                 argument; {@code null} for all
+     * @param stats    whether the nodes select {@code RepoStatsFields}, or only the name and timestamps
+     */
+    private ObjectNode repositoryConnection(int first, String after, Boolean archived, boolean stats) {
+        int next = after == null ? 0 : Integer.parseInt(new String(Base64.getDecoder().decode(after), StandardCharsets.UTF_8));
+
+        ArrayNode nodes = objectMapper.createArrayNode();
+        for (; next < settings.repositories() && nodes.size() < first; next++) {
+            if (archived != null && archived != isArchived(next)) {
+                continue;
+            }
+
+            ObjectNode node = stats ? (ObjectNode) repoStats(name(next)) : objectMapper.createObjectNode().put("name", name(next));
+            node.put("archivedAt", isArchived(next) ? pushedAt(next).toString() : null);
+            node.put("pushedAt", pushedAt(next).toString());
+            node.put("updatedAt", pushedAt(next).toString());
+            nodes.add(node);
+        }
+
+        while (archived != null && next < settings.repositories() && archived != isArchived(next)) {
+            next++;
+        }
+
+        ObjectNode answer = objectMapper.createObjectNode();
+        answer.putObject("pageInfo")
+            .put("hasNextPage", next < settings.repositories())
+            .put("endCursor", Base64.getEncoder().encodeToString(String.valueOf(next).getBytes(StandardCharsets.UTF_8)));
+        answer.set("nodes", nodes);
+        return answer;
+    }
+
+    private JsonNode repoStats(String name) {
+        if (index(name) < 0) {
+            return NullNode.getInstance();
+        }
+
+        ObjectNode answer = fixtures.get("repo-stats").deepCopy();
+        answer.put("name", name);
+        return answer;
+    }
+
+    private ObjectNode organization() {
+        ObjectNode answer = fixtures.get("organization").deepCopy();
+        answer.put("login", organization);
+        answer.put("name", organization);
+        answer.put("url", apiUrl() + "/orgs/" + organization);
+        answer.put("public_repos", settings.repositories());
+        return answer;
+    }
+
+    private ObjectNode repository(int index) {
+        return repository(name(index), index);
+    }
+
+    private ObjectNode repository(String name, int index) {
+        ObjectNode answer = fixtures.get("repository").deepCopy();
+        answer.put("id", 1_000_000L + index);
+        answer.put("name", name);
+        answer.put("full_name", organization + "/" + name);
+        answer.put("url", apiUrl() + "/repos/" + organization + "/" + name);
+        answer.put("html_url", "https://github.com/" + organization + "/" + name);
+        answer.put("archived", index >= 0 && isArchived(index));
+        answer.put("pushed_at", pushedAt(index).toString());
+        answer.put("updated_at", pushedAt(index).toString());
+        ((ObjectNode) answer.get("owner")).put("login", organization);
+        return answer;
+    }
+
+    private ObjectNode contributor(int index) {
+        ObjectNode answer = fixtures.get("contributor").deepCopy();
+        answer.put("login", "contributor-" + index);
+        answer.put("id", index);
+        return answer;
+    }
+
+    /**
+     * The recorded traffic, moved so its last day is today.
+     */
+    private ObjectNode traffic(String kind) {
+        ObjectNode answer = fixtures.get(kind.equals("clones") ? "clone-traffic" : "view-traffic").deepCopy();
+        ArrayNode days = (ArrayNode) answer.get(kind);
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        for (int i = 0; i < days.size(); i++) {
+            ((ObjectNode) days.get(i)).put("timestamp", today.minusDays(days.size() - 1L - i).atStartOfDay(ZoneOffset.UTC).toInstant().toString());
+        }
+
+        return answer;
+    }
+
+    private synchronized ObjectNode configYamlContent() {
+        return configYamlEntry()
+            .put("encoding", "base64")
+            .put("content", Base64.getMimeEncoder().encodeToString(configYaml.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * As listed in its directory, i.e.: without the content.
+     */
+    private synchronized ObjectNode configYamlEntry() {
+        if (configYaml == null) {
+            configYaml = configYaml();
+        }
+
+        return objectMapper.createObjectNode()
+            .put("type", "file")
+            .put("size", configYaml.getBytes(StandardCharsets.UTF_8).length)
+            .put("name", "config.yaml")
+            .put("path", "config.yaml")
+            .put("sha", Integer.toHexString(configYaml.hashCode()))
+            .put("url", apiUrl() + "/repos/" + organization + "/org/contents/config.yaml?ref=main");
+    }
+
+    /**
+     * Half the active repositories are in config, and every archived one is in the {@code aarchived} team.
+     */
+    private String configYaml() {
+        StringBuilder repos = new StringBuilder();
+        StringBuilder archived = new StringBuilder();
+        for (int i = 0; i < settings.repositories(); i++) {
+            if (isArchived(i)) {
+                archived.append("          ").append(name(i)).append(": {}\n");
+            } else if (i % 2 == 0) {
+                repos.append("      ").append(name(i)).append(": {}\n");
+            }
+        }
+
+        return "orgs:\n"
+            + "  " + organization + ":\n"
+            + "    repos:\n" + repos
+            + "    teams:\n"
+            + "      aarchived:\n"
+            + "        repos:\n" + archived;
+    }
+
+    private ObjectNode rateLimit() {
+        ObjectNode answer = objectMapper.createObjectNode();
+        ObjectNode resources = answer.putObject("resources");
+        resources.set("core", rateLimit(core));
+        resources.set("graphql", rateLimit(graphql));
+        resources.set("search", rateLimit(new Budget("search")));
+        resources.set("integration_manifest", rateLimit(new Budget("integration_manifest")));
+        answer.set("rate", rateLimit(core));
+        return answer;
+    }
+
+    private ObjectNode rateLimit(Budget budget) {
+        Budget.Usage usage = budget.usage();
+        return objectMapper.createObjectNode()
+            .put("limit", settings.rateLimit())
+            .put("remaining", usage.remaining())
+            .put("reset", usage.reset().getEpochSecond())
+            .put("used", settings.rateLimit() - usage.remaining())
+            .put("resource", budget.resource);
+    }
+
+    private void page(HttpExchange exchange, Map<String, String> query, int total, IntFunction<ObjectNode> item) throws IOException {
+        int perPage = Math.clamp(Integer.parseInt(query.getOrDefault("per_page", "30")), 1, 100);
+        int page = Math.max(1, Integer.parseInt(query.getOrDefault("page", "1")));
+        int last = Math.max(1, (total + perPage - 1) / perPage);
+
+        ArrayNode answer = objectMapper.createArrayNode();
+        for (int i = (page - 1) * perPage; i < Math.min(total, page * perPage); i++) {
+            answer.add(item.apply(i));
+        }
+
+        if (last > 1) {
+            String url = apiUrl() + exchange.getRequestURI().getPath() + "?per_page=" + perPage + "&page=";
+            String link = page < last ? "<" + url + (page + 1) + ">; rel=\"next\", " : "";
+            exchange.getResponseHeaders().set("Link", link + "<" + url + last + ">; rel=\"last\"");
+        }
+
+        send(exchange, 200, answer);
+    }
+
+    private boolean secondaryLimited(HttpExchange exchange) throws IOException {
+        if (settings.secondaryLimitEvery() <= 0 || sequence.incrementAndGet() % settings.secondaryLimitEvery() != 0) {
+            return false;
+        }
+
+        count(SECONDARY_LIMITED);
+        if (settings.secondaryLimitRetryAfter()) {
+            exchange.getResponseHeaders().set("Retry-After", "1");
+        }
+
+        send(exchange, 403, message("You have exceeded a secondary rate limit. Please wait a few minutes before you try again."));
+        return true;
+    }
+
+    private void headers(HttpExchange exchange, Budget budget, Budget.Usage usage) {
+        exchange.getResponseHeaders().set("X-RateLimit-Limit", String.valueOf(settings.rateLimit()));
+        exchange.getResponseHeaders().set("X-RateLimit-Remaining", String.valueOf(usage.remaining()));
+        exchange.getResponseHeaders().set("X-RateLimit-Used", String.valueOf(settings.rateLimit() - usage.remaining()));
+        exchange.getResponseHeaders().set("X-RateLimit-Reset", String.valueOf(usage.reset().getEpochSecond()));
+        exchange.getResponseHeaders().set("X-RateLimit-Resource", budget.resource);
+    }
+
+    private void send(HttpExchange exchange, int status, JsonNode body) throws IOException {
+        byte[] bytes = objectMapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", JSON);
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    private void send(HttpExchange exchange, int status, String raw) throws IOException {
+        byte[] bytes = raw.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/vnd.github.raw");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    private ObjectNode message(String message) {
+        return objectMapper.createObjectNode()
+            .put("message", message)
+            .put("documentation_url", "https://docs.github.com/rest");
+    }
+
+    private void hold() {
+        long millis = settings.latency().toMillis();
+        if (millis <= 0) {
+            return;
+        }
+
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(millis / 2, millis + millis / 2 + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void count(String endpoint) {
+        requests.computeIfAbsent(endpoint, key -> new LongAdder()).increment();
+    }
+
+    /**
+     * @return the path with the organization and repository replaced by placeholders; {@code /users} is answered as
+     * {@code /orgs}, as the client lists organization repositories via either
+     */
+    private static String endpoint(String[] path) {
+        String[] answer = path.clone();
+        if (answer[0].equals("users")) {
+            answer[0] = "orgs";
+        }
+
+        if (answer.length > 1 && (answer[0].equals("orgs") || answer[0].equals("repos"))) {
+            answer[1] = answer[0].equals("orgs") ? "{org}" : "{owner}";
+        }
+
+        if (answer.length > 2 && answer[0].equals("repos") && !(answer.length > 3 && answer[3].equals("contents"))) {
+            answer[2] = "{repo}";
+        }
+
+        if (answer.length > 5 && answer[0].equals("repos") && answer[3].equals("git")) {
+            answer[5] = "{sha}";
+        }
+
+        return "GET /" + String.join("/", answer);
+    }
+
+    private static Map<String, String> query(URI uri) {
+        Map<String, String> answer = new HashMap<>();
+        if (uri.getRawQuery() == null) {
+            return answer;
+        }
+
+        for (String parameter : uri.getRawQuery().split("&")) {
+            int equals = parameter.indexOf('=');
+            if (equals > 0) {
+                answer.put(parameter.substring(0, equals), URLDecoder.decode(parameter.substring(equals + 1), StandardCharsets.UTF_8));
+            }
+        }
+
+        return answer;
+    }
+
+    private boolean isOrganization(String login) {
+        return organization.equalsIgnoreCase(login);
+    }
+
+    private boolean isArchived(int index) {
+        return settings.archivedEvery() > 0 && index % settings.archivedEvery() == settings.archivedEvery() - 1;
+    }
+
+    /**
+     * Spread over the past 97 hours, and the same on every run so incremental runs see unchanged repositories.
+     */
+    private Instant pushedAt(int index) {
+        return Instant.parse(fixtures.get("repository").path("pushed_at").asText()).minus(Math.max(0, index) % 97, ChronoUnit.HOURS);
+    }
+
+    private int index(String name) {
+        Matcher matcher = REPOSITORY.matcher(name);
+        if (!matcher.matches()) {
+            return -1;
+        }
+
+        int answer = Integer.parseInt(matcher.group(1));
+        return answer < settings.repositories() ? answer : -1;
+    }
+
+    private static String name(int index) {
+        return String.format("repo-%05d", index);
+    }
+
+    /**
+     * A fixed window of {@link Settings#rateLimit()} requests, counted from when the stub started.
+     */
+    private final class Budget {
+
+        record Usage(boolean allowed, int remaining, Instant reset) {
+        }
+
+        private final String resource;
+        private long window = -1;
+        private int used;
+
+        private Budget(String resource) {
+            this.resource = resource;
+        }
+
+        synchronized Usage take() {
+            roll();
+            boolean allowed = used < settings.rateLimit();
+            if (allowed) {
+                used++;
+            }
+
+            return new Usage(allowed, settings.rateLimit() - used, reset());
+        }
+
+        synchronized Usage usage() {
+            roll();
+            return new Usage(used < settings.rateLimit(), settings.rateLimit() - used, reset());
+        }
+
+        private Instant reset() {
+            return started.plus(settings.rateLimitWindow().multipliedBy(window + 1));
+        }
+
+        private void roll() {
+            long current = Duration.between(started, Instant.now()).toMillis() / settings.rateLimitWindow().toMillis();
+            if (current != window) {
+                window = current;
+                used = 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.garethahealy.githubstats.stub;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.garethahealy.githubstats.clients.GitHubRequestScheduler;
+import com.garethahealy.githubstats.clients.GitHubRestClient;
+import com.garethahealy.githubstats.clients.ScheduledGitHubConnector;
+import com.garethahealy.githubstats.config.GitHubConfigProperties;
+import com.garethahealy.githubstats.metrics.RunMetrics;
+import org.jboss.logging.Logger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.kohsuke.github.GHRepository;
+import org.kohsuke.github.GitHub;
+import org.kohsuke.github.GitHubBuilder;
+import org.kohsuke.github.connector.GitHubConnector;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class GitHubStubTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+    private GitHubStub stub;
+
+    @AfterEach
+    void tearDown() {
+        stub.close();
+    }
+
+    @Test
+    void listRepositories_pagesThroughTheOrganization() throws Exception {
+        start(new GitHubStub.Settings(250, 10, Duration.ZERO, 1000, Duration.ofHours(1), 0, true));
+
+        List<GHRepository> answer = client(GitHubConnector.DEFAULT).getOrganization("stub-org").listRepositories(100).toList();
+
+        assertEquals(250, answer.size());
+        assertEquals(25, answer.stream().filter(GHRepository::isArchived).count());
+        assertEquals("repo-00249", answer.getLast().getName());
+        assertEquals(3L, stub.requests().get("GET /orgs/{org}/repos"));
+    }
+
+    @Test
+    void count_followsTheLastLink() throws Exception {
+        start(GitHubStub.Settings.of(10));
+
+        GitHubConfigProperties github = mock(GitHubConfigProperties.class);
+        when(github.oauth()).thenReturn("stub-token");
+
+        GitHubRestClient restClient = new GitHubRestClient(client(GitHubConnector.DEFAULT), GitHubConnector.DEFAULT, github);
+
+        assertEquals(stub.contributors("repo-00007"), restClient.count("/repos/stub-org/repo-00007/contributors"));
+    }
+
+    @Test
+    void secondaryLimit_isRetriedAfterRetryAfter() throws Exception {
+        start(new GitHubStub.Settings(10, 0, Duration.ZERO, 1000, Duration.ofHours(1), 2, true));
+
+        GitHub client = client(new ScheduledGitHubConnector(GitHubConnector.DEFAULT, scheduler(), new RunMetrics(objectMapper)));
+        client.getOrganization("stub-org");
+
+        assertEquals("repo-00001", client.getRepository("stub-org/repo-00001").getName());
+        assertEquals(1L, stub.requests().get(GitHubStub.SECONDARY_LIMITED));
+    }
+
+    @Test
+    void secondaryLimit_withoutRetryAfter_isToldByItsMessage() throws Exception {
+        start(new GitHubStub.Settings(10, 0, Duration.ZERO, 1000, Duration.ofHours(1), 2, false));
+
+        GitHubRequestScheduler scheduler = spy(scheduler());
+        doReturn(Duration.ZERO).when(scheduler).backoff(anyInt(), any());
+
+        GitHub client = client(new ScheduledGitHubConnector(GitHubConnector.DEFAULT, scheduler, new RunMetrics(objectMapper)));
+        client.getOrganization("stub-org");
+
+        assertEquals("repo-00001", client.getRepository("stub-org/repo-00001").getName());
+        assertEquals(1L, stub.requests().get(GitHubStub.SECONDARY_LIMITED));
+        verify(scheduler).backoff(0, GitHubRequestScheduler.SECONDARY_RATE_LIMIT_WAIT);
+    }
+
+    @Test
+    void failing_answers500ForThatRepositoryOnly() throws Exception {
+        start(GitHubStub.Settings.of(10));
+        stub.failing("repo-00001");
+
+        assertEquals(500, get("/repos/stub-org/repo-00001/contributors?per_page=1").statusCode());
+        assertEquals(200, get("/repos/stub-org/repo-00002/contributors?per_page=1").statusCode());
+    }
+
+    @Test
+    void rateLimit_refusesOnceSpent() throws Exception {
+        start(new GitHubStub.Settings(10, 0, Duration.ZERO, 2, Duration.ofHours(1), 0, true));
+
+        assertEquals(200, get("/orgs/stub-org").statusCode());
+        assertEquals(200, get("/repos/stub-org/repo-00001").statusCode());
+
+        HttpResponse<String> answer = get("/repos/stub-org/repo-00002");
+
+        assertEquals(403, answer.statusCode());
+        assertEquals("0", answer.headers().firstValue("X-RateLimit-Remaining").orElseThrow());
+        assertEquals(1L, stub.requests().get(GitHubStub.RATE_LIMITED));
+    }
+
+    @Test
+    void graphql_answersBatchesAndSweeps() throws Exception {
+        start(GitHubStub.Settings.of(150));
+
+        JsonNode batch = post("query RepoStatsBatch($owner: String!, $name0: String!, $name1: String!) { ... }",
+            Map.of("owner", "stub-org", "name0", "repo-00001", "name1", "missing"));
+
+        assertEquals("repo-00001", batch.at("/data/repo0/name").asText());
+        assertTrue(batch.at("/data/repo1").isNull());
+        assertEquals("NOT_FOUND", batch.at("/errors/0/type").asText());
+        assertEquals("repo1", batch.at("/errors/0/path/0").asText());
+        assertTrue(batch.at("/data/rateLimit/remaining").isInt());
+
+        JsonNode first = post("query OrgRepoStats($login: String!, $first: Int!, $after: String) { ... }", Map.of("login", "stub-org", "first", 100));
+        JsonNode second = post("query OrgRepoStats($login: String!, $first: Int!, $after: String) { ... }",
+            Map.of("login", "stub-org", "first", 100, "after", first.at("/data/organization/repositories/pageInfo/endCursor").asText()));
+
+        assertTrue(first.at("/data/organization/repositories/pageInfo/hasNextPage").asBoolean());
+        assertEquals(100, first.at("/data/organization/repositories/nodes").size());
+        assertFalse(second.at("/data/organization/repositories/pageInfo/hasNextPage").asBoolean());
+        assertEquals("repo-00149", second.at("/data/organization/repositories/nodes/49/name").asText());
+        assertEquals(2L, stub.requests().get("POST /graphql OrgRepoStats"));
+    }
+
+    @Test
+    void graphql_filtersByIsArchived() throws Exception {
+        start(new GitHubStub.Settings(20, 10, Duration.ZERO, 1000, Duration.ofHours(1), 0, true));
+
+        JsonNode archived = post("query OrgArchivedRepos($login: String!, $first: Int!, $after: String) { organization(login: $login) { repositories(first: $first, isArchived: true) { ... } } }",
+            Map.of("login", "stub-org", "first", 100));
+        JsonNode active = post("query OrgRepoStats($login: String!, $first: Int!, $after: String) { organization(login: $login) { repositories(first: $first, isArchived: false) { ...RepoStatsFields } } }",
+            Map.of("login", "stub-org", "first", 100));
+
+        JsonNode nodes = archived.at("/data/organization/repositories/nodes");
+        assertEquals(List.of("repo-00009", "repo-00019"), List.of(nodes.get(0).path("name").asText(), nodes.get(1).path("name").asText()));
+        assertTrue(nodes.get(0).path("issues").isMissingNode());
+        assertEquals(18, active.at("/data/organization/repositories/nodes").size());
+        assertFalse(active.at("/data/organization/repositories/nodes/0/issues").isMissingNode());
+    }
+
+    private void start(GitHubStub.Settings settings) throws Exception {
+        stub = new GitHubStub("stub-org", settings);
+        stub.start();
+    }
+
+    private GitHub client(GitHubConnector connector) throws Exception {
+        return new GitHubBuilder()
+            .withEndpoint(stub.apiUrl())
+            .withOAuthToken("stub-token", "github-stats")
+            .withConnector(connector)
+            .build();
+    }
+
+    private HttpResponse<String> get(String path) throws Exception {
+        return httpClient.send(HttpRequest.newBuilder(URI.create(stub.apiUrl() + path))
+            .header("Authorization", "token stub-token")
+            .build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private JsonNode post(String query, Map<String, Object> variables) throws Exception {
+        String body = objectMapper.writeValueAsString(Map.of("query", query, "variables", variables));
+        HttpResponse<String> answer = httpClient.send(HttpRequest.newBuilder(URI.create(stub.graphqlUrl()))
+            .header("Authorization", "Bearer stub-token")
+            .POST(HttpRequest.BodyPublishers.ofString(body))
+            .build(), HttpResponse.BodyHandlers.ofString());
+
+        return objectMapper.readTree(answer.body());
+    }
+
+    private static GitHubRequestScheduler scheduler() {
+        GitHubConfigProperties.Requests requests = mock(GitHubConfigProperties.Requests.class);
+        when(requests.maxConcurrency()).thenReturn(2);
+        when(requests.maxRetries()).thenReturn(3);
+        when(requests.initialBackoff()).thenReturn(Duration.ofMillis(100));
+        when(requests.maxBackoff()).thenReturn(Duration.ofSeconds(2));
+
+        GitHubConfigProperties github = mock(GitHubConfigProperties.class);
+        when(github.requests()).thenReturn(requests);
+
+        return new GitHubRequestScheduler(Logger.getLogger(GitHubStubTest.class), github, new RunMetrics(new ObjectMapper()));
+    }
+}
@@ -0,0 +1,144 @@
+package com.garethahealy.githubstats.stub;
+
+import picocli.CommandLine;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Drives {@code collect-stats} of a packaged build against a {@link GitHubStub} and reports its runtime, peak memory and
+ * the requests it sent, so throughput changes can be judged without touching GitHub. Peak memory is the resident set
+ * high-water mark from {@code /proc}, so it is only reported on Linux.
+ */
+@CommandLine.Command(name = "load-test", mixinStandardHelpOptions = true, description = "Runs collect-stats against a local GitHub stub and reports runtime, memory and request counts")
+public class LoadTest implements Callable<Integer> {
+
+    @CommandLine.Option(names = {"--repositories"}, description = "Repositories in the synthetic organization", defaultValue = "1000")
+    int repositories;
+
+    @CommandLine.Option(names = {"--archived-every"}, description = "Every nth repository is archived; 0 archives none", defaultValue = "10")
+    int archivedEvery;
+
+    @CommandLine.Option(names = {"--latency"}, description = "Mean time the stub takes to answer a request", defaultValue = "PT0.05S")
+    Duration latency;
+
+    @CommandLine.Option(names = {"--rate-limit"}, description = "Requests allowed per --rate-limit-window, for REST and GraphQL each", defaultValue = "1000000")
+    int rateLimit;
+
+    @CommandLine.Option(names = {"--rate-limit-window"}, description = "Window after which the rate limit resets", defaultValue = "PT1H")
+    Duration rateLimitWindow;
+
+    @CommandLine.Option(names = {"--secondary-limit-every"}, description = "Every nth request hits a secondary rate limit; 0 never does", defaultValue = "0")
+    int secondaryLimitEvery;
+
+    @CommandLine.Option(names = {"--secondary-limit-retry-after"}, description = "Whether a secondary rate limit sends Retry-After; without it, the client waits a minute", defaultValue = "true", arity = "1")
+    boolean secondaryLimitRetryAfter;
+
+    @CommandLine.Option(names = {"--runner"}, description = "Build to run: the JVM jar or a native runner", defaultValue = "target/quarkus-app/quarkus-run.jar")
+    Path runner;
+
+    @CommandLine.Option(names = {"--output-dir"}, description = "Where the run writes its CSV, metrics and log", defaultValue = "target/load-test")
+    Path outputDir;
+
+    @CommandLine.Parameters(description = "Further collect-stats options, after --, i.e.: -- --engine=ORG_SWEEP")
+    List<String> collectStatsOptions = new ArrayList<>();
+
+    public static void main(String[] args) {
+        System.exit(new CommandLine(new LoadTest()).execute(args));
+    }
+
+    @Override
+    public Integer call() throws IOException, InterruptedException {
+        if (!Files.exists(runner)) {
+            throw new IllegalArgumentException("Missing " + runner + " - build it first with ./mvnw package -DskipTests");
+        }
+
+        Files.createDirectories(outputDir);
+        Path csv = outputDir.resolve("stub-org.csv");
+        Path metrics = outputDir.resolve("metrics.prom");
+        Path log = outputDir.resolve("collect-stats.log");
+
+        GitHubStub.Settings settings = new GitHubStub.Settings(repositories, archivedEvery, latency, rateLimit, rateLimitWindow, secondaryLimitEvery,
+            secondaryLimitRetryAfter);
+        try (GitHubStub stub = new GitHubStub("stub-org", settings)) {
+            stub.start();
+
+            List<String> command = new ArrayList<>();
+            if (runner.toString().endsWith(".jar")) {
+                command.addAll(List.of("java", "--add-opens=java.base/java.nio=ALL-UNNAMED", "-jar"));
+            }
+
+            command.add(runner.toString());
+            command.addAll(List.of("collect-stats", "--organization=stub-org", "--csv-output=" + csv, "--metrics-output=" + metrics));
+            command.addAll(collectStatsOptions);
+
+            ProcessBuilder builder = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(log.toFile());
+            builder.environment().putAll(Map.of(
+                "GITHUB_API_URL", stub.apiUrl(),
+                "GITHUB_GRAPHQL_URL", stub.graphqlUrl(),
+                "GITHUB_LOGIN", "github-stats",
+                "GITHUB_OAUTH", "stub-token",
+                "GITHUB_CACHE_ENABLED", "false"));
+
+            long started = System.nanoTime();
+            Process process = builder.start();
+
+            AtomicLong peakKb = new AtomicLong(-1);
+            Path status = Path.of("/proc", String.valueOf(process.pid()), "status");
+            while (!process.waitFor(50, TimeUnit.MILLISECONDS)) {
+                peakKb.accumulateAndGet(highWaterMarkKb(status), Math::max);
+            }
+
+            Duration runtime = Duration.ofNanos(System.nanoTime() - started);
+
+            System.out.printf("Repositories:     %,d (%,d archived)%n", repositories, archivedEvery > 0 ? repositories / archivedEvery : 0);
+            System.out.printf("Exit code:        %d (log: %s)%n", process.exitValue(), log);
+            System.out.printf("Runtime:          %.2fs%n", runtime.toMillis() / 1000d);
+            System.out.printf("Peak RSS:         %s%n", peakKb.get() < 0 ? "n/a" : String.format("%,d MiB", peakKb.get() / 1024));
+            System.out.printf("Rows written:     %,d%n", Files.exists(csv) ? rows(csv) : 0);
+            System.out.println("Requests:");
+
+            long total = 0;
+            for (Map.Entry<String, Long> current : stub.requests().entrySet()) {
+                System.out.printf("  %-55s %,10d%n", current.getKey(), current.getValue());
+                total += current.getKey().startsWith("403") ? 0 : current.getValue();
+            }
+
+            System.out.printf("  %-55s %,10d (%.1f/s)%n", "total", total, total / Math.max(0.001, runtime.toMillis() / 1000d));
+
+            return process.exitValue();
+        }
+    }
+
+    /**
+     * @return {@code VmHWM}, or -1 once the process has gone or off Linux
+     */
+    private static long highWaterMarkKb(Path status) {
+        try (Stream<String> lines = Files.lines(status)) {
+            return lines.filter(line -> line.startsWith("VmHWM:"))
+                .map(line -> line.replaceAll("\\D", ""))
+                .mapToLong(Long::parseLong)
+                .findFirst()
+                .orElse(-1);
+        } catch (IOException | RuntimeException e) {
+            return -1;
+        }
+    }
+
+    private static long rows(Path csv) throws IOException {
+        try (Stream<String> lines = Files.lines(csv)) {
+            return lines.count() - 1;
+        }
+    }
+}
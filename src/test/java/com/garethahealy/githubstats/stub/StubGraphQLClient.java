@@ -0,0 +1,95 @@
+package com.garethahealy.githubstats.stub;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.smallrye.graphql.client.GraphQLError;
+import io.smallrye.graphql.client.InvalidResponseException;
+import io.smallrye.graphql.client.Response;
+import io.smallrye.graphql.client.dynamic.api.DynamicGraphQLClient;
+import jakarta.json.Json;
+import jakarta.json.JsonArray;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonReader;
+import jakarta.json.JsonString;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * A {@link DynamicGraphQLClient} that posts to {@link GitHubStub#graphqlUrl()}, so {@code GitHubGraphQLClient} can run
+ * against the stub outside Quarkus. Only {@code executeSync(query, variables)} is answered; as with SmallRye, a body
+ * that is not a GraphQL response is thrown as an {@link InvalidResponseException}.
+ */
+public final class StubGraphQLClient {
+
+    private static final HttpClient HTTP_CLIENT = HttpClient.newHttpClient();
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private StubGraphQLClient() {
+    }
+
+    public static DynamicGraphQLClient of(GitHubStub stub) throws Exception {
+        DynamicGraphQLClient client = mock(DynamicGraphQLClient.class);
+        when(client.executeSync(anyString(), anyMap())).thenAnswer(invocation -> execute(stub, invocation.getArgument(0), invocation.getArgument(1)));
+        return client;
+    }
+
+    private static Response execute(GitHubStub stub, String query, Map<String, Object> variables) throws IOException, InterruptedException {
+        String body = OBJECT_MAPPER.writeValueAsString(Map.of("query", query, "variables", variables));
+        HttpResponse<String> answer = HTTP_CLIENT.send(HttpRequest.newBuilder(URI.create(stub.graphqlUrl()))
+            .header("Authorization", "Bearer stub-token")
+            .POST(HttpRequest.BodyPublishers.ofString(body))
+            .build(), HttpResponse.BodyHandlers.ofString());
+
+        JsonObject json;
+        try (JsonReader reader = Json.createReader(new StringReader(answer.body()))) {
+            json = reader.readObject();
+        }
+
+        if (!json.containsKey("data") && !json.containsKey("errors")) {
+            throw new InvalidResponseException("Unexpected response. Code=" + answer.statusCode() + ", body=\"" + answer.body() + "\"");
+        }
+
+        JsonObject data = json.get("data") instanceof JsonObject object ? object : null;
+        List<GraphQLError> errors = new ArrayList<>();
+        if (json.get("errors") instanceof JsonArray array) {
+            array.getValuesAs(JsonObject.class).forEach(current -> errors.add(error(current)));
+        }
+
+        Response response = mock(Response.class);
+        lenient().when(response.getData()).thenReturn(data);
+        lenient().when(response.hasData()).thenReturn(data != null);
+        lenient().when(response.getErrors()).thenReturn(errors);
+        lenient().when(response.hasError()).thenReturn(!errors.isEmpty());
+        lenient().when(response.getStatusCode()).thenReturn(answer.statusCode());
+        lenient().when(response.getTransportMeta()).thenReturn(answer.headers().map());
+        return response;
+    }
+
+    private static GraphQLError error(JsonObject json) {
+        Map<String, Object> otherFields = new HashMap<>();
+        if (json.get("type") instanceof JsonString type) {
+            otherFields.put("type", type.getString());
+        }
+
+        Object[] path = json.get("path") instanceof JsonArray array ? array.stream()
+            .map(current -> current instanceof JsonString name ? name.getString() : current.toString())
+            .toArray() : null;
+
+        GraphQLError error = mock(GraphQLError.class);
+        lenient().when(error.getMessage()).thenReturn(json.getString("message", null));
+        lenient().when(error.getPath()).thenReturn(path);
+        lenient().when(error.getOtherFields()).thenReturn(otherFields);
+        return error;
+    }
+}
@@ -0,0 +1,95 @@
+package com.garethahealy.githubstats.stub;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLMapper;
+import com.garethahealy.githubstats.clients.GitHubGraphQLClient;
+import com.garethahealy.githubstats.clients.GitHubRequestScheduler;
+import com.garethahealy.githubstats.clients.GitHubResponseCache;
+import com.garethahealy.githubstats.clients.GitHubRestClient;
+import com.garethahealy.githubstats.config.GitHubConfigProperties;
+import com.garethahealy.githubstats.config.jackson.ObjectMapperConfig;
+import com.garethahealy.githubstats.mapping.GraphqlRepositoryToCsvMapper;
+import com.garethahealy.githubstats.mapping.fields.CloneTrafficUniquesMapping;
+import com.garethahealy.githubstats.mapping.fields.CommitCountMapping;
+import com.garethahealy.githubstats.mapping.fields.ContributorCountMapping;
+import com.garethahealy.githubstats.mapping.fields.DailyTrafficMapping;
+import com.garethahealy.githubstats.mapping.fields.OpenIssueCountMapping;
+import com.garethahealy.githubstats.mapping.fields.ViewTrafficUniquesMapping;
+import com.garethahealy.githubstats.metrics.RunMetrics;
+import com.garethahealy.githubstats.processor.ConfigYamlProcessor;
+import com.garethahealy.githubstats.services.CollectStatsService;
+import com.garethahealy.githubstats.services.GitHubConfigYamlService;
+import com.garethahealy.githubstats.services.GitHubContributorsLookupService;
+import com.garethahealy.githubstats.services.GitHubOrganizationLookupService;
+import com.garethahealy.githubstats.services.GitHubRepositoryStatsService;
+import com.garethahealy.githubstats.services.GitHubTrafficLookupService;
+import org.jboss.logging.Logger;
+import org.kohsuke.github.GitHub;
+import org.kohsuke.github.GitHubBuilder;
+import org.kohsuke.github.connector.GitHubConnector;
+
+import java.nio.file.Path;
+
+import static com.garethahealy.githubstats.model.csv.Repositories.row;
+import static org.mockito.Mockito.*;
+
+/**
+ * The real collection services, wired outside Quarkus against a {@link GitHubStub}.
+ */
+public record StubServices(GitHubOrganizationLookupService organizationLookupService, CollectStatsService collectStatsService) {
+
+    /**
+     * @param cacheDirectory where the response cache would live, although it is disabled
+     */
+    public static StubServices of(GitHubStub stub, Path cacheDirectory) throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        GitHubConfigProperties github = github(cacheDirectory);
+        RunMetrics metrics = new RunMetrics(objectMapper);
+        Logger logger = Logger.getLogger(StubServices.class);
+
+        GitHub client = new GitHubBuilder()
+            .withEndpoint(stub.apiUrl())
+            .withOAuthToken("stub-token", "github-stats")
+            .build();
+        GitHubRestClient restClient = new GitHubRestClient(client, GitHubConnector.DEFAULT, github);
+        GitHubGraphQLClient graphQLClient = new GitHubGraphQLClient(StubGraphQLClient.of(stub), new GitHubRequestScheduler(logger, github, metrics),
+            mock(GitHubResponseCache.class), github);
+
+        GitHubOrganizationLookupService organizationLookupService = new GitHubOrganizationLookupService(client, metrics);
+        CollectStatsService collectStatsService = new CollectStatsService(logger, organizationLookupService, new GitHubTrafficLookupService(restClient, metrics),
+            new GitHubContributorsLookupService(restClient, metrics), new GitHubRepositoryStatsService(logger, graphQLClient, new ObjectMapperConfig().mapper(), metrics),
+            new GitHubConfigYamlService(logger, new YAMLMapper(), objectMapper, new ConfigYamlProcessor(), github, metrics), mapper(),
+            new CloneTrafficUniquesMapping(), new ViewTrafficUniquesMapping(), new DailyTrafficMapping(), metrics);
+
+        return new StubServices(organizationLookupService, collectStatsService);
+    }
+
+    /**
+     * Stands in for the MapStruct implementation, which only exists once the annotation processor has run.
+     */
+    private static GraphqlRepositoryToCsvMapper mapper() {
+        return (name, graphql, contributorCount, cloneTraffic, viewTraffic, inConfig, isArchived, inArchivedTeam) -> row(name)
+            .counts(new ContributorCountMapping().contributorCount(contributorCount), new CommitCountMapping().commitCount(graphql),
+                new OpenIssueCountMapping().openIssueCount(graphql), 0)
+            .traffic(new CloneTrafficUniquesMapping().cloneTrafficUniques(cloneTraffic), new ViewTrafficUniquesMapping().viewTrafficUniques(viewTraffic))
+            .inConfig(inConfig)
+            .archived(isArchived, inArchivedTeam)
+            .build();
+    }
+
+    private static GitHubConfigProperties github(Path cacheDirectory) {
+        GitHubConfigProperties.Requests requests = mock(GitHubConfigProperties.Requests.class);
+        when(requests.maxConcurrency()).thenReturn(8);
+        when(requests.maxRetries()).thenReturn(3);
+
+        GitHubConfigProperties.Cache cache = mock(GitHubConfigProperties.Cache.class);
+        when(cache.enabled()).thenReturn(false);
+        when(cache.directory()).thenReturn(cacheDirectory.toString());
+
+        GitHubConfigProperties github = mock(GitHubConfigProperties.class);
+        when(github.oauth()).thenReturn("stub-token");
+        when(github.requests()).thenReturn(requests);
+        when(github.cache()).thenReturn(cache);
+        return github;
+    }
+}